@@ -0,0 +1,99 @@
+package org.example.benchmarks;
+
+import org.example.http.HttpInputBuffer;
+import org.example.http.HttpRequestParser;
+import org.example.http.errors.InvalidHttpRequestException;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Request line + headers parsing, byte-level parser against the original one. Both read from an in-memory
+// stream; on a real socket the original parser also pays one system call per byte, which is not measured here.
+// Besides typical requests, pathological ones: a hundred headers, an 8 KB cookie and a long percent-encoded
+// target with a query, the shapes that grow buffers and defeat per-header fast paths.
+// Run with -prof gc to compare the allocation rate per request.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpRequestParserBenchmark {
+    private static final Map<String, String> REQUESTS = Map.of(
+            "manyHeaders",
+            "GET /index.html HTTP/1.1\r\nHost: localhost\r\n"
+                    + IntStream.range(0, 100).mapToObj(i -> "X-Custom-Header-" + i + ": value-" + i + "\r\n").collect(Collectors.joining())
+                    + "\r\n",
+            "largeCookie",
+            "GET /index.html HTTP/1.1\r\nHost: localhost\r\nCookie: "
+                    + IntStream.range(0, 200).mapToObj(i -> "session" + i + "=" + "a1b2c3d4e5f6a7b8c9d0").collect(Collectors.joining("; "))
+                    + "\r\n\r\n",
+            "longTarget",
+            "GET /" + "caf%C3%A9/".repeat(100) + "index.html?" + "q=hello+world&page=2&".repeat(50) + "sort=asc HTTP/1.1\r\n"
+                    + "Host: localhost\r\n\r\n",
+            "minimal",
+            "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n",
+            "browser",
+            "GET /index.html HTTP/1.1\r\n"
+                    + "Host: localhost\r\n"
+                    + "Connection: keep-alive\r\n"
+                    + "Cache-Control: max-age=0\r\n"
+                    + "Upgrade-Insecure-Requests: 1\r\n"
+                    + "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36\r\n"
+                    + "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8\r\n"
+                    + "Accept-Encoding: gzip, deflate, br\r\n"
+                    + "Accept-Language: en-US,en;q=0.9\r\n"
+                    + "If-None-Match: \"5d8c72a5edda8\"\r\n"
+                    + "If-Modified-Since: Tue, 15 Oct 2024 12:45:26 GMT\r\n"
+                    + "\r\n"
+    );
+
+    private static final String[] HANDLER_LOOKUPS = {
+            "host", "connection", "content-length", "transfer-encoding", "accept-encoding", "if-none-match", "if-modified-since", "range"
+    };
+
+    @Param({"minimal", "browser", "manyHeaders", "largeCookie", "longTarget"})
+    private String request;
+
+    private HttpInputBuffer httpInputBuffer;
+    private RepeatingInputStream legacyInputStream;
+
+    @Setup
+    public void setUp() {
+        byte[] requestBytes = REQUESTS.get(this.request).getBytes(StandardCharsets.US_ASCII);
+        // one buffer for the whole run, as one keep-alive connection
+        this.httpInputBuffer = new HttpInputBuffer(new RepeatingInputStream(requestBytes));
+        this.legacyInputStream = new RepeatingInputStream(requestBytes);
+    }
+
+    @Benchmark
+    public Map<String, String> byteLevelParser() throws IOException, InvalidHttpRequestException {
+        HttpRequestParser httpRequestParser = new HttpRequestParser(this.httpInputBuffer);
+        httpRequestParser.parseHttpRequestLine();
+        return httpRequestParser.parseHttpRequestHeaders();
+    }
+
+    // the lookups HttpRequestHandler makes for a static GET, values are only decoded here
+    @Benchmark
+    public int byteLevelParserWithLookups() throws IOException, InvalidHttpRequestException {
+        Map<String, String> headers = byteLevelParser();
+        int found = 0;
+        for (String name : HANDLER_LOOKUPS) {
+            if (headers.get(name) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public Map<String, String> legacyParser() throws IOException, InvalidHttpRequestException {
+        LegacyHttpRequestParser legacyHttpRequestParser = new LegacyHttpRequestParser(this.legacyInputStream);
+        legacyHttpRequestParser.parseHttpRequestLine();
+        return legacyHttpRequestParser.parseHttpRequestHeaders();
+    }
+}
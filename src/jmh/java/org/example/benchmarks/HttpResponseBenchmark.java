@@ -0,0 +1,75 @@
+package org.example.benchmarks;
+
+import org.example.http.ContentEncoding;
+import org.example.http.HttpOutputBuffer;
+import org.example.http.HttpResponse;
+import org.example.http.HttpResponseStatus;
+import org.example.http.util.HttpResponseBuilder;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Building a response head with HttpResponseBuilder and writing it to a connection's output buffer, which
+// discards the bytes. Covers the heads the static file path produces: a plain 200, a 200 with the
+// representation headers of a compressed variant, a 304 revalidation and an error.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpResponseBenchmark {
+    private static final String ENTITY_TAG = "\"5d8c72a5edda8-gzip\"";
+    private static final String LAST_MODIFIED = "Tue, 15 Oct 2024 12:45:26 GMT";
+    private static final Map<String, String> REPRESENTATION_HEADERS =
+            HttpResponseBuilder.generateRepresentationHeaders(ContentEncoding.GZIP, true, ENTITY_TAG, LAST_MODIFIED);
+    private static final Map<String, String> VALIDATOR_HEADERS =
+            HttpResponseBuilder.generateValidatorHeaders(true, ENTITY_TAG, LAST_MODIFIED);
+
+    private HttpOutputBuffer outputBuffer;
+
+    @Setup
+    public void setUp() {
+        this.outputBuffer = new HttpOutputBuffer(OutputStream.nullOutputStream());
+    }
+
+    private HttpResponse write(HttpResponse httpResponse) throws IOException {
+        httpResponse.writeTo(this.outputBuffer);
+        this.outputBuffer.flush();
+        return httpResponse;
+    }
+
+    @Benchmark
+    public HttpResponse buildGetResponse() {
+        return HttpResponseBuilder.generateHttpGetResponse("HTTP/1.1", HttpResponseStatus.OK, 1043, "text/html", true);
+    }
+
+    @Benchmark
+    public HttpResponse writeGetResponse() throws IOException {
+        return write(buildGetResponse());
+    }
+
+    @Benchmark
+    public HttpResponse writeGetResponseWithRepresentationHeaders() throws IOException {
+        return write(HttpResponseBuilder.generateHttpGetResponse(
+                "HTTP/1.1", HttpResponseStatus.OK, 1043, "text/html", REPRESENTATION_HEADERS, true));
+    }
+
+    @Benchmark
+    public HttpResponse writeNotModifiedResponse() throws IOException {
+        return write(HttpResponseBuilder.generateHttpNotModifiedResponse("HTTP/1.1", VALIDATOR_HEADERS, true));
+    }
+
+    @Benchmark
+    public HttpResponse writeErrorResponse() throws IOException {
+        return write(HttpResponseBuilder.generateHttpErrorResponse("HTTP/1.1", HttpResponseStatus.NOT_FOUND, true));
+    }
+
+    // HTTP/1.0 takes the other pre-encoded status line and a Connection: keep-alive header
+    @Benchmark
+    public HttpResponse writeHttp10GetResponse() throws IOException {
+        return write(HttpResponseBuilder.generateHttpGetResponse("HTTP/1.0", HttpResponseStatus.OK, 1043, "text/html", true));
+    }
+}
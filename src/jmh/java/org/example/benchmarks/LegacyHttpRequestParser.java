@@ -0,0 +1,103 @@
+package org.example.benchmarks;
+
+import org.example.http.HttpRequestLine;
+import org.example.http.errors.InvalidHttpHeaderException;
+import org.example.http.errors.InvalidHttpRequestException;
+import org.example.http.errors.InvalidHttpRequestLineException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+// request line and header parsing of the original HttpRequestParser (one InputStream.read() per byte,
+// StringBuilder accumulation and regex splits), kept as the baseline of HttpRequestParserBenchmark
+class LegacyHttpRequestParser {
+    private final HttpRequestLine httpRequestLine;
+    private final Map<String, String> httpRequestHeaders;
+    private final InputStream inputStream;
+    private final StringBuilder httpRequestLineStrings;
+    private final ArrayList<String> httpRequestHeadersStrings;
+
+    LegacyHttpRequestParser(InputStream inputStream) {
+        this.inputStream = inputStream;
+        this.httpRequestLine = new HttpRequestLine();
+        this.httpRequestHeaders = new HashMap<>();
+        this.httpRequestLineStrings = new StringBuilder();
+        this.httpRequestHeadersStrings = new ArrayList<>();
+    }
+
+    HttpRequestLine parseHttpRequestLine() throws InvalidHttpRequestLineException, IOException {
+        this.readHttpRequestLine();
+        String requestLine = String.valueOf(this.httpRequestLineStrings);
+        String[] requestLineComponents = requestLine.split("\\s+");
+        if (!(requestLineComponents.length == 3)) {
+            throw new InvalidHttpRequestLineException("HTTP method, URI and HTTP version must be provided.");
+        }
+        String httpMethod = requestLineComponents[0];
+        String uriPath = requestLineComponents[1];
+        String httpVersion = requestLineComponents[2];
+        this.httpRequestLine.setHttpMethod(httpMethod);
+        this.httpRequestLine.setUriPath(uriPath);
+        this.httpRequestLine.setHttpVersion(httpVersion);
+        return this.httpRequestLine;
+    }
+
+    Map<String, String> parseHttpRequestHeaders() throws InvalidHttpRequestException, IOException {
+        this.readHttpHeaders();
+        if (!this.httpRequestHeadersStrings.isEmpty()) {
+            for (String header : this.httpRequestHeadersStrings) {
+                String[] headerComponent = header.split(":\\s?", 2);
+                this.httpRequestHeaders.put(headerComponent[0].toLowerCase(), headerComponent[1]);
+            }
+        }
+        return this.httpRequestHeaders;
+    }
+
+    private void readHttpRequestLine() throws IOException, InvalidHttpRequestLineException {
+        int byteValue;
+        while ((byteValue = this.inputStream.read()) >= 0) {
+            if (byteValue == '\r') {
+                int next = this.inputStream.read();
+                if (next < 0 || next == '\n') {
+                    break;
+                } else {
+                    throw new InvalidHttpRequestLineException("Illegal character after return");
+                }
+            } else if (byteValue == '\n'){
+                throw new InvalidHttpRequestLineException("Illegal character after return");
+            } else {
+                this.httpRequestLineStrings.append((char) byteValue);
+            }
+        }
+    }
+
+    // do not allow new line without preceding '\r'
+    private void readHttpHeaders() throws IOException, InvalidHttpHeaderException {
+        StringBuilder headersBuilder = new StringBuilder();
+        boolean wasNewLine = true;
+        int byteValue;
+        while ((byteValue = this.inputStream.read()) >= 0) {
+            if (byteValue == '\r') {
+                int next = this.inputStream.read();
+                if (next < 0 || next == '\n') {
+                    if (wasNewLine) break;
+                    this.httpRequestHeadersStrings.add(headersBuilder.toString());
+                    if (next < 0) break;
+                    headersBuilder = new StringBuilder();
+                    wasNewLine = true;
+                } else {
+                    throw new InvalidHttpHeaderException("Illegal character after return.");
+                }
+            } else if (byteValue == '\n') { // new line without preceding '\r'
+                throw new InvalidHttpHeaderException("Illegal character after return.");
+            } else {
+                headersBuilder.append((char) byteValue);
+                wasNewLine = false;
+            }
+        }
+        if (!headersBuilder.isEmpty()) {
+            this.httpRequestHeadersStrings.add(headersBuilder.toString());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+// Minimal keep-alive HTTP client for the end-to-end benchmark: sends one request at a time and reads the
+// response head and its Content-Length body, reconnecting when the server ends the connection (it closes
+// connections after jwebserver.maxKeepAliveRequests requests). It parses just enough to frame responses, so
+// the client side costs as little as possible next to the server being measured.
+class LoopbackClient implements Closeable {
+    private static final byte[] CONTENT_LENGTH = "content-length:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONNECTION_CLOSE = "connection: close".getBytes(StandardCharsets.US_ASCII);
+    private final int port;
+    private final byte[] request;
+    private final byte[] head;
+    private final byte[] body;
+    private Socket socket;
+    private OutputStream outputStream;
+    private InputStream inputStream;
+
+    LoopbackClient(int port, String request) {
+        this.port = port;
+        this.request = request.getBytes(StandardCharsets.US_ASCII);
+        this.head = new byte[8 * 1024];
+        this.body = new byte[64 * 1024];
+    }
+
+    // returns the status code of the response
+    int send() throws IOException {
+        if (this.socket == null) {
+            connect();
+        }
+        this.outputStream.write(this.request);
+        this.outputStream.flush();
+        int headLength = readHead();
+        int status = (this.head[9] - '0') * 100 + (this.head[10] - '0') * 10 + (this.head[11] - '0');
+        long remaining = contentLength(headLength);
+        while (remaining > 0) {
+            int read = this.inputStream.read(this.body, 0, (int) Math.min(remaining, this.body.length));
+            if (read < 0) {
+                throw new IOException("Connection closed in the middle of a response body");
+            }
+            remaining -= read;
+        }
+        if (indexOf(CONNECTION_CLOSE, headLength) >= 0) {
+            close();
+        }
+        return status;
+    }
+
+    private void connect() throws IOException {
+        this.socket = new Socket();
+        this.socket.setTcpNoDelay(true);
+        this.socket.connect(new InetSocketAddress("localhost", this.port));
+        this.outputStream = this.socket.getOutputStream();
+        this.inputStream = new BufferedInputStream(this.socket.getInputStream(), 64 * 1024);
+    }
+
+    // returns the length of the head, empty line included
+    private int readHead() throws IOException {
+        int length = 0;
+        while (length < 4 || this.head[length - 4] != '\r' || this.head[length - 3] != '\n'
+                || this.head[length - 2] != '\r' || this.head[length - 1] != '\n') {
+            if (length == this.head.length) {
+                throw new IOException("Response head too large");
+            }
+            int value = this.inputStream.read();
+            if (value < 0) {
+                throw new IOException("Connection closed before a complete response head");
+            }
+            this.head[length++] = (byte) value;
+        }
+        return length;
+    }
+
+    private long contentLength(int headLength) {
+        int index = indexOf(CONTENT_LENGTH, headLength);
+        if (index < 0) {
+            return 0;
+        }
+        long contentLength = 0;
+        for (int i = index + CONTENT_LENGTH.length; i < headLength; i++) {
+            byte value = this.head[i];
+            if (value >= '0' && value <= '9') {
+                contentLength = contentLength * 10 + (value - '0');
+            } else if (value != ' ') {
+                break;
+            }
+        }
+        return contentLength;
+    }
+
+    // case-insensitive search of a lowercase ASCII token in the head
+    private int indexOf(byte[] token, int headLength) {
+        for (int i = 0; i <= headLength - token.length; i++) {
+            int j = 0;
+            while (j < token.length && (this.head[i + j] | 0x20) == (token[j] | 0x20)) {
+                j++;
+            }
+            if (j == token.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.socket != null) {
+            this.socket.close();
+            this.socket = null;
+        }
+    }
+}
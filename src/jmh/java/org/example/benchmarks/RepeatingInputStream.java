@@ -0,0 +1,28 @@
+package org.example.benchmarks;
+
+import java.io.InputStream;
+
+// endless stream replaying the same bytes, as a keep-alive client sending the same request over and over
+class RepeatingInputStream extends InputStream {
+    private final byte[] bytes;
+    private int position;
+
+    RepeatingInputStream(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    @Override
+    public int read() {
+        int value = this.bytes[this.position] & 0xff;
+        this.position = (this.position + 1) % this.bytes.length;
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        int count = Math.min(length, this.bytes.length - this.position);
+        System.arraycopy(this.bytes, this.position, buffer, offset, count);
+        this.position = (this.position + count) % this.bytes.length;
+        return count;
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.benchmarks;
+
+import org.example.http.cache.CachedResource;
+import org.example.http.cache.StaticResponseCache;
+import org.example.http.errors.InvalidHttpRequestLineException;
+import org.example.http.util.PathValidator;
+import org.example.http.util.ResourceManager;
+import org.example.http.util.StaticResource;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// What a static GET costs before any byte is written: validating the request path, resolving it to a resource
+// and either finding the rendered response in the cache or opening the file on a miss. Uses the bundled
+// www/index.html; the path validation is also measured for a deep path and a traversal attempt, which is
+// rejected by an exception.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ResourceLookupBenchmark {
+    private static final String RESOURCE_PATH = "index.html";
+
+    private StaticResponseCache responseCache;
+
+    @State(Scope.Thread)
+    public static class RequestPath {
+        @Param({"/index.html", "/assets/css/vendor/bootstrap/5.3/bootstrap.min.css", "/../../etc/passwd"})
+        private String path;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        this.responseCache = new StaticResponseCache(1024 * 1024);
+        try (StaticResource staticResource = ResourceManager.getResourceContent(RESOURCE_PATH)) {
+            this.responseCache.put(RESOURCE_PATH, CachedResource.load(RESOURCE_PATH, staticResource, "text/html"));
+        }
+    }
+
+    @Benchmark
+    public String validatePath(RequestPath requestPath) {
+        try {
+            return PathValidator.validatePath(requestPath.path);
+        } catch (InvalidHttpRequestLineException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public CachedResource cacheHit() throws InvalidHttpRequestLineException {
+        return this.responseCache.get(ResourceManager.resolveResourcePath("/index.html"));
+    }
+
+    // a cache miss opens the file to read its length and validators, and closes it unused here
+    @Benchmark
+    public long openResource() throws IOException, InvalidHttpRequestLineException {
+        try (StaticResource staticResource = ResourceManager.getResourceContent(ResourceManager.resolveResourcePath("/index.html"))) {
+            return staticResource.getLength();
+        }
+    }
+}
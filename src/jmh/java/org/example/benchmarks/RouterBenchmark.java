@@ -0,0 +1,77 @@
+package org.example.benchmarks;
+
+import org.example.http.routing.RouteHandler;
+import org.example.http.routing.Router;
+import org.openjdk.jmh.annotations.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Route lookup in the trie against a linear scan of one regex per route, the usual first implementation of a
+// router. Routes look like a REST API: /api/v1/resource<i>, /api/v1/resource<i>/{id} and
+// /api/v1/resource<i>/{id}/items/{item}, plus the default GET /*. The trie should stay flat as routes grow.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RouterBenchmark {
+    private static final RouteHandler HANDLER = request -> null;
+
+    @Param({"30", "3000", "30000"})
+    private int routes;
+
+    private Router router;
+    private List<Pattern> patterns;
+    private String[] paths;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        this.router = Router.withDefaultRoutes();
+        this.patterns = new ArrayList<>();
+        for (int i = 0; i < this.routes / 3; i++) {
+            String resource = "/api/v1/resource" + i;
+            this.router.add("GET", resource, HANDLER);
+            this.router.add("GET", resource + "/{id}", HANDLER);
+            this.router.add("GET", resource + "/{id}/items/{item}", HANDLER);
+            this.patterns.add(Pattern.compile(Pattern.quote(resource)));
+            this.patterns.add(Pattern.compile(Pattern.quote(resource) + "/([^/]+)"));
+            this.patterns.add(Pattern.compile(Pattern.quote(resource) + "/([^/]+)/items/([^/]+)"));
+        }
+        this.patterns.add(Pattern.compile("/(.*)"));
+        int last = this.routes / 3 - 1;
+        // first, middle and last routes, and a static file falling through to the default route
+        this.paths = new String[] {
+                "/api/v1/resource0/17",
+                "/api/v1/resource" + last / 2 + "/17/items/3",
+                "/api/v1/resource" + last,
+                "/css/site.css"
+        };
+    }
+
+    private String nextPath() {
+        this.next = (this.next + 1) % this.paths.length;
+        return this.paths[this.next];
+    }
+
+    @Benchmark
+    public Router.Match trie() {
+        return this.router.match("GET", nextPath());
+    }
+
+    @Benchmark
+    public Matcher regexScan() {
+        String path = nextPath();
+        for (Pattern pattern : this.patterns) {
+            Matcher matcher = pattern.matcher(path);
+            if (matcher.matches()) {
+                return matcher;
+            }
+        }
+        return null;
+    }
+}
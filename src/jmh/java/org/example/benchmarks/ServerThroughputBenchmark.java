@@ -0,0 +1,88 @@
+package org.example.benchmarks;
+
+import org.example.BlockingHttpServer;
+import org.example.ExecutionMode;
+import org.example.ServerEngine;
+import org.example.ServerLifecycle;
+import org.example.nio.NioHttpServer;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import static org.example.http.HttpConfiguration.NIO_EVENT_LOOPS;
+
+// End to end over loopback: the server runs in the benchmark JVM on an ephemeral port, each benchmark thread
+// is a keep-alive client sending GET /index.html (served from the response cache) and waiting for the whole
+// response before sending the next. throughput gives requests per second over all threads, latency their
+// distribution (p50, p90, p99, p99.9...). Client and server share the machine, compare engines and
+// commits with each other rather than reading the numbers as absolute capacity.
+// Concurrency is the thread count, e.g. -t 64 for 64 connections. On the blocking engine every keep-alive
+// connection holds a worker, keep it within jwebserver.workerThreads (4 per core by default) or the extra
+// connections wait in the queue until another one is closed.
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class ServerThroughputBenchmark {
+    private static final String REQUEST = "GET /index.html HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        @Param({"BLOCKING", "NIO"})
+        private ServerEngine engine;
+
+        private ServerLifecycle server;
+        private int port;
+
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            this.server = switch (this.engine) {
+                case BLOCKING -> new BlockingHttpServer(0, ExecutionMode.BOUNDED_POOL);
+                case NIO -> new NioHttpServer(0, NIO_EVENT_LOOPS);
+            };
+            this.server.start();
+            this.port = this.server.getLocalPort();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws InterruptedException {
+            this.server.stopGracefully(5_000);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        private LoopbackClient loopbackClient;
+
+        @Setup(Level.Trial)
+        public void connect(Server server) {
+            this.loopbackClient = new LoopbackClient(server.port, REQUEST);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            this.loopbackClient.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int throughput(Client client) throws IOException {
+        return getCachedFile(client);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int latency(Client client) throws IOException {
+        return getCachedFile(client);
+    }
+
+    private static int getCachedFile(Client client) throws IOException {
+        int status = client.loopbackClient.send();
+        if (status != 200) {
+            throw new IllegalStateException("Unexpected response status " + status);
+        }
+        return status;
+    }
+}
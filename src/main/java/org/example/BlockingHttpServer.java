@@ -0,0 +1,123 @@
+package org.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.http.limit.ConnectionLimiter;
+import org.example.http.limit.Limit;
+import org.example.metrics.ServerMetrics;
+import org.example.nio.ServerChannels;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.example.http.HttpConfiguration.ACCEPTORS;
+
+// Blocking engine: ACCEPTORS threads accept connections (with SO_REUSEPORT each on its own listening socket) and
+// hand them to the connection executor, where a SocketHandler serves each one on its own thread.
+public class BlockingHttpServer implements ServerLifecycle {
+    private static final Logger logger = LogManager.getLogger(BlockingHttpServer.class);
+    private static final ServerMetrics metrics = ServerMetrics.get();
+    private static final ConnectionLimiter connectionLimiter = ConnectionLimiter.getInstance();
+    private final int port;
+    private final ConnectionExecutor connectionExecutor;
+    private final List<Thread> acceptorThreads;
+    private List<ServerSocketChannel> serverSocketChannels;
+
+    public BlockingHttpServer(int port, ExecutionMode executionMode) {
+        this.port = port;
+        this.connectionExecutor = ConnectionExecutor.create(executionMode);
+        this.acceptorThreads = new ArrayList<>();
+    }
+
+    @Override
+    public void start() throws IOException {
+        // blocking ServerSocketChannels instead of a ServerSocket, so that accepted sockets have a channel
+        try {
+            this.serverSocketChannels = ServerChannels.open(this.port, ACCEPTORS);
+        } catch (IOException | RuntimeException e) {
+            this.connectionExecutor.shutdown();
+            throw e;
+        }
+        metrics.connectionExecutorStarted(this.connectionExecutor);
+        for (int i = 0; i < ACCEPTORS; i++) {
+            int acceptor = i;
+            ServerSocketChannel serverSocketChannel = this.serverSocketChannels.get(i % this.serverSocketChannels.size());
+            // the acceptor threads keep the JVM alive
+            Thread acceptorThread = new Thread(() -> accept(serverSocketChannel, acceptor), "acceptor-" + (i + 1));
+            this.acceptorThreads.add(acceptorThread);
+            acceptorThread.start();
+        }
+    }
+
+    private void accept(ServerSocketChannel serverSocketChannel, int acceptor) {
+        while (true) {
+            try {
+                // listen continuously for connections, workers are bounded by the connection executor
+                SocketChannel server = serverSocketChannel.accept();
+                metrics.connectionAccepted(acceptor);
+                // counted before the hand-off, one over a cap is answered without taking a worker or a queue slot
+                InetAddress client = server.socket().getInetAddress();
+                Limit refusedBy = connectionLimiter.open(client);
+                if (refusedBy != null) {
+                    metrics.limitExceeded(refusedBy);
+                    ConnectionExecutor.reject(server.socket(), refusedBy.getStatus());
+                    continue;
+                }
+                try {
+                    ServerChannels.configure(server);
+                } catch (IOException e) {
+                    connectionLimiter.close(client);
+                    server.close();
+                    throw e;
+                }
+                if (!this.connectionExecutor.execute(server.socket())) {
+                    connectionLimiter.close(client);
+                }
+            } catch (ClosedChannelException e) {
+                // stopped
+                return;
+            } catch (IOException e) {
+                metrics.acceptFailed(acceptor);
+                logger.error("Error accepting connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        for (ServerSocketChannel serverSocketChannel : this.serverSocketChannels) {
+            try {
+                serverSocketChannel.close();
+            } catch (IOException e) {
+                logger.error("Error closing the server channel: {}", e.getMessage());
+            }
+        }
+        this.connectionExecutor.shutdown();
+        metrics.connectionExecutorStopped(this.connectionExecutor);
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread acceptorThread : this.acceptorThreads) {
+            acceptorThread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        return this.connectionExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void stopNow() {
+        this.connectionExecutor.shutdownNow();
+        metrics.connectionExecutorStopped(this.connectionExecutor);
+    }
+
+    @Override
+    public int getLocalPort() throws IOException {
+        return ((InetSocketAddress) this.serverSocketChannels.get(0).getLocalAddress()).getPort();
+    }
+}
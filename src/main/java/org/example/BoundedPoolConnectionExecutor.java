@@ -0,0 +1,89 @@
+package org.example;
+
+import org.example.metrics.ServerMetrics;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import static org.example.http.HttpConfiguration.WORKER_QUEUE_CAPACITY;
+import static org.example.http.HttpConfiguration.WORKER_THREADS;
+
+public class BoundedPoolConnectionExecutor implements ConnectionExecutor {
+    private static final ServerMetrics metrics = ServerMetrics.get();
+    private final ThreadPoolExecutor threadPoolExecutor;
+    private final LongAdder rejectedConnections;
+    private final ConnectionRegistry connections;
+
+    public BoundedPoolConnectionExecutor() {
+        this(WORKER_THREADS, WORKER_QUEUE_CAPACITY);
+    }
+
+    public BoundedPoolConnectionExecutor(int workerThreads, int queueCapacity) {
+        this.threadPoolExecutor = new ThreadPoolExecutor(
+                workerThreads,
+                workerThreads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new WorkerThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.rejectedConnections = new LongAdder();
+        this.connections = new ConnectionRegistry();
+    }
+
+    @Override
+    public boolean execute(Socket socket) {
+        try {
+            this.threadPoolExecutor.execute(new SocketHandler(socket, this.connections));
+            return true;
+        } catch (RejectedExecutionException e) {
+            this.rejectedConnections.increment();
+            metrics.connectionRejectedByExecutor();
+            ConnectionExecutor.reject(socket);
+            return false;
+        }
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return this.threadPoolExecutor.getQueue().size();
+    }
+
+    @Override
+    public long getRejectedConnections() {
+        return this.rejectedConnections.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        this.threadPoolExecutor.shutdown();
+        this.connections.drain();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.threadPoolExecutor.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void shutdownNow() {
+        this.connections.closeAll();
+        for (Runnable queued : this.threadPoolExecutor.shutdownNow()) {
+            ((SocketHandler) queued).closeQueued();
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "http-worker-" + this.threadNumber.incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.example;
+
+import org.example.http.HttpOutputBuffer;
+import org.example.http.HttpResponseStatus;
+import org.example.http.util.HttpResponseBuilder;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import static org.example.http.HttpConfiguration.DEFAULT_HTTP_VERSION;
+
+public interface ConnectionExecutor {
+    // hands the accepted socket to a worker, or answers 503 and closes it if there is no capacity left. false if it
+    // was rejected
+    boolean execute(Socket socket);
+
+    // connections accepted but not yet picked up by a worker
+    int getQueueDepth();
+
+    long getRejectedConnections();
+
+    // stops taking connections and drains the open ones: idle connections are closed, the others after their
+    // current response, queued ones are served a single request
+    void shutdown();
+
+    // true if every connection was closed before the timeout
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+
+    // closes the connections still open, queued ones included
+    void shutdownNow();
+
+    static ConnectionExecutor create(ExecutionMode executionMode) {
+        return switch (executionMode) {
+            case BOUNDED_POOL -> new BoundedPoolConnectionExecutor();
+            case VIRTUAL_THREAD -> new VirtualThreadConnectionExecutor();
+        };
+    }
+
+    static void reject(Socket socket) {
+        reject(socket, HttpResponseStatus.SERVICE_UNAVAILABLE);
+    }
+
+    // socket: blocking, closed afterwards
+    static void reject(Socket socket, HttpResponseStatus status) {
+        try (socket) {
+            HttpOutputBuffer outputBuffer = new HttpOutputBuffer(socket.getOutputStream());
+            HttpResponseBuilder
+                    .generateHttpErrorResponse(DEFAULT_HTTP_VERSION, status)
+                    .writeTo(outputBuffer);
+            outputBuffer.flush();
+        } catch (IOException ignored) {
+            // the client is gone already, nothing left to tell it
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.example;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Connections being served by a connection executor, so that stopping the server can drain them: once draining,
+// connections idle between requests are closed and the others close after their current response.
+class ConnectionRegistry {
+    private final Set<SocketHandler> connections;
+    private volatile boolean draining;
+
+    ConnectionRegistry() {
+        this.connections = ConcurrentHashMap.newKeySet();
+    }
+
+    void add(SocketHandler socketHandler) {
+        this.connections.add(socketHandler);
+    }
+
+    void remove(SocketHandler socketHandler) {
+        this.connections.remove(socketHandler);
+    }
+
+    boolean isDraining() {
+        return this.draining;
+    }
+
+    void drain() {
+        // set before looking at the connections, a connection becoming idle afterwards sees it and closes itself
+        this.draining = true;
+        for (SocketHandler socketHandler : this.connections) {
+            socketHandler.closeIfIdle();
+        }
+    }
+
+    // connections still open when the shutdown deadline is reached
+    void closeAll() {
+        for (SocketHandler socketHandler : this.connections) {
+            socketHandler.close();
+        }
+    }
+
+    int size() {
+        return this.connections.size();
+    }
+}
@@ -0,0 +1,8 @@
+package org.example;
+
+public enum ExecutionMode {
+    // fixed number of worker threads fed by a bounded queue, overflow answered with 503
+    BOUNDED_POOL,
+    // one virtual thread per connection (requires a JVM with virtual threads, Java 21+)
+    VIRTUAL_THREAD
+}
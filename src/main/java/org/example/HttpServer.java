@@ -1,32 +1,64 @@
 package org.example;
 
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.example.http.ConfigurationReloader;
+import org.example.http.HttpConfiguration;
+import org.example.http.util.AccessLog;
+import org.example.http.util.ResourceManager;
+import org.example.nio.NioHttpServer;
+import static org.example.http.HttpConfiguration.EXECUTION_MODE;
+import static org.example.http.HttpConfiguration.NIO_EVENT_LOOPS;
+import static org.example.http.HttpConfiguration.PORT;
+import static org.example.http.HttpConfiguration.SERVER_ENGINE;
+import static org.example.http.HttpConfiguration.SHUTDOWN_TIMEOUT_MILLIS;
 
 // HTTP/1.1 protocol: https://www.w3.org/Protocols/rfc2616/rfc2616.txt
 public class HttpServer {
     private static final Logger logger = LogManager.getLogger(HttpServer.class);
     public static void main(String[] args) {
-        try (ServerSocket serverSocket = new ServerSocket(80)) {
-            serveRequest(serverSocket);
-        } catch (IOException e) {
+        try {
+            HttpConfiguration.validate();
+        } catch (IllegalStateException e) {
+            logger.error(e.getMessage());
+            System.exit(1);
+        }
+        ConfigurationReloader.start();
+        ResourceManager.deleteAbandonedUploads();
+        ServerLifecycle server;
+        try {
+            server = switch (SERVER_ENGINE) {
+                case BLOCKING -> new BlockingHttpServer(PORT, EXECUTION_MODE);
+                case NIO -> new NioHttpServer(PORT, NIO_EVENT_LOOPS);
+            };
+            // the acceptor or event loop threads keep the JVM alive
+            server.start();
+        } catch (IOException | UnsupportedOperationException e) {
             logger.error("Error creating the server: {}", e.getMessage());
+            return;
         }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stop(server, AccessLog.getInstance());
+            // logging has its own shutdown hook disabled so that the lines above are written
+            LogManager.shutdown();
+        }, "shutdown"));
     }
 
-    private static void serveRequest (ServerSocket serverSocket){
-        while (true) {
-            try {
-                // listen continuously for connections
-                Socket server = serverSocket.accept();
-                Thread thread = new Thread(new SocketHandler(server));
-                thread.start();
-            } catch (IOException e) {
-                logger.error("Error accepting connection: {}", e.getMessage());
+    // on SIGTERM/SIGINT: in-flight requests get SHUTDOWN_TIMEOUT_MILLIS to complete, then the access log entries
+    // still buffered are written out. accessLog: null when there is none
+    public static void stop(ServerLifecycle server, AccessLog accessLog) {
+        logger.info("Stopping, draining connections for up to {} ms", SHUTDOWN_TIMEOUT_MILLIS);
+        try {
+            if (!server.stopGracefully(SHUTDOWN_TIMEOUT_MILLIS)) {
+                logger.warn("Connections still open after {} ms were closed", SHUTDOWN_TIMEOUT_MILLIS);
             }
+        } catch (InterruptedException e) {
+            server.stopNow();
+        }
+        if (accessLog != null) {
+            accessLog.close();
         }
+        logger.info("Stopped");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,8 @@
+package org.example;
+
+public enum ServerEngine {
+    // ServerSocket.accept + one blocking SocketHandler per connection, run by a ConnectionExecutor
+    BLOCKING,
+    // Selector based event loops, no thread is held by an idle connection
+    NIO
+}
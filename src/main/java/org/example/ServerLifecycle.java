@@ -0,0 +1,31 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Start and graceful stop of a server engine. Stopping closes the listening sockets, then drains the open
+// connections: idle ones are closed right away, busy ones answer their current request with Connection: close.
+public interface ServerLifecycle {
+    void start() throws IOException;
+
+    void stop();
+
+    // true if every connection was closed before the timeout
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+
+    // closes the connections still open
+    void stopNow();
+
+    // actual port, useful when the server was started on port 0
+    int getLocalPort() throws IOException;
+
+    // stop, then stopNow for whatever is still open at the deadline. Returns whether the drain completed in time
+    default boolean stopGracefully(long timeoutMillis) throws InterruptedException {
+        stop();
+        if (awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            return true;
+        }
+        stopNow();
+        return false;
+    }
+}
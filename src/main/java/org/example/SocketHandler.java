@@ -1,34 +1,152 @@
 package org.example;
 
-import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.example.http.HttpInputBuffer;
+import org.example.http.HttpOutputBuffer;
 import org.example.http.HttpRequestHandler;
 import org.example.http.HttpRequestParser;
-import java.io.IOException;
+import org.example.http.limit.ConnectionLimiter;
+import org.example.metrics.ServerMetrics;
+import java.io.*;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.example.http.HttpConfiguration.MAX_KEEP_ALIVE_REQUESTS;
 
 public class SocketHandler implements Runnable{
     private final Socket socket;
+    private final ConnectionRegistry connections;
+    // by the connection limiter in the accept loop, the count is released once the connection is closed
+    private final boolean counted;
+    private final AtomicReference<State> state;
+    // bytes of this connection already added to the metrics
+    private long bytesReceivedCounted;
+    private long bytesSentCounted;
     private static final Logger logger = LogManager.getLogger(SocketHandler.class);
+    private static final ServerMetrics metrics = ServerMetrics.get();
+    private static final ConnectionLimiter connectionLimiter = ConnectionLimiter.getInstance();
 
+    // NEW until the first request arrives, BUSY while one is served, IDLE between requests, CLOSED once drained
+    private enum State {NEW, BUSY, IDLE, CLOSED}
+
+    // for a socket accepted outside a server, not subject to the connection caps
     public SocketHandler(Socket socket) {
+        this(socket, new ConnectionRegistry(), false);
+    }
+
+    SocketHandler(Socket socket, ConnectionRegistry connections) {
+        this(socket, connections, true);
+    }
+
+    private SocketHandler(Socket socket, ConnectionRegistry connections, boolean counted) {
         this.socket = socket;
+        this.connections = connections;
+        this.counted = counted;
+        this.state = new AtomicReference<>(State.NEW);
     }
 
     @Override
     public void run() {
-        try {
-            logger.log(Level.INFO,"Thread number: {} running", Thread.currentThread().getId());
-            handleRequest();
-            // closes associated input/output streams as well
-            socket.close();
+        // closes associated input/output streams as well
+        metrics.connectionOpened();
+        this.connections.add(this);
+        try (socket) {
+            handleRequests();
         } catch (IOException e) {
             logger.error("Error in input socket stream: {}", e.getMessage());
+        } finally {
+            this.connections.remove(this);
+            releaseCount();
+            metrics.connectionClosed();
         }
     }
 
-    private void handleRequest() throws IOException {
-        new HttpRequestHandler(socket, new HttpRequestParser(socket.getInputStream())).generateHttpResponse();
+    // draining: a connection waiting for its next request reads end of stream and ends without error. New
+    // connections still get to send their first request, answered with Connection: close
+    void closeIfIdle() {
+        if (this.state.compareAndSet(State.IDLE, State.CLOSED)) {
+            try {
+                this.socket.shutdownInput();
+            } catch (IOException ignored) {
+                // already closed by the client
+            }
+        }
+    }
+
+    void close() {
+        this.state.set(State.CLOSED);
+        try {
+            this.socket.close();
+        } catch (IOException e) {
+            logger.error("Error closing connection: {}", e.getMessage());
+        }
+    }
+
+    // for a connection still queued when the executor stops, it never runs
+    void closeQueued() {
+        close();
+        releaseCount();
+    }
+
+    private void releaseCount() {
+        if (this.counted) {
+            connectionLimiter.close(this.socket.getInetAddress());
+        }
+    }
+
+    // serves requests until the client or the handler closes the connection, the connection
+    // stays idle for too long or it reaches the maximum number of requests. the input buffer bounds every
+    // read by the keep-alive, request head or body timeouts, so a slow client cannot hold the thread forever.
+    // pipelined requests are read back-to-back from the same buffered stream and answered in order;
+    // responses are only flushed once no further request is waiting, batching them into fewer writes
+    private void handleRequests() throws IOException {
+        HttpInputBuffer inputStream = new HttpInputBuffer(socket);
+        // sockets accepted from a ServerSocketChannel have a channel, file bodies are then sent with sendfile
+        HttpOutputBuffer outputStream = new HttpOutputBuffer(socket.getOutputStream(), socket.getChannel());
+        int requestsServed = 0;
+        boolean keepAlive = true;
+        try {
+            while (keepAlive && awaitNextRequest(inputStream) && startRequest()) {
+                boolean underLimit = ++requestsServed < MAX_KEEP_ALIVE_REQUESTS;
+                keepAlive = new HttpRequestHandler(socket, new HttpRequestParser(inputStream)).writeHttpResponse(
+                        outputStream, () -> underLimit && !this.connections.isDraining());
+                if (!keepAlive || inputStream.available() == 0) {
+                    outputStream.flush();
+                }
+                metrics.requestServed(requestsServed > 1);
+                countBytes(inputStream, outputStream);
+                // a drain that started while the request was served did not close this connection
+                this.state.compareAndSet(State.BUSY, State.IDLE);
+                keepAlive &= !this.connections.isDraining();
+            }
+            outputStream.flush();
+        } finally {
+            countBytes(inputStream, outputStream);
+        }
+    }
+
+    // counted once per request rather than per read or write, so that long-lived connections show up in the
+    // metrics before they close
+    private void countBytes(HttpInputBuffer inputStream, HttpOutputBuffer outputStream) {
+        metrics.bytesReceived(inputStream.getBytesReceived() - this.bytesReceivedCounted);
+        this.bytesReceivedCounted = inputStream.getBytesReceived();
+        metrics.bytesSent(outputStream.getBytesSent() - this.bytesSentCounted);
+        this.bytesSentCounted = outputStream.getBytesSent();
+    }
+
+    // false if the connection was drained just as the request arrived
+    private boolean startRequest() {
+        return this.state.getAndUpdate(state -> state == State.CLOSED ? state : State.BUSY) != State.CLOSED;
+    }
+
+    // false if the client closed the connection or sent nothing within the keep-alive timeout
+    private boolean awaitNextRequest(HttpInputBuffer inputStream) throws IOException {
+        try {
+            return inputStream.awaitRequest();
+        } catch (SocketTimeoutException e) {
+            metrics.keepAliveTimedOut();
+            return false;
+        }
     }
 }
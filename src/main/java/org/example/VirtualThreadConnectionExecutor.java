@@ -0,0 +1,96 @@
+package org.example;
+
+import java.lang.reflect.Method;
+import org.example.metrics.ServerMetrics;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import static org.example.http.HttpConfiguration.MAX_VIRTUAL_THREAD_CONNECTIONS;
+
+// the project still targets Java 17, so the virtual thread executor is looked up reflectively
+// and this mode only works when the server runs on a JVM that ships virtual threads (Java 21+)
+public class VirtualThreadConnectionExecutor implements ConnectionExecutor {
+    private static final ServerMetrics metrics = ServerMetrics.get();
+    private final ExecutorService executorService;
+    private final Semaphore connectionPermits;
+    private final LongAdder rejectedConnections;
+    private final ConnectionRegistry connections;
+
+    public VirtualThreadConnectionExecutor() {
+        this(MAX_VIRTUAL_THREAD_CONNECTIONS);
+    }
+
+    public VirtualThreadConnectionExecutor(int maxConnections) {
+        this.executorService = newVirtualThreadPerTaskExecutor();
+        this.connectionPermits = new Semaphore(maxConnections);
+        this.rejectedConnections = new LongAdder();
+        this.connections = new ConnectionRegistry();
+    }
+
+    @Override
+    public boolean execute(Socket socket) {
+        if (!this.connectionPermits.tryAcquire()) {
+            this.rejectedConnections.increment();
+            metrics.connectionRejectedByExecutor();
+            ConnectionExecutor.reject(socket);
+            return false;
+        }
+        try {
+            this.executorService.execute(() -> {
+                try {
+                    new SocketHandler(socket, this.connections).run();
+                } finally {
+                    this.connectionPermits.release();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            this.connectionPermits.release();
+            this.rejectedConnections.increment();
+            metrics.connectionRejectedByExecutor();
+            ConnectionExecutor.reject(socket);
+            return false;
+        }
+    }
+
+    // virtual threads start right away, nothing waits in a queue
+    @Override
+    public int getQueueDepth() {
+        return 0;
+    }
+
+    @Override
+    public long getRejectedConnections() {
+        return this.rejectedConnections.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        this.executorService.shutdown();
+        this.connections.drain();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.executorService.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void shutdownNow() {
+        this.connections.closeAll();
+        this.executorService.shutdownNow();
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not available on this JVM (Java 21+ required).", e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Body sink framing what is written with the chunked transfer coding. Small writes are gathered into
+// chunks of up to CHUNK_SIZE bytes, bigger ones become a chunk of their own; close writes the last chunk.
+class ChunkedOutputStream extends OutputStream {
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private final HttpOutputBuffer outputBuffer;
+    private final byte[] chunk;
+    private int count;
+    private boolean closed;
+
+    ChunkedOutputStream(HttpOutputBuffer outputBuffer) {
+        this.outputBuffer = outputBuffer;
+        this.chunk = new byte[CHUNK_SIZE];
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        if (this.count == this.chunk.length) {
+            writeChunk();
+        }
+        this.chunk[this.count++] = (byte) value;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (length > this.chunk.length - this.count) {
+            writeChunk();
+            if (length >= this.chunk.length) {
+                writeChunk(bytes, offset, length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, this.chunk, this.count, length);
+        this.count += length;
+    }
+
+    // sends what was written so far to the client
+    @Override
+    public void flush() throws IOException {
+        writeChunk();
+        this.outputBuffer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        writeChunk();
+        this.outputBuffer.write(LAST_CHUNK);
+    }
+
+    private void writeChunk() throws IOException {
+        writeChunk(this.chunk, 0, this.count);
+        this.count = 0;
+    }
+
+    private void writeChunk(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            // an empty chunk would end the body
+            return;
+        }
+        this.outputBuffer.write((Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        this.outputBuffer.write(bytes, offset, length);
+        this.outputBuffer.write(CRLF);
+    }
+}
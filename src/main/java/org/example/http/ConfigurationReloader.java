@@ -0,0 +1,107 @@
+package org.example.http;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.http.cache.StaticResponseCache;
+import org.example.http.limit.ConnectionLimiter;
+import org.example.http.limit.RateLimit;
+import org.example.http.limit.RateLimiter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import static org.example.http.HttpConfiguration.CONFIG_RELOAD_INTERVAL_MILLIS;
+
+// Checks the configuration file every CONFIG_RELOAD_INTERVAL_MILLIS and, when it was modified, applies the
+// settings that are safe to change under load: the static response cache budget, the request log rate and the
+// rate limits and connection caps.
+// Connections are left alone. Other changed settings are only logged, they take effect on the next start, and a
+// version of the file with invalid values is rejected as a whole.
+public class ConfigurationReloader {
+    private static final Logger logger = LogManager.getLogger(ConfigurationReloader.class);
+    private static final Set<String> RELOADABLE = Set.of(
+            "staticCacheMaxBytes", "requestLogMaxPerSecond", "clientRateLimit", "globalRateLimit", "routeRateLimits",
+            "maxConnectionsPerClient", "maxConnections");
+    private final Path file;
+    // every setting read at startup
+    private final Set<String> names;
+    private ConfigurationSource current;
+    private FileTime lastModified;
+
+    ConfigurationReloader(ConfigurationSource source) {
+        this.file = source.getFile();
+        this.names = Set.copyOf(source.getNames());
+        this.current = source;
+        this.lastModified = lastModified();
+    }
+
+    // watches the file in a daemon thread, unless reloading is disabled
+    public static void start() {
+        if (CONFIG_RELOAD_INTERVAL_MILLIS == 0) {
+            return;
+        }
+        ConfigurationReloader reloader = new ConfigurationReloader(HttpConfiguration.getSource());
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(CONFIG_RELOAD_INTERVAL_MILLIS);
+                    reloader.reloadIfModified();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "config-reloader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void reloadIfModified() {
+        FileTime modified = lastModified();
+        if (modified == null || modified.equals(this.lastModified)) {
+            return;
+        }
+        this.lastModified = modified;
+        reload(ConfigurationSource.load());
+    }
+
+    // true when the new settings were applied
+    boolean reload(ConfigurationSource source) {
+        long staticCacheMaxBytes = HttpConfiguration.staticCacheMaxBytes(source);
+        int requestLogMaxPerSecond = HttpConfiguration.requestLogMaxPerSecond(source);
+        RateLimit clientRateLimit = HttpConfiguration.clientRateLimit(source);
+        RateLimit globalRateLimit = HttpConfiguration.globalRateLimit(source);
+        Map<String, RateLimit> routeRateLimits = HttpConfiguration.routeRateLimits(source);
+        int maxConnectionsPerClient = HttpConfiguration.maxConnectionsPerClient(source);
+        int maxConnections = HttpConfiguration.maxConnections(source);
+        if (!source.getErrors().isEmpty()) {
+            logger.warn("Ignoring the new version of {}: {}", this.file, String.join("; ", source.getErrors()));
+            return false;
+        }
+        for (String name : this.names) {
+            if (!RELOADABLE.contains(name) && !Objects.equals(this.current.lookup(name), source.lookup(name))) {
+                logger.warn("jwebserver.{} changed in {}, restart the server to apply it", name, this.file);
+            }
+        }
+        StaticResponseCache.getInstance().setMaxBytes(staticCacheMaxBytes);
+        HttpRequestHandler.getErrorLogSampler().setMaxPerSecond(requestLogMaxPerSecond);
+        RateLimiter.getInstance().setLimits(clientRateLimit, globalRateLimit, routeRateLimits);
+        ConnectionLimiter.getInstance().setLimits(maxConnectionsPerClient, maxConnections);
+        logger.info("Reloaded {}: staticCacheMaxBytes={}, requestLogMaxPerSecond={}, clientRateLimit={}, globalRateLimit={}, "
+                        + "routeRateLimits={}, maxConnectionsPerClient={}, maxConnections={}",
+                this.file, staticCacheMaxBytes, requestLogMaxPerSecond, clientRateLimit, globalRateLimit, routeRateLimits,
+                maxConnectionsPerClient, maxConnections);
+        this.current = source;
+        return true;
+    }
+
+    private FileTime lastModified() {
+        try {
+            return Files.getLastModifiedTime(this.file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package org.example.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+// Where configuration values come from, the first one set wins: -Djwebserver.<name> system properties,
+// JWEBSERVER_<NAME> environment variables (jwebserver.workerThreads is JWEBSERVER_WORKER_THREADS), the
+// jwebserver.<name> entries of the properties file named by jwebserver.configFile (jwebserver.properties in the
+// working directory when it exists), then the default. A malformed or out of range value is recorded and replaced
+// by the default, so that validate() reports every bad setting at once.
+public class ConfigurationSource {
+    private static final String PREFIX = "jwebserver.";
+    private static final String CONFIG_FILE = PREFIX + "configFile";
+    private static final String DEFAULT_CONFIG_FILE = "jwebserver.properties";
+    private final Properties systemProperties;
+    private final Map<String, String> environment;
+    private final Path file;
+    private final Properties fileProperties;
+    private final Set<String> names;
+    private final List<String> errors;
+
+    public ConfigurationSource(Properties systemProperties, Map<String, String> environment) {
+        this.systemProperties = systemProperties;
+        this.environment = environment;
+        this.names = new LinkedHashSet<>();
+        this.errors = new ArrayList<>();
+        this.fileProperties = new Properties();
+        String configFile = lookup(CONFIG_FILE, false);
+        this.file = Path.of(configFile != null ? configFile : DEFAULT_CONFIG_FILE);
+        try (InputStream inputStream = Files.newInputStream(this.file)) {
+            this.fileProperties.load(inputStream);
+        } catch (NoSuchFileException e) {
+            // the default file is optional, one that was asked for is not
+            if (configFile != null) {
+                this.errors.add(CONFIG_FILE + ": " + this.file + " does not exist");
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            this.errors.add(CONFIG_FILE + ": cannot read " + this.file + ": " + e.getMessage());
+        }
+    }
+
+    public static ConfigurationSource load() {
+        return new ConfigurationSource(System.getProperties(), System.getenv());
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+
+    // raw value of jwebserver.<name>, null when not set anywhere
+    public String lookup(String name) {
+        return lookup(PREFIX + name, true);
+    }
+
+    private String lookup(String key, boolean fromFile) {
+        String value = this.systemProperties.getProperty(key);
+        if (value == null) {
+            value = this.environment.get(environmentVariable(key));
+        }
+        if (value == null && fromFile) {
+            value = this.fileProperties.getProperty(key);
+        }
+        return value != null ? value.trim() : null;
+    }
+
+    // jwebserver.maxRequestHeadSize -> JWEBSERVER_MAX_REQUEST_HEAD_SIZE
+    static String environmentVariable(String key) {
+        StringBuilder variable = new StringBuilder(key.length() + 8);
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '.') {
+                variable.append('_');
+            } else {
+                if (Character.isUpperCase(c)) {
+                    variable.append('_');
+                }
+                variable.append(Character.toUpperCase(c));
+            }
+        }
+        return variable.toString();
+    }
+
+    // names read so far, in order
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(this.names);
+    }
+
+    private String get(String name) {
+        this.names.add(name);
+        String value = lookup(name);
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    public String getString(String name, String defaultValue) {
+        this.names.add(name);
+        String value = lookup(name);
+        return value != null ? value : defaultValue;
+    }
+
+    public int getInt(String name, int defaultValue, int min) {
+        return (int) getLong(name, defaultValue, min, Integer.MAX_VALUE);
+    }
+
+    public int getInt(String name, int defaultValue, int min, int max) {
+        return (int) getLong(name, defaultValue, min, max);
+    }
+
+    public long getLong(String name, long defaultValue, long min) {
+        return getLong(name, defaultValue, min, Long.MAX_VALUE);
+    }
+
+    private long getLong(String name, long defaultValue, long min, long max) {
+        String value = get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            long number = Long.parseLong(value.replace("_", ""));
+            if (number >= min && number <= max) {
+                return number;
+            }
+            invalid(name, value, max == Long.MAX_VALUE || max == Integer.MAX_VALUE
+                    ? "must be at least " + min : "must be between " + min + " and " + max);
+        } catch (NumberFormatException e) {
+            invalid(name, value, "not a number");
+        }
+        return defaultValue;
+    }
+
+    public boolean getBoolean(String name, boolean defaultValue) {
+        String value = get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
+            return Boolean.parseBoolean(value);
+        }
+        invalid(name, value, "expected true or false");
+        return defaultValue;
+    }
+
+    public <E extends Enum<E>> E getEnum(String name, Class<E> type, E defaultValue) {
+        String value = get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            invalid(name, value, "expected one of " + Arrays.toString(type.getEnumConstants()));
+            return defaultValue;
+        }
+    }
+
+    // comma separated values
+    public List<String> getList(String name, List<String> defaultValue) {
+        String value = get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        List<String> values = new ArrayList<>();
+        for (String element : value.split(",")) {
+            if (!element.isBlank()) {
+                values.add(element.trim());
+            }
+        }
+        return List.copyOf(values);
+    }
+
+    // comma separated key=value pairs
+    public Map<String, String> getMap(String name, Map<String, String> defaultValue) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (String entry : getList(name, List.of())) {
+            int separator = entry.indexOf('=');
+            if (separator <= 0 || separator == entry.length() - 1) {
+                invalid(name, entry, "expected key=value");
+                return defaultValue;
+            }
+            map.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+        }
+        return map.isEmpty() ? defaultValue : Map.copyOf(map);
+    }
+
+    // records a constraint between values that the typed getters cannot check
+    public void require(boolean condition, String name, String message) {
+        if (!condition) {
+            this.errors.add(PREFIX + name + ": " + message);
+        }
+    }
+
+    private void invalid(String name, String value, String reason) {
+        this.errors.add(PREFIX + name + "=" + value + ": " + reason);
+    }
+
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(this.errors);
+    }
+
+    public void validate() {
+        if (!this.errors.isEmpty()) {
+            throw new IllegalStateException("Invalid configuration: " + String.join("; ", this.errors));
+        }
+    }
+}
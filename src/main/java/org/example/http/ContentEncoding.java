@@ -0,0 +1,150 @@
+package org.example.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Content codings the server can send. Declaration order is the server preference when the client
+// weighs several of them equally. Brotli has no encoder in the JDK: it is only served from
+// precompressed ".br" files, gzip also from ".gz" files when present.
+public enum ContentEncoding {
+    BROTLI("br", ".br"),
+    GZIP("gzip", ".gz"),
+    DEFLATE("deflate", null),
+    IDENTITY("identity", null);
+
+    private static final ContentEncoding[] ENCODINGS = values();
+    private final String token;
+    private final String fileSuffix;
+
+    ContentEncoding(String token, String fileSuffix) {
+        this.token = token;
+        this.fileSuffix = fileSuffix;
+    }
+
+    public String getToken() {
+        return this.token;
+    }
+
+    // suffix of precompressed sibling files, null if this coding is never precompressed
+    public String getFileSuffix() {
+        return this.fileSuffix;
+    }
+
+    public boolean canEncode() {
+        return this == GZIP || this == DEFLATE;
+    }
+
+    public byte[] encode(byte[] content) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(content.length / 2);
+        try (OutputStream encoder = newEncoder(encoded)) {
+            encoder.write(content);
+        }
+        return encoded.toByteArray();
+    }
+
+    // closing the encoder finishes the encoded stream and closes out
+    public OutputStream newEncoder(OutputStream out) throws IOException {
+        return switch (this) {
+            case GZIP -> new GZIPOutputStream(out, 8 * 1024);
+            // "deflate" in HTTP is the zlib format, which is what DeflaterOutputStream writes by default
+            case DEFLATE -> new DeflaterOutputStream(out, new Deflater(), 8 * 1024, false);
+            default -> throw new UnsupportedOperationException("Cannot encode content with " + this.token);
+        };
+    }
+
+    public static boolean isCompressible(String contentType) {
+        return contentType.startsWith("text/")
+                || contentType.startsWith("application/json")
+                || contentType.startsWith("application/javascript")
+                || contentType.startsWith("application/xml")
+                || contentType.startsWith("image/svg+xml");
+    }
+
+    // picks the coding with the highest q-value in Accept-Encoding among the available ones (RFC 7231, 5.3.4).
+    // identity is acceptable unless refused explicitly, and is also the answer when nothing else is
+    public static ContentEncoding negotiate(String acceptEncoding, Set<ContentEncoding> available) {
+        if (acceptEncoding == null || available.size() == 1) {
+            return IDENTITY;
+        }
+        double[] weights = new double[ENCODINGS.length];
+        Arrays.fill(weights, -1);
+        double wildcardWeight = -1;
+        int segmentStart = 0;
+        while (segmentStart < acceptEncoding.length()) {
+            int segmentEnd = acceptEncoding.indexOf(',', segmentStart);
+            if (segmentEnd < 0) {
+                segmentEnd = acceptEncoding.length();
+            }
+            int parametersStart = acceptEncoding.indexOf(';', segmentStart);
+            int nameEnd = parametersStart >= 0 && parametersStart < segmentEnd ? parametersStart : segmentEnd;
+            double weight = nameEnd < segmentEnd ? parseWeight(acceptEncoding, nameEnd, segmentEnd) : 1;
+            int nameStart = skipWhitespace(acceptEncoding, segmentStart, nameEnd);
+            nameEnd = trimWhitespace(acceptEncoding, nameStart, nameEnd);
+            if (nameEnd - nameStart == 1 && acceptEncoding.charAt(nameStart) == '*') {
+                wildcardWeight = weight;
+            } else {
+                for (ContentEncoding encoding : ENCODINGS) {
+                    if (encoding.matches(acceptEncoding, nameStart, nameEnd)) {
+                        weights[encoding.ordinal()] = weight;
+                    }
+                }
+            }
+            segmentStart = segmentEnd + 1;
+        }
+        ContentEncoding best = IDENTITY;
+        double bestWeight = 0;
+        for (ContentEncoding encoding : ENCODINGS) {
+            if (!available.contains(encoding)) {
+                continue;
+            }
+            double weight = weights[encoding.ordinal()];
+            if (weight < 0) {
+                weight = wildcardWeight >= 0 ? wildcardWeight : encoding == IDENTITY ? 1 : 0;
+            }
+            if (weight > bestWeight) {
+                best = encoding;
+                bestWeight = weight;
+            }
+        }
+        return best;
+    }
+
+    private boolean matches(String value, int start, int end) {
+        int length = end - start;
+        return (length == this.token.length() && value.regionMatches(true, start, this.token, 0, length))
+                || (this == GZIP && length == 6 && value.regionMatches(true, start, "x-gzip", 0, length));
+    }
+
+    // parameters look like ";q=0.5", anything unparsable keeps the default weight
+    private static double parseWeight(String value, int parametersStart, int parametersEnd) {
+        int qualityStart = value.indexOf("q=", parametersStart);
+        if (qualityStart < 0 || qualityStart >= parametersEnd) {
+            return 1;
+        }
+        try {
+            return Double.parseDouble(value.substring(qualityStart + 2, parametersEnd).trim());
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private static int skipWhitespace(String value, int from, int to) {
+        while (from < to && Character.isWhitespace(value.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimWhitespace(String value, int from, int to) {
+        while (to > from && Character.isWhitespace(value.charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+}
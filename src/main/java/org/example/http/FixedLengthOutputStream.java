@@ -0,0 +1,42 @@
+package org.example.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Body sink for a response whose Content-Length was announced: writing more, or closing it short,
+// fails rather than desynchronizing the connection
+class FixedLengthOutputStream extends OutputStream {
+    private final HttpOutputBuffer outputBuffer;
+    private long remaining;
+
+    FixedLengthOutputStream(HttpOutputBuffer outputBuffer, long contentLength) {
+        this.outputBuffer = outputBuffer;
+        this.remaining = contentLength;
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        write(new byte[]{(byte) value}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (length > this.remaining) {
+            throw new IOException("Response body longer than its Content-Length.");
+        }
+        this.outputBuffer.write(bytes, offset, length);
+        this.remaining -= length;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.outputBuffer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.remaining != 0) {
+            throw new IOException("Response body shorter than its Content-Length.");
+        }
+    }
+}
@@ -1,19 +1,184 @@
 package org.example.http;
 
+import org.example.ExecutionMode;
+import org.example.ServerEngine;
+import org.example.http.limit.RateLimit;
+import org.example.http.util.AccessLog;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+// Server settings, read once at startup from ConfigurationSource (system properties, environment variables, then
+// the jwebserver.properties file). Settings listed in ConfigurationReloader are also re-applied when the file changes.
 public class HttpConfiguration {
-    public static final List<String> ALLOWED_HTTP_VERSIONS = List.of(
-            "HTTP/0.9", "HTTP/1.0", "HTTP/1.1"
-    );
-    public static final List<String> ALLOWED_HOSTS = List.of(
+    private static final ConfigurationSource SOURCE = ConfigurationSource.load();
+    // versions the server can speak, ALLOWED_HTTP_VERSIONS can only narrow them
+    private static final List<String> SUPPORTED_HTTP_VERSIONS = List.of("HTTP/0.9", "HTTP/1.0", "HTTP/1.1");
+
+    public static final List<String> ALLOWED_HTTP_VERSIONS = SOURCE.getList("allowedHttpVersions", SUPPORTED_HTTP_VERSIONS);
+    public static final List<String> ALLOWED_HOSTS = SOURCE.getList("allowedHosts", List.of(
             "localhost", "127.0.0.1"
-    );
-    public static final Map<String,String> ALLOWED_CONTENT_TYPES = Map.of(
+    ));
+    // extension=content type pairs
+    public static final Map<String,String> ALLOWED_CONTENT_TYPES = SOURCE.getMap("contentTypes", Map.of(
             "json", "application/json", "html", "text/html"
-    );
+    ));
     public static final String DEFAULT_HTTP_VERSION = "HTTP/1.1";
+    // served files with an extension outside ALLOWED_CONTENT_TYPES
+    public static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    public static final int PORT = SOURCE.getInt("port", 80, 0, 65_535);
+    // pending connections the kernel queues before they are accepted, 0 for the JDK default
+    public static final int ACCEPT_BACKLOG = SOURCE.getInt("acceptBacklog", 0, 0);
+    // threads (blocking engine) or event loops (NIO engine) accepting connections. With REUSE_PORT each one has its
+    // own listening socket bound to the port and the kernel spreads new connections over them, otherwise they
+    // share a single one
+    public static final int ACCEPTORS = SOURCE.getInt("acceptors", 1, 1);
+    public static final boolean REUSE_PORT = SOURCE.getBoolean("reusePort", false);
+    public static final boolean TCP_NO_DELAY = SOURCE.getBoolean("tcpNoDelay", true);
+    // kernel buffers of accepted sockets, 0 for the system default
+    public static final int SOCKET_SEND_BUFFER_SIZE = SOURCE.getInt("socketSendBufferSize", 0, 0);
+    public static final int SOCKET_RECEIVE_BUFFER_SIZE = SOURCE.getInt("socketReceiveBufferSize", 0, 0);
+    // initial size of a connection's request buffer (it grows up to MAX_REQUEST_HEAD_SIZE) and of its response buffer
+    public static final int INPUT_BUFFER_SIZE = SOURCE.getInt("inputBufferSize", 8 * 1024, 256);
+    public static final int OUTPUT_BUFFER_SIZE = SOURCE.getInt("outputBufferSize", 8 * 1024, 256);
+
+    // connection execution
+    public static final ServerEngine SERVER_ENGINE = SOURCE.getEnum("serverEngine", ServerEngine.class, ServerEngine.BLOCKING);
+    public static final ExecutionMode EXECUTION_MODE = SOURCE.getEnum(
+            "executionMode", ExecutionMode.class, ExecutionMode.BOUNDED_POOL
+    );
+    public static final int WORKER_THREADS = SOURCE.getInt(
+            "workerThreads", Runtime.getRuntime().availableProcessors() * 4, 1
+    );
+    public static final int WORKER_QUEUE_CAPACITY = SOURCE.getInt("workerQueueCapacity", 1024, 1);
+    public static final int MAX_VIRTUAL_THREAD_CONNECTIONS = SOURCE.getInt("maxVirtualThreadConnections", 10_000, 1);
+    public static final int NIO_EVENT_LOOPS = SOURCE.getInt(
+            "nioEventLoops", Runtime.getRuntime().availableProcessors(), 1
+    );
+    // threads the NIO engine hands complete requests to, so that file and upload work never blocks an event loop
+    public static final int NIO_WORKER_THREADS = SOURCE.getInt(
+            "nioWorkerThreads", Runtime.getRuntime().availableProcessors() * 2, 1
+    );
+    // the NIO engine holds a request body in memory until it is complete, bigger ones are answered with 413 there
+    // (uploads larger than this need the blocking engine, which streams them to disk)
+    public static final long NIO_MAX_REQUEST_BODY_SIZE = SOURCE.getLong("nioMaxRequestBodySize", 1024 * 1024, 0);
+    public static final int KEEP_ALIVE_TIMEOUT_MILLIS = SOURCE.getInt("keepAliveTimeoutMillis", 5_000, 1);
+    // from the first byte of a request to the end of its headers, answered with 408 when exceeded
+    public static final int REQUEST_HEAD_TIMEOUT_MILLIS = SOURCE.getInt("requestHeadTimeoutMillis", 10_000, 1);
+    // longest silence while a request body is being received
+    public static final int REQUEST_BODY_TIMEOUT_MILLIS = SOURCE.getInt("requestBodyTimeoutMillis", 30_000, 1);
+    // bodies received slower than this on average, once the grace period is over, are answered with 408. 0 disables
+    public static final int MIN_REQUEST_BODY_BYTES_PER_SECOND = SOURCE.getInt("minRequestBodyBytesPerSecond", 512, 0);
+    public static final int REQUEST_BODY_RATE_GRACE_MILLIS = SOURCE.getInt("requestBodyRateGraceMillis", 5_000, 0);
+    public static final int MAX_KEEP_ALIVE_REQUESTS = SOURCE.getInt("maxKeepAliveRequests", 1_000, 1);
+    // static response cache budget, reloadable
+    public static final long STATIC_CACHE_MAX_BYTES = staticCacheMaxBytes(SOURCE);
+    // bigger files are not cached and sent zero-copy instead
+    public static final long STATIC_CACHE_MAX_ENTRY_BYTES = SOURCE.getLong("staticCacheMaxEntryBytes", 1024 * 1024, 0);
+    public static final long STATIC_CACHE_REVALIDATE_MILLIS = SOURCE.getLong("staticCacheRevalidateMillis", 2_000, 0);
+    // smaller responses are not compressed on the fly, precompressed files are served at any size
+    public static final int COMPRESSION_MIN_BYTES = SOURCE.getInt("compressionMinBytes", 1024, 0);
+    // Range headers asking for more ranges are ignored and the whole file is sent
+    public static final int MAX_BYTE_RANGES = SOURCE.getInt("maxByteRanges", 16, 1);
+    // request line and headers, bigger heads or more header lines are answered with 431
+    public static final int MAX_REQUEST_HEAD_SIZE = SOURCE.getInt("maxRequestHeadSize", 64 * 1024, 256);
+    public static final int MAX_REQUEST_HEADERS = SOURCE.getInt("maxRequestHeaders", 100, 1);
+    // bigger bodies are answered with 413, before any byte is read when the content-length is known
+    public static final long MAX_REQUEST_BODY_SIZE = SOURCE.getLong("maxRequestBodySize", 100L * 1024 * 1024, 0);
+    // path of the Prometheus metrics endpoint, empty to not mount it
+    public static final String METRICS_PATH = SOURCE.getString("metricsPath", "/metrics");
+    // per-request log lines (error responses) written per second at most, the others are only counted. Reloadable
+    public static final int REQUEST_LOG_MAX_PER_SECOND = requestLogMaxPerSecond(SOURCE);
+    // combined log format file the access log is appended to, empty for no access log
+    public static final String ACCESS_LOG_FILE = SOURCE.getString("accessLogFile", "");
+    // entries waiting for the access log writer, more are dropped or wait depending on the overflow policy
+    public static final int ACCESS_LOG_BUFFER_SIZE = SOURCE.getInt("accessLogBufferSize", 8192, 1);
+    public static final AccessLog.OverflowPolicy ACCESS_LOG_OVERFLOW_POLICY = SOURCE.getEnum(
+            "accessLogOverflowPolicy", AccessLog.OverflowPolicy.class, AccessLog.OverflowPolicy.DROP
+    );
+    // request rates as "requests per second[/burst]", per client address and for the whole server, empty for no
+    // limit. Over them requests get a 429 (client) or a 503 (server) with a Retry-After. Reloadable
+    public static final RateLimit CLIENT_RATE_LIMIT = clientRateLimit(SOURCE);
+    public static final RateLimit GLOBAL_RATE_LIMIT = globalRateLimit(SOURCE);
+    // per client on a route, "METHOD pattern=rate" pairs with the pattern as the route was added, e.g. "POST /*=1/5".
+    // Reloadable
+    public static final Map<String, RateLimit> ROUTE_RATE_LIMITS = routeRateLimits(SOURCE);
+    // clients tracked by each rate limit, idle ones are forgotten first
+    public static final int RATE_LIMIT_MAX_CLIENTS = SOURCE.getInt("rateLimitMaxClients", 65_536, 64);
+    // connections open at once per client address and for the whole server, 0 for no cap. Reloadable
+    public static final int MAX_CONNECTIONS_PER_CLIENT = maxConnectionsPerClient(SOURCE);
+    public static final int MAX_CONNECTIONS = maxConnections(SOURCE);
+    // on shutdown, how long in-flight requests get to complete before their connections are closed
+    public static final long SHUTDOWN_TIMEOUT_MILLIS = SOURCE.getLong("shutdownTimeoutMillis", 30_000, 0);
+    // how often the configuration file is checked for changes, 0 to never reload it
+    public static final long CONFIG_RELOAD_INTERVAL_MILLIS = SOURCE.getLong("configReloadIntervalMillis", 5_000, 0);
+
+    static {
+        SOURCE.require(SUPPORTED_HTTP_VERSIONS.containsAll(ALLOWED_HTTP_VERSIONS) && ALLOWED_HTTP_VERSIONS.contains(DEFAULT_HTTP_VERSION),
+                "allowedHttpVersions", "must be among " + SUPPORTED_HTTP_VERSIONS + " and include " + DEFAULT_HTTP_VERSION);
+        SOURCE.require(!ALLOWED_HOSTS.isEmpty(), "allowedHosts", "must not be empty");
+        SOURCE.require(METRICS_PATH.isEmpty() || METRICS_PATH.startsWith("/"), "metricsPath", "must start with /");
+    }
 
     private HttpConfiguration(){}
+
+    // fails with every invalid setting when the configuration cannot be used, to be called before serving
+    public static void validate() {
+        SOURCE.validate();
+    }
+
+    static ConfigurationSource getSource() {
+        return SOURCE;
+    }
+
+    // reloadable settings, read again from each new version of the file by ConfigurationReloader
+    static long staticCacheMaxBytes(ConfigurationSource source) {
+        return source.getLong("staticCacheMaxBytes", 64L * 1024 * 1024, 0);
+    }
+
+    static int requestLogMaxPerSecond(ConfigurationSource source) {
+        return source.getInt("requestLogMaxPerSecond", 10, 0);
+    }
+
+    static RateLimit clientRateLimit(ConfigurationSource source) {
+        return rateLimit(source, "clientRateLimit", source.getString("clientRateLimit", ""));
+    }
+
+    static RateLimit globalRateLimit(ConfigurationSource source) {
+        return rateLimit(source, "globalRateLimit", source.getString("globalRateLimit", ""));
+    }
+
+    static Map<String, RateLimit> routeRateLimits(ConfigurationSource source) {
+        Map<String, RateLimit> routeRateLimits = new LinkedHashMap<>();
+        source.getMap("routeRateLimits", Map.of()).forEach((route, spec) -> {
+            RateLimit rateLimit = rateLimit(source, "routeRateLimits", spec);
+            source.require(route.indexOf(' ') > 0, "routeRateLimits", route + ": expected METHOD pattern");
+            if (rateLimit != null) {
+                routeRateLimits.put(route, rateLimit);
+            }
+        });
+        return Map.copyOf(routeRateLimits);
+    }
+
+    static int maxConnectionsPerClient(ConfigurationSource source) {
+        return source.getInt("maxConnectionsPerClient", 0, 0);
+    }
+
+    static int maxConnections(ConfigurationSource source) {
+        return source.getInt("maxConnections", 0, 0);
+    }
+
+    // null for an empty spec or an invalid one, which is reported
+    private static RateLimit rateLimit(ConfigurationSource source, String name, String spec) {
+        if (spec.isBlank()) {
+            return null;
+        }
+        try {
+            return RateLimit.parse(spec);
+        } catch (IllegalArgumentException e) {
+            source.require(false, name, spec + ": " + e.getMessage());
+            return null;
+        }
+    }
 }
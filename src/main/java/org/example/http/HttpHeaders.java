@@ -0,0 +1,159 @@
+package org.example.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Request headers as sent, kept as offsets into the request bytes: the parser records where each name and
+// trimmed value start and end in the connection's input buffer, nothing is allocated per header. Before the
+// buffer can be overwritten (compacted to read more, or reused for the body) the parser detaches the
+// headers, copying the bytes they span into an array of their own once. Lookups compare names
+// case-insensitively against those bytes, and a value becomes a String when it is first asked for.
+// As a Map it is read-only, keyed by lowercase names, and get returns the first value of a repeated header;
+// getAll returns every value in the order received.
+public class HttpHeaders extends AbstractMap<String, String> {
+    // per header: name start, name end, value start, value end
+    private static final int FIELDS = 4;
+    private byte[] bytes;
+    // false while bytes is the input buffer
+    private boolean detached;
+    private int length;
+    private int[] offsets = new int[12 * FIELDS];
+    private int count;
+    private String[] values;
+    private Set<Entry<String, String>> entrySet;
+
+    // buffer: the input buffer the previous headers were added from, or a grown copy of it with the same
+    // content at the same indexes
+    void add(byte[] buffer, int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if ((this.count + 1) * FIELDS > this.offsets.length) {
+            this.offsets = Arrays.copyOf(this.offsets, this.offsets.length * 2);
+        }
+        int field = this.count * FIELDS;
+        if (this.detached) {
+            int nameLength = nameEnd - nameStart;
+            int valueLength = valueEnd - valueStart;
+            if (this.length + nameLength + valueLength > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.length + nameLength + valueLength));
+            }
+            System.arraycopy(buffer, nameStart, this.bytes, this.length, nameLength);
+            System.arraycopy(buffer, valueStart, this.bytes, this.length + nameLength, valueLength);
+            nameStart = this.length;
+            nameEnd = nameStart + nameLength;
+            valueStart = nameEnd;
+            valueEnd = valueStart + valueLength;
+            this.length = valueEnd;
+        } else {
+            this.bytes = buffer;
+        }
+        this.offsets[field] = nameStart;
+        this.offsets[field + 1] = nameEnd;
+        this.offsets[field + 2] = valueStart;
+        this.offsets[field + 3] = valueEnd;
+        this.count++;
+        this.entrySet = null;
+    }
+
+    // copies the bytes spanned by the headers out of the input buffer, which may be overwritten afterwards
+    void detach() {
+        if (this.detached) {
+            return;
+        }
+        this.detached = true;
+        if (this.count == 0) {
+            this.bytes = new byte[64];
+            return;
+        }
+        int start = this.offsets[0];
+        int end = this.offsets[(this.count - 1) * FIELDS + 3];
+        this.bytes = Arrays.copyOfRange(this.bytes, start, end);
+        this.length = end - start;
+        for (int i = 0; i < this.count * FIELDS; i++) {
+            this.offsets[i] -= start;
+        }
+    }
+
+    @Override
+    public String get(Object name) {
+        int index = name instanceof String headerName ? indexOf(headerName, 0) : -1;
+        return index >= 0 ? value(index) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return name instanceof String headerName && indexOf(headerName, 0) >= 0;
+    }
+
+    public List<String> getAll(String name) {
+        int index = indexOf(name, 0);
+        if (index < 0) {
+            return List.of();
+        }
+        List<String> values = new ArrayList<>(1);
+        for (; index >= 0; index = indexOf(name, index + 1)) {
+            values.add(value(index));
+        }
+        return values;
+    }
+
+    // header lines received, repeated names included
+    public int count() {
+        return this.count;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        if (this.entrySet == null) {
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (int i = 0; i < this.count; i++) {
+                int field = i * FIELDS;
+                headers.putIfAbsent(
+                        HttpTokens.headerName(this.bytes, this.offsets[field], this.offsets[field + 1] - this.offsets[field]),
+                        value(i));
+            }
+            this.entrySet = Collections.unmodifiableMap(headers).entrySet();
+        }
+        return this.entrySet;
+    }
+
+    private String value(int index) {
+        if (this.values == null) {
+            this.values = new String[this.count];
+        } else if (this.values.length < this.count) {
+            this.values = Arrays.copyOf(this.values, this.count);
+        }
+        if (this.values[index] == null) {
+            int field = index * FIELDS;
+            this.values[index] = new String(
+                    this.bytes, this.offsets[field + 2], this.offsets[field + 3] - this.offsets[field + 2], StandardCharsets.ISO_8859_1);
+        }
+        return this.values[index];
+    }
+
+    private int indexOf(String name, int from) {
+        for (int i = from; i < this.count; i++) {
+            int field = i * FIELDS;
+            int nameStart = this.offsets[field];
+            if (this.offsets[field + 1] - nameStart == name.length() && nameEquals(nameStart, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean nameEquals(int nameStart, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (HttpTokens.toLowerCase(this.bytes[nameStart + i]) != (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,230 @@
+package org.example.http;
+
+import org.example.http.errors.HttpRequestTimeoutException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import static org.example.http.HttpConfiguration.INPUT_BUFFER_SIZE;
+import static org.example.http.HttpConfiguration.KEEP_ALIVE_TIMEOUT_MILLIS;
+import static org.example.http.HttpConfiguration.MIN_REQUEST_BODY_BYTES_PER_SECOND;
+import static org.example.http.HttpConfiguration.REQUEST_BODY_RATE_GRACE_MILLIS;
+import static org.example.http.HttpConfiguration.REQUEST_BODY_TIMEOUT_MILLIS;
+import static org.example.http.HttpConfiguration.REQUEST_HEAD_TIMEOUT_MILLIS;
+
+// Buffered view of a connection input, created once per connection and reused by every request on it.
+// HttpRequestParser scans request lines and headers directly in the byte array; body readers use it as a
+// plain InputStream. Bytes read past the end of one request stay buffered for the next one.
+// On a socket, reads are bounded by the phase of the request they belong to: the keep-alive timeout while
+// waiting for a request, one deadline for its whole head (a client trickling one byte at a time does not
+// extend it), and for a body both a timeout per read and a minimum average transfer rate.
+public class HttpInputBuffer extends InputStream {
+    private final InputStream inputStream;
+    // null for in-memory streams, no timeouts are enforced then
+    private final Socket socket;
+    private final int maxBufferSize;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private long bytesReceived;
+    private Phase phase;
+    private long headDeadlineNanos;
+    private long bodyStartNanos;
+    private long bodyBytesReceived;
+
+    private enum Phase { IDLE, HEAD, BODY }
+
+    public HttpInputBuffer(InputStream inputStream) {
+        this(inputStream, HttpConfiguration.MAX_REQUEST_HEAD_SIZE);
+    }
+
+    public HttpInputBuffer(InputStream inputStream, int maxBufferSize) {
+        this(inputStream, null, maxBufferSize);
+    }
+
+    public HttpInputBuffer(Socket socket) throws IOException {
+        this(socket.getInputStream(), socket, HttpConfiguration.MAX_REQUEST_HEAD_SIZE);
+    }
+
+    private HttpInputBuffer(InputStream inputStream, Socket socket, int maxBufferSize) {
+        this.inputStream = inputStream;
+        this.socket = socket;
+        this.maxBufferSize = Math.max(maxBufferSize, INPUT_BUFFER_SIZE);
+        this.buffer = new byte[INPUT_BUFFER_SIZE];
+        this.phase = Phase.IDLE;
+    }
+
+    // blocks until the first byte of the next request, at most the keep-alive timeout (SocketTimeoutException),
+    // and starts the deadline of its head. false on end of stream
+    public boolean awaitRequest() throws IOException {
+        this.phase = Phase.IDLE;
+        if (this.socket != null) {
+            this.socket.setSoTimeout(KEEP_ALIVE_TIMEOUT_MILLIS);
+        }
+        if (!awaitData()) {
+            return false;
+        }
+        this.phase = Phase.HEAD;
+        this.headDeadlineNanos = System.nanoTime() + REQUEST_HEAD_TIMEOUT_MILLIS * 1_000_000L;
+        return true;
+    }
+
+    // the bytes read from now on are a request body. those already buffered do not count towards its rate
+    void startBody() throws IOException {
+        this.phase = Phase.BODY;
+        this.bodyStartNanos = System.nanoTime();
+        this.bodyBytesReceived = 0;
+        if (this.socket != null) {
+            this.socket.setSoTimeout(REQUEST_BODY_TIMEOUT_MILLIS);
+        }
+    }
+
+    // read from the underlying stream so far, buffered bytes included
+    public long getBytesReceived() {
+        return this.bytesReceived;
+    }
+
+    byte[] array() {
+        return this.buffer;
+    }
+
+    int position() {
+        return this.position;
+    }
+
+    int limit() {
+        return this.limit;
+    }
+
+    void skip(int count) {
+        this.position += count;
+    }
+
+    // reads more bytes after the buffered ones, moving them to the front or growing the buffer when full.
+    // indexes into array() are invalidated. returns the number of bytes read, -1 on end of stream
+    // and 0 if the buffer is already full at its maximum size
+    int fill() throws IOException {
+        if (this.limit == this.buffer.length) {
+            if (this.position > 0) {
+                System.arraycopy(this.buffer, this.position, this.buffer, 0, this.limit - this.position);
+                this.limit -= this.position;
+                this.position = 0;
+            } else if (this.buffer.length < this.maxBufferSize) {
+                byte[] grownBuffer = new byte[Math.min(this.buffer.length * 2, this.maxBufferSize)];
+                System.arraycopy(this.buffer, 0, grownBuffer, 0, this.limit);
+                this.buffer = grownBuffer;
+            } else {
+                return 0;
+            }
+        }
+        int read = receive(this.buffer, this.limit, this.buffer.length - this.limit);
+        if (read > 0) {
+            this.limit += read;
+        }
+        return read;
+    }
+
+    // blocks until at least one byte is buffered, false on end of stream
+    public boolean awaitData() throws IOException {
+        if (this.position < this.limit) {
+            return true;
+        }
+        this.position = 0;
+        this.limit = 0;
+        int read = receive(this.buffer, 0, this.buffer.length);
+        if (read < 0) {
+            return false;
+        }
+        this.limit = read;
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!awaitData()) {
+            return -1;
+        }
+        return this.buffer[this.position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int buffered = this.limit - this.position;
+        if (buffered == 0) {
+            // large reads (request bodies) bypass the buffer
+            if (length >= this.buffer.length) {
+                return receive(bytes, offset, length);
+            }
+            if (!awaitData()) {
+                return -1;
+            }
+            buffered = this.limit - this.position;
+        }
+        int count = Math.min(buffered, length);
+        System.arraycopy(this.buffer, this.position, bytes, offset, count);
+        this.position += count;
+        return count;
+    }
+
+    // every read from the underlying stream goes through here, within the timeouts of the current phase
+    private int receive(byte[] bytes, int offset, int length) throws IOException {
+        if (this.phase == Phase.HEAD && this.socket != null) {
+            long remainingMillis = (this.headDeadlineNanos - System.nanoTime()) / 1_000_000;
+            if (remainingMillis <= 0) {
+                throw headTimeout();
+            }
+            this.socket.setSoTimeout((int) Math.min(remainingMillis, Integer.MAX_VALUE));
+        }
+        int read;
+        try {
+            read = this.inputStream.read(bytes, offset, length);
+        } catch (SocketTimeoutException e) {
+            throw switch (this.phase) {
+                case IDLE -> e;
+                case HEAD -> headTimeout();
+                case BODY -> new HttpRequestTimeoutException(HttpRequestTimeoutException.Reason.BODY,
+                        "No request body received for " + REQUEST_BODY_TIMEOUT_MILLIS + " ms.");
+            };
+        }
+        if (read > 0) {
+            this.bytesReceived += read;
+            if (this.phase == Phase.BODY) {
+                checkBodyRate(read);
+            }
+        }
+        return read;
+    }
+
+    private static HttpRequestTimeoutException headTimeout() {
+        return new HttpRequestTimeoutException(HttpRequestTimeoutException.Reason.HEAD,
+                "Request head not received within " + REQUEST_HEAD_TIMEOUT_MILLIS + " ms.");
+    }
+
+    private void checkBodyRate(int read) throws HttpRequestTimeoutException {
+        this.bodyBytesReceived += read;
+        if (this.socket == null || MIN_REQUEST_BODY_BYTES_PER_SECOND <= 0) {
+            return;
+        }
+        long elapsedMillis = (System.nanoTime() - this.bodyStartNanos) / 1_000_000;
+        if (elapsedMillis > REQUEST_BODY_RATE_GRACE_MILLIS
+                && this.bodyBytesReceived * 1000 < (long) MIN_REQUEST_BODY_BYTES_PER_SECOND * elapsedMillis) {
+            throw new HttpRequestTimeoutException(HttpRequestTimeoutException.Reason.BODY_RATE,
+                    "Request body received slower than " + MIN_REQUEST_BODY_BYTES_PER_SECOND + " bytes per second.");
+        }
+    }
+
+    // buffered bytes if any, so that checking for pipelined requests does not cost a system call
+    @Override
+    public int available() throws IOException {
+        int buffered = this.limit - this.position;
+        return buffered > 0 ? buffered : this.inputStream.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.inputStream.close();
+    }
+}
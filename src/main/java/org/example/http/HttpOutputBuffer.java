@@ -0,0 +1,136 @@
+package org.example.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import static org.example.http.HttpConfiguration.OUTPUT_BUFFER_SIZE;
+
+// Buffered view of a connection output, the counterpart of HttpInputBuffer. Response heads and small bodies
+// are collected in one byte array so they leave in a single write; file bodies too big for the buffer are
+// sent with FileChannel.transferTo straight to the socket channel (sendfile), without copying them to the heap.
+public class HttpOutputBuffer extends OutputStream {
+    private final OutputStream outputStream;
+    private final WritableByteChannel channel;
+    private final byte[] buffer;
+    private int count;
+    private long bytesSent;
+    private long bytesWritten;
+
+    public HttpOutputBuffer(OutputStream outputStream) {
+        this(outputStream, null);
+    }
+
+    // for subclasses overriding writeOut, transferOut and flush with their own destination
+    protected HttpOutputBuffer() {
+        this(null, null);
+    }
+
+    // channel: the socket channel behind outputStream, if any. without it file bodies are copied
+    public HttpOutputBuffer(OutputStream outputStream, WritableByteChannel channel) {
+        this.outputStream = outputStream;
+        this.channel = channel;
+        this.buffer = new byte[OUTPUT_BUFFER_SIZE];
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        if (this.count == this.buffer.length) {
+            flushBuffer();
+        }
+        this.buffer[this.count++] = (byte) value;
+        this.bytesWritten++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        this.bytesWritten += length;
+        if (length > this.buffer.length - this.count) {
+            flushBuffer();
+            if (length >= this.buffer.length) {
+                writeOut(bytes, offset, length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, this.buffer, this.count, length);
+        this.count += length;
+    }
+
+    // for bytes that are never modified afterwards (cached responses): destinations that queue instead of
+    // writing may then keep a reference instead of a copy
+    public void writeShared(byte[] bytes, int offset, int length) throws IOException {
+        write(bytes, offset, length);
+    }
+
+    // writes count bytes of the file starting at position
+    public void transferFrom(FileChannel fileChannel, long position, long count) throws IOException {
+        this.bytesWritten += count;
+        if (count <= this.buffer.length - this.count) {
+            // small enough to go out with the head, saves a system call and a tiny extra segment
+            ByteBuffer target = ByteBuffer.wrap(this.buffer, this.count, (int) count);
+            while (target.hasRemaining()) {
+                if (fileChannel.read(target, position + target.position() - this.count) < 0) {
+                    throw new IOException("File shorter than expected.");
+                }
+            }
+            this.count += (int) count;
+            return;
+        }
+        flushBuffer();
+        transferOut(fileChannel, position, count);
+    }
+
+    // written to the underlying stream so far, by this class' writeOut and transferOut
+    public long getBytesSent() {
+        return this.bytesSent;
+    }
+
+    // handed to this buffer so far, whether already sent or not
+    public long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    // for subclasses taking bytes without going through write or transferFrom
+    protected void addBytesWritten(long count) {
+        this.bytesWritten += count;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        this.outputStream.flush();
+    }
+
+    protected void flushBuffer() throws IOException {
+        if (this.count > 0) {
+            writeOut(this.buffer, 0, this.count);
+            this.count = 0;
+        }
+    }
+
+    protected void writeOut(byte[] bytes, int offset, int length) throws IOException {
+        this.outputStream.write(bytes, offset, length);
+        this.bytesSent += length;
+    }
+
+    protected void transferOut(FileChannel fileChannel, long position, long count) throws IOException {
+        WritableByteChannel target = this.channel != null ? this.channel : Channels.newChannel(this.outputStream);
+        long end = position + count;
+        while (position < end) {
+            long transferred = fileChannel.transferTo(position, end - position, target);
+            if (transferred <= 0 && position >= fileChannel.size()) {
+                throw new IOException("File shorter than expected.");
+            }
+            position += transferred;
+            this.bytesSent += transferred;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        this.outputStream.close();
+    }
+}
@@ -2,91 +2,300 @@ package org.example.http;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.example.http.errors.HttpHeaderFieldsTooLargeException;
+import org.example.http.errors.HttpPayloadTooLargeException;
+import org.example.http.errors.HttpRequestTimeoutException;
+import org.example.http.errors.HttpTransferCodingNotImplementedException;
 import org.example.http.errors.InvalidHttpHeaderException;
 import org.example.http.errors.InvalidHttpRequestException;
 import org.example.http.errors.InvalidHttpRequestLineException;
+import org.example.http.cache.CachedResource;
+import org.example.http.cache.CachedResponse;
+import org.example.http.cache.StaticResponseCache;
+import org.example.http.limit.RateLimiter;
+import org.example.http.routing.RouteRequest;
+import org.example.http.routing.Router;
+import org.example.http.util.AccessLog;
+import org.example.http.util.ByteRange;
+import org.example.http.util.ConditionalRequest;
 import org.example.http.util.HttpResponseBuilder;
 import org.example.http.util.HttpValidator;
+import org.example.http.util.LogSampler;
+import org.example.http.util.PartialContent;
 import org.example.http.util.ResourceManager;
+import org.example.http.util.ResourceUpload;
+import org.example.http.util.StaticResource;
+import org.example.metrics.ServerMetrics;
 import java.io.*;
+import java.net.InetAddress;
 import java.net.Socket;
+import java.nio.file.attribute.FileTime;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
 import static org.example.http.HttpConfiguration.ALLOWED_CONTENT_TYPES;
+import static org.example.http.HttpConfiguration.DEFAULT_CONTENT_TYPE;
 import static org.example.http.HttpConfiguration.DEFAULT_HTTP_VERSION;
+import static org.example.http.HttpConfiguration.REQUEST_LOG_MAX_PER_SECOND;
+import static org.example.http.HttpConfiguration.STATIC_CACHE_MAX_ENTRY_BYTES;
 
 public class HttpRequestHandler {
     private final Socket socket;
-    private StringBuilder httpResponse;
+    // of the client, when there is no socket to ask
+    private final InetAddress remoteAddress;
+    private HttpResponse httpResponse;
+    private StaticResource httpResponseBody;
+    private PartialContent partialContent;
+    private StreamingResponse streamingResponse;
+    private CachedResponse cachedResponse;
+    private String cachedResponseHttpVersion;
     private final HttpRequestParser httpRequestParser;
+    private boolean keepAlive;
     private static final Logger logger = LogManager.getLogger(HttpRequestHandler.class);
+    private static final StaticResponseCache responseCache = StaticResponseCache.getInstance();
+    private static final Router router = Router.getInstance();
+    private static final ServerMetrics metrics = ServerMetrics.get();
+    private static final LogSampler errorLogSampler = new LogSampler(REQUEST_LOG_MAX_PER_SECOND);
+    private static final AccessLog accessLog = AccessLog.getInstance();
+    private static final RateLimiter rateLimiter = RateLimiter.getInstance();
+
+    // for ConfigurationReloader
+    static LogSampler getErrorLogSampler() {
+        return errorLogSampler;
+    }
 
     public HttpRequestHandler(Socket socket, HttpRequestParser httpRequestParser) {
+        this(socket, httpRequestParser, null);
+    }
+
+    // used by engines that do not own a blocking socket (e.g. NIO), see writeHttpResponse
+    public HttpRequestHandler(HttpRequestParser httpRequestParser) {
+        this(null, httpRequestParser, null);
+    }
+
+    public HttpRequestHandler(HttpRequestParser httpRequestParser, InetAddress remoteAddress) {
+        this(null, httpRequestParser, remoteAddress);
+    }
+
+    private HttpRequestHandler(Socket socket, HttpRequestParser httpRequestParser, InetAddress remoteAddress) {
         this.socket = socket;
         this.httpRequestParser = httpRequestParser;
-        this.httpResponse = new StringBuilder();
+        this.remoteAddress = remoteAddress;
     }
 
+    // single request, the socket output is closed afterwards
     public void generateHttpResponse(){
-        try(
-            BufferedWriter bufferedWriter = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()))
-        ) {
-            try {
-                HttpRequestLine httpRequestLine = this.httpRequestParser.parseHttpRequestLine();
-                Map<String, String> httpRequestHeaders = this.httpRequestParser.parseHttpRequestHeaders();
-                handleRequests(httpRequestLine, httpRequestHeaders);
-            } catch (InvalidHttpRequestException e) {
-                generateErrorResponse(e.getMessage(), DEFAULT_HTTP_VERSION, HttpResponseStatus.BAD_REQUEST);
-            } catch (Exception e) {
-                generateErrorResponse(e.getMessage(), DEFAULT_HTTP_VERSION, HttpResponseStatus.INTERNAL_SERVER_ERROR);
-            }
-            bufferedWriter.write(String.valueOf(this.httpResponse));
-            bufferedWriter.flush();
+        try(OutputStream outputStream = socket.getOutputStream()) {
+            writeHttpResponse(outputStream, false);
+            outputStream.flush();
         } catch (IOException e) {
             logger.error("Error in output socket stream: {}", e.getMessage());
         }
     }
 
+    // parses one request and writes its response, leaving the output stream open and unflushed so that
+    // responses to pipelined requests can be batched by the caller. pass the connection's HttpOutputBuffer
+    // (built on the socket channel) to have file bodies sent zero-copy.
+    // returns whether the connection can be reused for another request
+    public boolean writeHttpResponse(OutputStream outputStream, boolean allowKeepAlive) throws IOException {
+        return writeHttpResponse(outputStream, () -> allowKeepAlive);
+    }
+
+    // allowKeepAlive is asked again before the response is written, a connection can stop taking requests
+    // (the server is stopping) while the body of this one is received
+    public boolean writeHttpResponse(OutputStream outputStream, BooleanSupplier allowKeepAlive) throws IOException {
+        HttpOutputBuffer outputBuffer = outputStream instanceof HttpOutputBuffer httpOutputBuffer
+                ? httpOutputBuffer
+                : new HttpOutputBuffer(outputStream);
+        this.keepAlive = false;
+        this.httpResponseBody = null;
+        this.partialContent = null;
+        this.streamingResponse = null;
+        this.cachedResponse = null;
+        long startMillis = accessLog != null ? System.currentTimeMillis() : 0;
+        long bytesWrittenBefore = outputBuffer.getBytesWritten();
+        HttpRequestLine httpRequestLine = null;
+        Map<String, String> httpRequestHeaders = null;
+        try {
+            long parseStart = System.nanoTime();
+            httpRequestLine = this.httpRequestParser.parseHttpRequestLine();
+            httpRequestHeaders = this.httpRequestParser.parseHttpRequestHeaders();
+            long handlerStart = System.nanoTime();
+            metrics.parseTime(handlerStart - parseStart);
+            this.keepAlive = allowKeepAlive.getAsBoolean() && isPersistentConnection(httpRequestLine, httpRequestHeaders);
+            handleRequests(httpRequestLine, httpRequestHeaders);
+            metrics.handlerTime(System.nanoTime() - handlerStart);
+        } catch (HttpPayloadTooLargeException e) {
+            this.keepAlive = false;
+            generateErrorResponse(e.getMessage(), DEFAULT_HTTP_VERSION, HttpResponseStatus.PAYLOAD_TOO_LARGE);
+        } catch (HttpHeaderFieldsTooLargeException e) {
+            this.keepAlive = false;
+            generateErrorResponse(e.getMessage(), DEFAULT_HTTP_VERSION, HttpResponseStatus.REQUEST_HEADER_FIELDS_TOO_LARGE);
+        } catch (HttpTransferCodingNotImplementedException e) {
+            this.keepAlive = false;
+            generateErrorResponse(e.getMessage(), DEFAULT_HTTP_VERSION, HttpResponseStatus.NOT_IMPLEMENTED);
+        } catch (HttpRequestTimeoutException e) {
+            // whatever the client still sends of this request would be taken for the next one
+            this.keepAlive = false;
+            metrics.requestTimedOut(e.getReason());
+            generateErrorResponse(e.getMessage(), DEFAULT_HTTP_VERSION, HttpResponseStatus.REQUEST_TIMEOUT);
+        } catch (InvalidHttpRequestException e) {
+            // the rest of the stream cannot be trusted to start at a request boundary
+            this.keepAlive = false;
+            generateErrorResponse(e.getMessage(), DEFAULT_HTTP_VERSION, HttpResponseStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            this.keepAlive = false;
+            generateErrorResponse(e.getMessage(), DEFAULT_HTTP_VERSION, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        }
+        if (this.keepAlive && !allowKeepAlive.getAsBoolean()) {
+            this.keepAlive = false;
+        }
+        // the head may have been built before the connection was found not reusable (e.g. a body left unread)
+        if (!this.keepAlive && this.httpResponse != null) {
+            this.httpResponse.keepAlive(false);
+        }
+        HttpResponseStatus status = getResponseStatus();
+        metrics.responseSent(httpRequestLine != null ? httpRequestLine.getHttpMethod() : null, status);
+        try {
+            if (this.cachedResponse != null) {
+                this.cachedResponse.writeTo(outputBuffer, this.cachedResponseHttpVersion, this.keepAlive);
+            } else {
+                try (StaticResource body = this.httpResponseBody) {
+                    if (this.streamingResponse != null) {
+                        this.keepAlive = this.streamingResponse.writeTo(outputBuffer, this.keepAlive);
+                    } else {
+                        this.httpResponse.writeTo(outputBuffer);
+                        if (this.partialContent != null) {
+                            this.partialContent.writeTo(outputBuffer);
+                        } else if (body != null) {
+                            body.writeTo(outputBuffer);
+                        }
+                    }
+                }
+            }
+            if (outputBuffer != outputStream) {
+                outputBuffer.flush();
+            }
+        } finally {
+            // responses cut short by a failed write are logged too, with the bytes written until then
+            if (accessLog != null) {
+                logAccess(startMillis, httpRequestLine, httpRequestHeaders, status, outputBuffer.getBytesWritten() - bytesWrittenBefore);
+            }
+        }
+        return this.keepAlive;
+    }
+
     private void handleRequests(HttpRequestLine httpRequestLine, Map<String, String> httpRequestHeaders) throws InvalidHttpRequestException, IOException {
         checkHttpVersionAndHost(httpRequestLine, httpRequestHeaders);
-        // handling just GET and POST requests for simplicity
-        switch(httpRequestLine.getHttpMethod()) {
-            case "GET" -> handleGetRequest(httpRequestLine);
-            case "POST" -> handlePostRequest(httpRequestLine, httpRequestHeaders);
-            default -> generateErrorResponse("Method not allowed", httpRequestLine.getHttpVersion(), HttpResponseStatus.METHOD_NOT_ALLOWED);
+        // static files, uploads and mounted handlers, paths known to other methods only are answered with 405
+        Router.Match match = router.match(httpRequestLine.getHttpMethod(), httpRequestLine.getRawPath());
+        // refused before the body is read, an upload over the limit costs no more than its head
+        RateLimiter.Rejection rejection = rateLimiter.acquire(getRemoteAddress(), match != null ? match.route() : null);
+        boolean bodyRead = false;
+        if (rejection != null) {
+            metrics.limitExceeded(rejection.limit());
+            generateErrorResponse("Rate limit exceeded: " + rejection.limit(), httpRequestLine.getHttpVersion(), rejection.limit().getStatus());
+            this.httpResponse.header("Retry-After", Long.toString(rejection.getRetryAfterSeconds()));
+        } else if (match == null) {
+            generateErrorResponse("No route", httpRequestLine.getHttpVersion(), HttpResponseStatus.NOT_FOUND);
+        } else if (match.type() == null) {
+            generateErrorResponse("Method not allowed", httpRequestLine.getHttpVersion(), HttpResponseStatus.METHOD_NOT_ALLOWED);
+            this.httpResponse.header("Allow", match.allowedMethods());
+        } else {
+            switch (match.type()) {
+                case STATIC_FILES -> handleGetRequest(httpRequestLine, httpRequestHeaders);
+                case UPLOADS -> {
+                    handlePostRequest(httpRequestLine, httpRequestHeaders);
+                    bodyRead = true;
+                }
+                case HANDLER -> bodyRead = handleRouteRequest(match, httpRequestLine, httpRequestHeaders);
+            }
+        }
+        if (!bodyRead && hasRequestBody(httpRequestHeaders)) {
+            // a body nobody read would be taken for the next request
+            this.keepAlive = false;
+        }
+    }
+
+    // returns whether the handler read the request body
+    private boolean handleRouteRequest(Router.Match match, HttpRequestLine httpRequestLine, Map<String, String> httpRequestHeaders) throws IOException, InvalidHttpRequestException {
+        RouteRequest routeRequest = new RouteRequest(httpRequestLine, httpRequestHeaders, match.pathParameters(), this.httpRequestParser);
+        this.streamingResponse = match.handler().handle(routeRequest);
+        if (this.streamingResponse == null) {
+            generateErrorResponse("Route handler returned no response", httpRequestLine.getHttpVersion(), HttpResponseStatus.INTERNAL_SERVER_ERROR);
         }
+        return routeRequest.isBodyRead();
     }
 
+    // the body is streamed to disk as it is read. a request refused before its body is read
+    // cannot leave the connection open, the body would be taken for the next request
     private void handlePostRequest(HttpRequestLine httpRequestLine, Map<String, String> httpRequestHeaders) throws IOException, InvalidHttpRequestException {
-        StringBuilder body = this.httpRequestParser.parseHttpRequestBody();
-        if (body == null) {
+        if (!httpRequestHeaders.containsKey("content-length") && !httpRequestHeaders.containsKey("transfer-encoding")) {
             throw new InvalidHttpHeaderException("Both content-length or transfer-encoding missing.");
         }
-        String resourcePath = httpRequestLine.getUriPath();
-        if (HttpValidator.isValidContentType(httpRequestHeaders.get("content-type"))) {
-            try {
-                ResourceManager.createResource(resourcePath, body);
-                generatePostResponse(httpRequestLine.getHttpVersion(), body);
-            } catch (IOException e) {
-                generateErrorResponse(e.getMessage(), httpRequestLine.getHttpVersion(), HttpResponseStatus.NOT_FOUND);
-            } catch (InvalidHttpRequestLineException e) {
-                generateErrorResponse(e.getMessage(), httpRequestLine.getHttpVersion(), HttpResponseStatus.FORBIDDEN);
-            }
-        } else {
+        if (!HttpValidator.isValidContentType(httpRequestHeaders.get("content-type"))) {
+            this.keepAlive = false;
             generateErrorResponse("Unsupported media type", httpRequestLine.getHttpVersion(), HttpResponseStatus.UNSUPPORTED_MEDIA_TYPE);
+            return;
+        }
+        ResourceUpload upload;
+        try {
+            upload = ResourceManager.createResource(httpRequestLine.getUriPath());
+        } catch (IOException e) {
+            this.keepAlive = false;
+            generateErrorResponse(e.getMessage(), httpRequestLine.getHttpVersion(), HttpResponseStatus.NOT_FOUND);
+            return;
+        } catch (InvalidHttpRequestLineException e) {
+            this.keepAlive = false;
+            generateErrorResponse(e.getMessage(), httpRequestLine.getHttpVersion(), HttpResponseStatus.FORBIDDEN);
+            return;
+        }
+        try (upload) {
+            this.httpRequestParser.readHttpRequestBody(upload.getOutputStream());
+            upload.commit();
         }
+        generatePostResponse(httpRequestLine.getHttpVersion());
     }
 
-    private void handleGetRequest(HttpRequestLine httpRequestLine) {
-        String httpPath = httpRequestLine.getUriPath();
-        StringBuilder fileContent = new StringBuilder();
-        try (BufferedReader bufferedReader = ResourceManager.getResourceContent(httpPath)) {
-            String line;
-            while ((line = bufferedReader.readLine()) != null) {
-                fileContent.append(line);
-                fileContent.append("\n");
+    // small files are answered from the response cache, rendering the response on a miss.
+    // bigger ones are only opened here, their bytes are written after the head in writeHttpResponse
+    private void handleGetRequest(HttpRequestLine httpRequestLine, Map<String, String> httpRequestHeaders) {
+        String acceptEncoding = httpRequestHeaders.get("accept-encoding");
+        String ifNoneMatch = httpRequestHeaders.get("if-none-match");
+        String ifModifiedSince = httpRequestHeaders.get("if-modified-since");
+        try {
+            String resourcePath = ResourceManager.resolveResourcePath(httpRequestLine.getUriPath());
+            CachedResource cachedResource = responseCache.get(resourcePath);
+            if (cachedResource == null) {
+                StaticResource staticResource = ResourceManager.getResourceContent(resourcePath);
+                String contentType = ALLOWED_CONTENT_TYPES.getOrDefault(ResourceManager.getFileExtensions(resourcePath), DEFAULT_CONTENT_TYPE);
+                if (staticResource.getLength() > STATIC_CACHE_MAX_ENTRY_BYTES) {
+                    handleUncachedGetRequest(httpRequestLine, resourcePath, staticResource, contentType, httpRequestHeaders);
+                    return;
+                }
+                try (staticResource) {
+                    cachedResource = CachedResource.load(resourcePath, staticResource, contentType);
+                }
+                responseCache.put(resourcePath, cachedResource);
             }
-            httpPath = httpPath.equals("/") ? "index.html" : httpPath;
-            generateGetResponse(httpRequestLine.getHttpVersion(), fileContent, ALLOWED_CONTENT_TYPES.get(ResourceManager.getFileExtensions(httpPath)));
+            CachedResource.Variant variant = cachedResource.select(acceptEncoding);
+            if (cachedResource.isNotModified(variant, ifNoneMatch, ifModifiedSince)) {
+                this.cachedResponse = variant.notModified();
+            } else if (!handleRangeRequest(
+                    httpRequestLine,
+                    httpRequestHeaders,
+                    variant.response().getBodyLength(),
+                    cachedResource.getContentType(),
+                    variant.entityTag(),
+                    cachedResource.getLastModifiedDate(),
+                    variant.headers(),
+                    variant.response()::writeBodyTo)) {
+                this.cachedResponse = variant.response();
+            }
+            this.cachedResponseHttpVersion = httpRequestLine.getHttpVersion();
         } catch (IOException e) {
             generateErrorResponse(e.getMessage(), httpRequestLine.getHttpVersion(), HttpResponseStatus.NOT_FOUND);
         } catch (InvalidHttpRequestLineException e) {
@@ -94,32 +303,238 @@ public class HttpRequestHandler {
         }
     }
 
+    // big files are sent zero-copy, or their precompressed sibling when the client accepts its encoding.
+    // compressible ones without a sibling are compressed while they are streamed out, in chunks
+    private void handleUncachedGetRequest(
+            HttpRequestLine httpRequestLine,
+            String resourcePath,
+            StaticResource staticResource,
+            String contentType,
+            Map<String, String> httpRequestHeaders
+    ) throws IOException {
+        String acceptEncoding = httpRequestHeaders.get("accept-encoding");
+        Set<ContentEncoding> precompressedEncodings = EnumSet.noneOf(ContentEncoding.class);
+        Set<ContentEncoding> contentEncodings = EnumSet.of(ContentEncoding.IDENTITY);
+        for (ContentEncoding contentEncoding : ContentEncoding.values()) {
+            if (ResourceManager.hasPrecompressedResource(resourcePath, contentEncoding)) {
+                precompressedEncodings.add(contentEncoding);
+                contentEncodings.add(contentEncoding);
+            } else if (contentEncoding.canEncode() && ContentEncoding.isCompressible(contentType)) {
+                contentEncodings.add(contentEncoding);
+            }
+        }
+        // validators come from the file itself, whichever encoding of it is sent
+        String entityTag = staticResource.getEntityTag();
+        FileTime lastModified = staticResource.getLastModified();
+        String lastModifiedDate = ConditionalRequest.formatHttpDate(lastModified);
+        ContentEncoding contentEncoding = ContentEncoding.negotiate(acceptEncoding, contentEncodings);
+        boolean encodeOnTheFly = contentEncoding != ContentEncoding.IDENTITY && !precompressedEncodings.contains(contentEncoding);
+        if (precompressedEncodings.contains(contentEncoding)) {
+            StaticResource precompressed = openPrecompressedResource(resourcePath, contentEncoding);
+            if (precompressed != null) {
+                staticResource.close();
+                staticResource = precompressed;
+            } else {
+                contentEncoding = ContentEncoding.IDENTITY;
+            }
+        }
+        boolean varyOnEncoding = contentEncodings.size() > 1;
+        entityTag = ConditionalRequest.variantEntityTag(entityTag, contentEncoding);
+        if (ConditionalRequest.isNotModified(
+                httpRequestHeaders.get("if-none-match"),
+                httpRequestHeaders.get("if-modified-since"),
+                entityTag,
+                lastModified,
+                lastModifiedDate)) {
+            staticResource.close();
+            this.httpResponse = HttpResponseBuilder.generateHttpNotModifiedResponse(
+                    httpRequestLine.getHttpVersion(),
+                    HttpResponseBuilder.generateValidatorHeaders(varyOnEncoding, entityTag, lastModifiedDate),
+                    this.keepAlive);
+            return;
+        }
+        Map<String, String> representationHeaders = HttpResponseBuilder.generateRepresentationHeaders(
+                contentEncoding, varyOnEncoding, entityTag, lastModifiedDate);
+        if (encodeOnTheFly) {
+            // the encoded length is only known at the end, ranges of it cannot be served
+            representationHeaders.remove("Accept-Ranges");
+            StaticResource source = staticResource;
+            ContentEncoding encoding = contentEncoding;
+            this.streamingResponse = new StreamingResponse(
+                    httpRequestLine.getHttpVersion(),
+                    HttpResponseStatus.OK,
+                    contentType,
+                    representationHeaders,
+                    -1,
+                    body -> {
+                        try (OutputStream encoder = encoding.newEncoder(body)) {
+                            source.copyTo(encoder);
+                        }
+                    });
+            this.httpResponseBody = staticResource;
+            return;
+        }
+        if (handleRangeRequest(
+                httpRequestLine,
+                httpRequestHeaders,
+                staticResource.getLength(),
+                contentType,
+                entityTag,
+                lastModifiedDate,
+                representationHeaders,
+                staticResource::writeTo)) {
+            if (this.partialContent == null) {
+                staticResource.close();
+            } else {
+                this.httpResponseBody = staticResource;
+            }
+            return;
+        }
+        this.httpResponse = HttpResponseBuilder
+                .generateHttpGetResponse(
+                        httpRequestLine.getHttpVersion(),
+                        HttpResponseStatus.OK,
+                        staticResource.getLength(),
+                        contentType,
+                        representationHeaders,
+                        this.keepAlive
+                );
+        this.httpResponseBody = staticResource;
+    }
+
+    // answers with a 206 for the satisfiable ranges of the representation (written from source), or a 416.
+    // returns false when the whole representation is to be sent instead
+    private boolean handleRangeRequest(
+            HttpRequestLine httpRequestLine,
+            Map<String, String> httpRequestHeaders,
+            long completeLength,
+            String contentType,
+            String entityTag,
+            String lastModifiedDate,
+            Map<String, String> representationHeaders,
+            PartialContent.BodyRegion source
+    ) {
+        List<ByteRange> byteRanges = ByteRange.evaluate(
+                httpRequestHeaders.get("range"),
+                httpRequestHeaders.get("if-range"),
+                completeLength,
+                entityTag,
+                lastModifiedDate);
+        if (byteRanges == null) {
+            return false;
+        }
+        if (byteRanges.isEmpty()) {
+            this.httpResponse = HttpResponseBuilder.generateHttpRangeNotSatisfiableResponse(
+                    httpRequestLine.getHttpVersion(), completeLength, this.keepAlive);
+            return true;
+        }
+        this.partialContent = new PartialContent(byteRanges, completeLength, contentType, source);
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (this.partialContent.getContentRange() != null) {
+            headers.put("Content-Range", this.partialContent.getContentRange());
+        }
+        headers.putAll(representationHeaders);
+        this.httpResponse = HttpResponseBuilder
+                .generateHttpGetResponse(
+                        httpRequestLine.getHttpVersion(),
+                        HttpResponseStatus.PARTIAL_CONTENT,
+                        this.partialContent.getContentLength(),
+                        this.partialContent.getContentType(),
+                        headers,
+                        this.keepAlive
+                );
+        return true;
+    }
+
+    // the identity file is sent instead if the sibling cannot be opened
+    private static StaticResource openPrecompressedResource(String resourcePath, ContentEncoding contentEncoding) {
+        try {
+            return ResourceManager.getPrecompressedResource(resourcePath, contentEncoding);
+        } catch (IOException e) {
+            logger.error("Error opening precompressed resource: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private HttpResponseStatus getResponseStatus() {
+        if (this.cachedResponse != null) {
+            return this.cachedResponse.getStatus();
+        }
+        return this.streamingResponse != null ? this.streamingResponse.getStatus() : this.httpResponse.getStatus();
+    }
+
+    // only queues the entry, the access log is written by its own thread
+    private void logAccess(
+            long startMillis,
+            HttpRequestLine httpRequestLine,
+            Map<String, String> httpRequestHeaders,
+            HttpResponseStatus status,
+            long bytes
+    ) {
+        accessLog.log(
+                startMillis,
+                getRemoteAddress(),
+                httpRequestLine != null ? httpRequestLine.getHttpMethod() : null,
+                httpRequestLine != null ? httpRequestLine.getRequestTarget() : null,
+                httpRequestLine != null ? httpRequestLine.getHttpVersion() : null,
+                status.getStatus(),
+                bytes,
+                httpRequestHeaders != null ? httpRequestHeaders.get("referer") : null,
+                httpRequestHeaders != null ? httpRequestHeaders.get("user-agent") : null
+        );
+    }
+
+    private InetAddress getRemoteAddress() {
+        return this.socket != null ? this.socket.getInetAddress() : this.remoteAddress;
+    }
+
+    // one line per error response is too much under load (a crawler hitting missing pages), they are sampled
     private void generateErrorResponse(String log, String httpVersion, HttpResponseStatus status) {
-        logger.error("Error generating http response: {}", log);
+        long suppressed = errorLogSampler.acquire();
+        if (suppressed == 0) {
+            logger.error("Error generating http response: {}", log);
+        } else if (suppressed > 0) {
+            logger.error("Error generating http response: {} ({} similar lines suppressed)", log, suppressed);
+        }
         this.httpResponse = HttpResponseBuilder
                 .generateHttpErrorResponse(
                         httpVersion,
-                        status
+                        status,
+                        this.keepAlive
                 );
     }
 
-    private void generatePostResponse(String httpVersion, StringBuilder body) {
+    private void generatePostResponse(String httpVersion) {
         this.httpResponse = HttpResponseBuilder
                 .generateHttpPostResponse(
                         httpVersion,
                         HttpResponseStatus.CREATED,
-                        body
+                        this.keepAlive
                 );
     }
 
-    private void generateGetResponse(String httpVersion, StringBuilder fileContent, String contentType) {
-        this.httpResponse = HttpResponseBuilder
-                .generateHttpGetResponse(
-                        httpVersion,
-                        HttpResponseStatus.OK,
-                        fileContent,
-                        contentType
-                );
+    // HTTP/1.1 connections persist unless the client sends "Connection: close", HTTP/1.0 ones need "keep-alive"
+    private static boolean isPersistentConnection(HttpRequestLine httpRequestLine, Map<String, String> httpRequestHeaders) {
+        String connection = httpRequestHeaders.get("connection");
+        if (DEFAULT_HTTP_VERSION.equals(httpRequestLine.getHttpVersion())) {
+            return connection == null || !hasConnectionToken(connection, "close");
+        }
+        return connection != null && hasConnectionToken(connection, "keep-alive");
+    }
+
+    private static boolean hasConnectionToken(String connection, String token) {
+        for (String connectionToken : connection.split(",")) {
+            if (connectionToken.trim().equalsIgnoreCase(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasRequestBody(Map<String, String> httpRequestHeaders) {
+        String contentLength = httpRequestHeaders.get("content-length");
+        return httpRequestHeaders.containsKey("transfer-encoding")
+                || (contentLength != null && !contentLength.trim().equals("0"));
     }
 
     private void checkHttpVersionAndHost(HttpRequestLine httpRequestLine, Map<String, String> httpRequestHeaders) throws InvalidHttpRequestException{
@@ -1,9 +1,16 @@
 package org.example.http;
 
+import org.example.http.errors.InvalidHttpRequestLineException;
+import org.example.http.util.PercentDecoder;
+
 public class HttpRequestLine {
     private String httpVersion;
     private String httpMethod;
     private String uriPath;
+    private String rawPath;
+    private String requestTarget;
+    private String queryString;
+    private QueryParameters queryParameters;
 
     public HttpRequestLine() {}
 
@@ -14,6 +21,8 @@ public class HttpRequestLine {
         this.httpVersion = httpVersion;
         this.httpMethod = httpMethod;
         this.uriPath = uriPath;
+        this.rawPath = uriPath;
+        this.requestTarget = uriPath;
     }
 
     public void setHttpVersion(String httpVersion) {
@@ -24,8 +33,37 @@ public class HttpRequestLine {
         this.httpMethod = httpMethod;
     }
 
+    // an already decoded path, without query
     public void setUriPath(String uriPath) {
         this.uriPath = uriPath;
+        this.rawPath = uriPath;
+        this.requestTarget = uriPath;
+        this.queryString = null;
+        this.queryParameters = null;
+    }
+
+    // the target as sent: split into the path, percent-decoded here, and the query, decoded on demand.
+    // decoded control characters (%00, %0A...) are refused, no file name or route parameter holds them
+    public void setRequestTarget(String requestTarget) throws InvalidHttpRequestLineException {
+        int queryStart = requestTarget.indexOf('?');
+        String rawPath = queryStart < 0 ? requestTarget : requestTarget.substring(0, queryStart);
+        try {
+            this.uriPath = PercentDecoder.decode(rawPath, false);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidHttpRequestLineException("Invalid percent-encoding in path.");
+        }
+        if (this.uriPath != rawPath) {
+            for (int i = 0; i < this.uriPath.length(); i++) {
+                char c = this.uriPath.charAt(i);
+                if (c < 0x20 || c == 0x7F) {
+                    throw new InvalidHttpRequestLineException("Control character in path.");
+                }
+            }
+        }
+        this.rawPath = rawPath;
+        this.requestTarget = requestTarget;
+        this.queryString = queryStart < 0 ? null : requestTarget.substring(queryStart + 1);
+        this.queryParameters = null;
     }
 
     public String getHttpVersion() {
@@ -36,7 +74,30 @@ public class HttpRequestLine {
         return this.httpMethod;
     }
 
+    // decoded path, without query. an encoded '/' (%2F) is a '/' here, see getRawPath
     public String getUriPath() {
         return this.uriPath;
     }
+
+    // path as sent, without query, with valid percent-encoding. routes are matched on it, segment by segment,
+    // so that a %2F stays within its segment
+    public String getRawPath() {
+        return this.rawPath;
+    }
+
+    public String getRequestTarget() {
+        return this.requestTarget;
+    }
+
+    // raw query, without the '?', null if there is none
+    public String getQueryString() {
+        return this.queryString;
+    }
+
+    public QueryParameters getQueryParameters() {
+        if (this.queryParameters == null) {
+            this.queryParameters = new QueryParameters(this.queryString);
+        }
+        return this.queryParameters;
+    }
 }
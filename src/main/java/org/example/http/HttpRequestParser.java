@@ -1,209 +1,321 @@
 package org.example.http;
 
+import org.example.http.errors.HttpHeaderFieldsTooLargeException;
+import org.example.http.errors.HttpPayloadTooLargeException;
+import org.example.http.errors.HttpTransferCodingNotImplementedException;
 import org.example.http.errors.InvalidHttpBodyException;
 import org.example.http.errors.InvalidHttpHeaderException;
 import org.example.http.errors.InvalidHttpRequestException;
 import org.example.http.errors.InvalidHttpRequestLineException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import static org.example.http.HttpConfiguration.MAX_REQUEST_BODY_SIZE;
+import static org.example.http.HttpConfiguration.MAX_REQUEST_HEADERS;
+import static org.example.http.HttpConfiguration.MAX_REQUEST_HEAD_SIZE;
 
+// Request line and headers are scanned in place in the connection's HttpInputBuffer: lines are located by
+// their CRLF and split on byte offsets. Only the URI becomes a new string (methods and versions map to shared
+// constants), header lines are copied into an HttpHeaders and decoded when looked up.
 public class HttpRequestParser {
+    private enum LineType { REQUEST_LINE, HEADER, CHUNKED_BODY }
+
     private final HttpRequestLine httpRequestLine;
-    private final Map<String, String> httpRequestHeaders;
-    private final StringBuilder httpRequestBody;
-    private final InputStream inputStream;
-    private final StringBuilder httpRequestLineStrings;
-    private final ArrayList<String> httpRequestHeadersStrings;
+    private final HttpHeaders httpRequestHeaders;
+    private final HttpInputBuffer inputStream;
+    private int lineTerminatorLength;
 
+    // pass the connection's HttpInputBuffer, bytes buffered past this request are then kept for the next one
     public HttpRequestParser(InputStream inputStream) {
-        this.inputStream = inputStream;
-        this.httpRequestBody = new StringBuilder();
+        this.inputStream = inputStream instanceof HttpInputBuffer httpInputBuffer
+                ? httpInputBuffer
+                : new HttpInputBuffer(inputStream);
         this.httpRequestLine = new HttpRequestLine();
-        this.httpRequestHeaders = new HashMap<>();
-        this.httpRequestLineStrings = new StringBuilder();
-        this.httpRequestHeadersStrings = new ArrayList<>();
+        this.httpRequestHeaders = new HttpHeaders();
     }
 
-    // to check if content-length is correct and if transfer-encoding = chunked (only type allowed)
-    public StringBuilder parseHttpRequestBody() throws InvalidHttpRequestException, IOException {
+    // streams the body to sink without holding it in memory, bytes go from the input buffer straight to sink.
+    // returns the body length, or -1 if the request has neither content-length nor transfer-encoding
+    public long readHttpRequestBody(OutputStream sink) throws InvalidHttpRequestException, IOException {
+        // the body is read through the same buffer the headers point into
+        this.httpRequestHeaders.detach();
+        this.inputStream.startBody();
         if (this.httpRequestHeaders.containsKey("content-length")) {
-            this.readHttpBodyWithLength(this.httpRequestHeaders.get("content-length"));
+            return this.readHttpBodyWithLength(this.httpRequestHeaders.get("content-length"), sink);
         } else if(this.httpRequestHeaders.containsKey("transfer-encoding")) {
-            this.readHttpChunkedBody();
-        } else {
-            return null;
+            return this.readHttpChunkedBody(sink);
         }
-        return this.httpRequestBody;
+        return -1;
     }
 
-    public HttpRequestLine parseHttpRequestLine() throws InvalidHttpRequestLineException, IOException {
-        this.readHttpRequestLine();
-        String requestLine = String.valueOf(this.httpRequestLineStrings);
-        String[] requestLineComponents = requestLine.split("\\s+");
-        if (!(requestLineComponents.length == 3)) {
+    public HttpRequestLine parseHttpRequestLine() throws InvalidHttpRequestException, IOException {
+        int lineLength;
+        // empty lines before a request line are ignored (RFC 7230, 3.5)
+        while ((lineLength = readLine(LineType.REQUEST_LINE)) == 0) {
+            this.inputStream.skip(this.lineTerminatorLength);
+        }
+        if (lineLength < 0) {
+            throw new InvalidHttpRequestLineException("HTTP method, URI and HTTP version must be provided.");
+        }
+        byte[] buffer = this.inputStream.array();
+        int lineStart = this.inputStream.position();
+        int lineEnd = lineStart + lineLength;
+        int methodEnd = indexOfWhitespace(buffer, lineStart, lineEnd);
+        int uriStart = skipWhitespace(buffer, methodEnd, lineEnd);
+        int uriEnd = indexOfWhitespace(buffer, uriStart, lineEnd);
+        int versionStart = skipWhitespace(buffer, uriEnd, lineEnd);
+        int versionEnd = indexOfWhitespace(buffer, versionStart, lineEnd);
+        if (methodEnd == lineStart || uriStart == uriEnd || versionStart == versionEnd
+                || skipWhitespace(buffer, versionEnd, lineEnd) != lineEnd) {
             throw new InvalidHttpRequestLineException("HTTP method, URI and HTTP version must be provided.");
         }
-        String httpMethod = requestLineComponents[0];
-        String uriPath = requestLineComponents[1];
-        String httpVersion = requestLineComponents[2];
-        this.httpRequestLine.setHttpMethod(httpMethod);
-        this.httpRequestLine.setUriPath(uriPath);
-        this.httpRequestLine.setHttpVersion(httpVersion);
+        this.httpRequestLine.setHttpMethod(HttpTokens.method(buffer, lineStart, methodEnd - lineStart));
+        this.httpRequestLine.setRequestTarget(new String(buffer, uriStart, uriEnd - uriStart, StandardCharsets.ISO_8859_1));
+        this.httpRequestLine.setHttpVersion(HttpTokens.version(buffer, versionStart, versionEnd - versionStart));
+        this.inputStream.skip(lineLength + this.lineTerminatorLength);
         return this.httpRequestLine;
     }
 
+    // header values are trimmed of surrounding whitespace, the returned map is an HttpHeaders.
+    // more than MAX_REQUEST_HEADERS lines, or more than MAX_REQUEST_HEAD_SIZE bytes of them, are refused
     public Map<String, String> parseHttpRequestHeaders() throws InvalidHttpRequestException, IOException {
-        this.readHttpHeaders();
-        if (!this.httpRequestHeadersStrings.isEmpty()) {
-            for (String header : this.httpRequestHeadersStrings) {
-                String[] headerComponent = header.split(":\\s?", 2);
-                this.httpRequestHeaders.put(headerComponent[0].toLowerCase(), headerComponent[1]);
+        int lineLength;
+        int headSize = 0;
+        while ((lineLength = readLine(LineType.HEADER)) > 0) {
+            headSize += lineLength + this.lineTerminatorLength;
+            if (headSize > MAX_REQUEST_HEAD_SIZE) {
+                throw new HttpHeaderFieldsTooLargeException("Request headers larger than " + MAX_REQUEST_HEAD_SIZE + " bytes.");
+            }
+            if (this.httpRequestHeaders.count() == MAX_REQUEST_HEADERS) {
+                throw new HttpHeaderFieldsTooLargeException("More than " + MAX_REQUEST_HEADERS + " request headers.");
+            }
+            byte[] buffer = this.inputStream.array();
+            int lineStart = this.inputStream.position();
+            int lineEnd = lineStart + lineLength;
+            int colon = lineStart;
+            while (colon < lineEnd && buffer[colon] != ':') {
+                colon++;
             }
+            if (colon == lineEnd) {
+                throw new InvalidHttpHeaderException("Header without colon.");
+            }
+            int valueStart = skipWhitespace(buffer, colon + 1, lineEnd);
+            int valueEnd = lineEnd;
+            while (valueEnd > valueStart && isWhitespace(buffer[valueEnd - 1])) {
+                valueEnd--;
+            }
+            this.httpRequestHeaders.add(buffer, lineStart, colon, valueStart, valueEnd);
+            this.inputStream.skip(lineLength + this.lineTerminatorLength);
+        }
+        if (lineLength == 0) {
+            this.inputStream.skip(this.lineTerminatorLength);
         }
+        checkFraming();
         return this.httpRequestHeaders;
     }
 
-    private void readHttpBodyWithLength(String contentLength) throws IOException {
-        int intContentLength = Integer.parseInt(contentLength);
-        byte[] bytes = new byte[intContentLength];
-        int offset = 0;
-        while (offset < intContentLength) {
-            int actuallyRead = this.inputStream.read(bytes, offset, intContentLength - offset);
-            if (actuallyRead < 0) {
-                byte[] shortResult = new byte[offset];
-                System.arraycopy(bytes, 0, shortResult, 0, offset);
-                bytes = shortResult;
-                break;
+    // headers deciding where the body ends must be unambiguous, a proxy in front may have read them differently
+    // (RFC 7230, 3.3.2-3.3.3): repeated content-lengths must agree, content-length and transfer-encoding are not
+    // both accepted, and chunked is the only transfer coding understood. HttpRequestFramer checks the same on
+    // the NIO engine
+    private void checkFraming() throws InvalidHttpHeaderException {
+        List<String> contentLengths = this.httpRequestHeaders.getAll("content-length");
+        for (int i = 1; i < contentLengths.size(); i++) {
+            if (!contentLengths.get(i).equals(contentLengths.get(0))) {
+                throw new InvalidHttpHeaderException("Conflicting content-length headers.");
             }
-            offset += actuallyRead;
         }
-        this.httpRequestBody.append(new String(bytes, StandardCharsets.UTF_8));
+        List<String> transferEncodings = this.httpRequestHeaders.getAll("transfer-encoding");
+        if (transferEncodings.isEmpty()) {
+            return;
+        }
+        if (!contentLengths.isEmpty()) {
+            throw new InvalidHttpHeaderException("Both content-length and transfer-encoding.");
+        }
+        if (transferEncodings.size() > 1 || !transferEncodings.get(0).equalsIgnoreCase("chunked")) {
+            throw new HttpTransferCodingNotImplementedException("Unsupported transfer-encoding: " + String.join(", ", transferEncodings));
+        }
     }
 
-    // first chunk size, then chunk body finished by CRLF (with size matching chunk size), then again...
-    private void readHttpChunkedBody() throws IOException, InvalidHttpBodyException {
-        int chunkSize = 1;
-        while (chunkSize > 0) {
-            chunkSize = readChunkSize();
-            if (chunkSize < 0) {
-                throw new InvalidHttpBodyException("unexpected EOF, could not read chunked body.");
-            }
-            this.httpRequestBody.append(readChunk(chunkSize));
+    private long readHttpBodyWithLength(String contentLength, OutputStream sink) throws InvalidHttpRequestException, IOException {
+        long length;
+        try {
+            length = Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidHttpHeaderException("Invalid content-length.");
+        }
+        if (length < 0) {
+            throw new InvalidHttpHeaderException("Invalid content-length.");
+        }
+        if (length > MAX_REQUEST_BODY_SIZE) {
+            throw new HttpPayloadTooLargeException("Request body larger than " + MAX_REQUEST_BODY_SIZE + " bytes.");
         }
+        transferBody(sink, length);
+        return length;
     }
 
-    private int readChunkSize() throws IOException, InvalidHttpBodyException {
-        char[] chars = new char[4];
-        int byteValue;
-        int size = 0;
-        while((byteValue = this.inputStream.read()) >= 0 && size < 4) {
-            if (byteValue == '\r') {
-                int next = this.inputStream.read();
-                if (next == '\n') {
-                    break;
-                } else {
-                    throw new InvalidHttpBodyException("Illegal character after return (chunk-size).");
+    private void transferBody(OutputStream sink, long length) throws IOException, InvalidHttpBodyException {
+        while (length > 0) {
+            int buffered = this.inputStream.limit() - this.inputStream.position();
+            if (buffered == 0) {
+                if (this.inputStream.fill() < 0) {
+                    throw new InvalidHttpBodyException("Unexpected EOF while reading body.");
                 }
-            } if (byteValue == '\n') {
-                throw new InvalidHttpBodyException("Illegal character after chunk-size: new line without return.");
+                continue;
             }
-            chars[size++] = (char) byteValue;
+            int count = (int) Math.min(buffered, length);
+            sink.write(this.inputStream.array(), this.inputStream.position(), count);
+            this.inputStream.skip(count);
+            length -= count;
         }
-        if (size == 4) {
-            if (byteValue == '\r') {
-                int next = this.inputStream.read();
-                if (next != '\n') {
-                    throw new InvalidHttpBodyException("Illegal character after return (chunk-size).");
-                }
-            } else if(byteValue == '\n') {
-                throw new InvalidHttpBodyException("Illegal character after chunk-size: new line without return.");
-            } else {
-                throw new InvalidHttpBodyException("Invalid chunk-size (too big, more than 4 hex-digits.)");
+    }
+
+    // chunk-size line (extensions ignored), chunk data copied to sink straight from the input buffer, CRLF,
+    // again until the last (empty) chunk, then the trailer up to the empty line. chunks can be of any size
+    private long readHttpChunkedBody(OutputStream sink) throws IOException, InvalidHttpRequestException {
+        long length = 0;
+        long chunkSize;
+        while ((chunkSize = readChunkSize()) > 0) {
+            length += chunkSize;
+            if (length > MAX_REQUEST_BODY_SIZE) {
+                throw new HttpPayloadTooLargeException("Request body larger than " + MAX_REQUEST_BODY_SIZE + " bytes.");
             }
+            transferBody(sink, chunkSize);
+            if (readChunkLine() != 0) {
+                throw new InvalidHttpBodyException("Chunk data longer than its chunk-size.");
+            }
+            this.inputStream.skip(this.lineTerminatorLength);
         }
-        return Integer.parseInt(new String(chars, 0, size), 16);
+        readChunkedTrailer();
+        return length;
     }
 
-    private String readChunk(int chunkSize) throws IOException, InvalidHttpBodyException {
-        byte[] data = new byte[chunkSize];
-
-        if(chunkSize > 0) {
-            int bytesRead;
-            int totalBytesRead = 0;
-            while((bytesRead = this.inputStream.read(data, totalBytesRead, chunkSize - totalBytesRead)) >= 0) {
-                totalBytesRead += bytesRead;
-                if (totalBytesRead == chunkSize) {
-                    break;
-                }
+    private long readChunkSize() throws IOException, InvalidHttpRequestException {
+        int lineLength = readChunkLine();
+        byte[] buffer = this.inputStream.array();
+        int lineStart = this.inputStream.position();
+        int lineEnd = lineStart + lineLength;
+        long chunkSize = 0;
+        int index = lineStart;
+        for (; index < lineEnd; index++) {
+            int digit = Character.digit(buffer[index], 16);
+            if (digit < 0) {
+                break;
             }
-            if (totalBytesRead < chunkSize) {
-                throw new InvalidHttpBodyException("Unexpected EOF while reading chunk data.");
+            // 15 hex digits keep the size positive, far past any body we accept
+            if (index - lineStart == 15) {
+                throw new InvalidHttpBodyException("Chunk-size too large.");
             }
+            chunkSize = chunkSize << 4 | digit;
+        }
+        int extensionStart = skipWhitespace(buffer, index, lineEnd);
+        if (index == lineStart || (extensionStart < lineEnd && buffer[extensionStart] != ';')) {
+            throw new InvalidHttpBodyException("Invalid chunk-size.");
+        }
+        this.inputStream.skip(lineLength + this.lineTerminatorLength);
+        return chunkSize;
+    }
 
-            // consume \r\n
-            int byteValue = this.inputStream.read();
-            if (byteValue == '\r') {
-                int next = this.inputStream.read();
-                if (next != '\n') {
-                    throw new InvalidHttpBodyException("Illegal character after return (chunk-size).");
-                }
-            } else if (byteValue == '\n') {
-                throw new InvalidHttpBodyException("Illegal character after chunk-size: new line without return.");
-            } else {
-                throw new InvalidHttpBodyException("Illegal character after chunk data (missing CRLF)");
+    // trailer fields after the last chunk are ignored, but must be consumed up to the final empty line
+    // so that the next request on the connection starts at the right byte
+    private void readChunkedTrailer() throws IOException, InvalidHttpRequestException {
+        int trailerLength = 0;
+        int lineLength;
+        while ((lineLength = readChunkLine()) > 0) {
+            trailerLength += lineLength + this.lineTerminatorLength;
+            if (trailerLength > MAX_REQUEST_HEAD_SIZE) {
+                throw new InvalidHttpBodyException("Chunked body trailer too large.");
             }
+            this.inputStream.skip(lineLength + this.lineTerminatorLength);
         }
-        return new String(data, StandardCharsets.UTF_8);
+        this.inputStream.skip(this.lineTerminatorLength);
     }
 
-    private void readHttpRequestLine() throws IOException, InvalidHttpRequestLineException {
-        int byteValue;
-        while ((byteValue = this.inputStream.read()) >= 0) {
-            if (byteValue == '\r') {
-                int next = this.inputStream.read();
-                if (next < 0 || next == '\n') {
-                    break;
-                } else {
-                    throw new InvalidHttpRequestLineException("Illegal character after return");
+    // a line of the chunked framing, which must be complete
+    private int readChunkLine() throws IOException, InvalidHttpRequestException {
+        int lineLength = readLine(LineType.CHUNKED_BODY);
+        if (lineLength < 0 || this.lineTerminatorLength != 2) {
+            throw new InvalidHttpBodyException("Unexpected EOF while reading chunked body.");
+        }
+        return lineLength;
+    }
+
+    // finds the next line starting at the buffer position, filling the buffer as needed. returns the line
+    // length without its terminator (whose length is left in lineTerminatorLength) or -1 on end of stream.
+    // a line cut by the end of stream is returned as is. CR must always be followed by LF
+    private int readLine(LineType lineType) throws IOException, InvalidHttpRequestException {
+        int scanned = 0;
+        while (true) {
+            byte[] buffer = this.inputStream.array();
+            int lineStart = this.inputStream.position();
+            int limit = this.inputStream.limit();
+            int index = lineStart + scanned;
+            for (; index < limit; index++) {
+                byte byteValue = buffer[index];
+                if (byteValue == '\r') {
+                    if (index + 1 == limit) {
+                        break;
+                    }
+                    if (buffer[index + 1] != '\n') {
+                        throw illegalLineTerminator(lineType);
+                    }
+                    this.lineTerminatorLength = 2;
+                    return index - lineStart;
+                } else if (byteValue == '\n') {
+                    throw illegalLineTerminator(lineType);
                 }
-            } else if (byteValue == '\n'){
-                throw new InvalidHttpRequestLineException("Illegal character after return");
-            } else {
-                this.httpRequestLineStrings.append((char) byteValue);
-            }
-        }
-    }
-
-    // do not allow new line without preceding '\r'
-    private void readHttpHeaders() throws IOException, InvalidHttpHeaderException {
-        StringBuilder headersBuilder = new StringBuilder();
-        boolean wasNewLine = true;
-        int byteValue;
-        while ((byteValue = this.inputStream.read()) >= 0) {
-            if (byteValue == '\r') {
-                int next = this.inputStream.read();
-                if (next < 0 || next == '\n') {
-                    if (wasNewLine) break;
-                    this.httpRequestHeadersStrings.add(headersBuilder.toString());
-                    if (next < 0) break;
-                    headersBuilder = new StringBuilder();
-                    wasNewLine = true;
-                } else {
-                    throw new InvalidHttpHeaderException("Illegal character after return.");
+            }
+            scanned = index - lineStart;
+            if (limit == buffer.length) {
+                // filling may move the buffered bytes to the front
+                this.httpRequestHeaders.detach();
+            }
+            int read = this.inputStream.fill();
+            if (read == 0) {
+                throw switch (lineType) {
+                    case REQUEST_LINE -> new InvalidHttpHeaderException("Request head too large.");
+                    case HEADER -> new HttpHeaderFieldsTooLargeException("Request header line too large.");
+                    case CHUNKED_BODY -> new InvalidHttpBodyException("Chunked body line too large.");
+                };
+            }
+            if (read < 0) {
+                int remaining = this.inputStream.limit() - this.inputStream.position();
+                if (remaining == 0) {
+                    return -1;
                 }
-            } else if (byteValue == '\n') { // new line without preceding '\r'
-                throw new InvalidHttpHeaderException("Illegal character after return.");
-            } else {
-                headersBuilder.append((char) byteValue);
-                wasNewLine = false;
+                boolean danglingReturn = this.inputStream.array()[this.inputStream.limit() - 1] == '\r';
+                this.lineTerminatorLength = danglingReturn ? 1 : 0;
+                return remaining - this.lineTerminatorLength;
             }
         }
-        if (!headersBuilder.isEmpty()) {
-            this.httpRequestHeadersStrings.add(headersBuilder.toString());
+    }
+
+    private static InvalidHttpRequestException illegalLineTerminator(LineType lineType) {
+        return switch (lineType) {
+            case REQUEST_LINE -> new InvalidHttpRequestLineException("Illegal character after return");
+            case HEADER -> new InvalidHttpHeaderException("Illegal character after return.");
+            case CHUNKED_BODY -> new InvalidHttpBodyException("Illegal character after return (chunked body).");
+        };
+    }
+
+    private static boolean isWhitespace(byte value) {
+        return value == ' ' || value == '\t';
+    }
+
+    private static int indexOfWhitespace(byte[] buffer, int from, int to) {
+        while (from < to && !isWhitespace(buffer[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int skipWhitespace(byte[] buffer, int from, int to) {
+        while (from < to && isWhitespace(buffer[from])) {
+            from++;
         }
+        return from;
     }
 }
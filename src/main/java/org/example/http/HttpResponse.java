@@ -0,0 +1,155 @@
+package org.example.http;
+
+import org.example.http.util.ConditionalRequest;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import static org.example.http.HttpConfiguration.ALLOWED_HTTP_VERSIONS;
+import static org.example.http.HttpConfiguration.DEFAULT_HTTP_VERSION;
+
+// A response head kept as bytes. The status line, Date, Server, Content-Type and Connection lines are
+// pre-encoded and shared between responses, the remaining header lines are appended to a byte array as they
+// are set, so writing the head copies ready buffers and never goes through a charset encoder.
+public class HttpResponse {
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] SERVER_HEADER = asciiBytes("Server: jwebserver\r\n");
+    private static final byte[] CONNECTION_CLOSE_HEADER = asciiBytes("Connection: close\r\n");
+    private static final byte[] CONNECTION_KEEP_ALIVE_HEADER = asciiBytes("Connection: keep-alive\r\n");
+    private static final byte[] NO_HEADER = new byte[0];
+    // content types come from the fixed set of file extensions, the bound only guards against surprises
+    private static final int MAX_CACHED_CONTENT_TYPES = 64;
+    private static final Map<String, byte[]> contentTypeHeaders = new ConcurrentHashMap<>();
+    private static volatile DateHeader dateHeader = new DateHeader(0, NO_HEADER);
+
+    private final String httpVersion;
+    private final HttpResponseStatus status;
+    private byte[] headers;
+    private int headersLength;
+    private boolean keepAlive;
+
+    private record DateHeader(long epochSecond, byte[] bytes) {}
+
+    public HttpResponse(String httpVersion, HttpResponseStatus status) {
+        this.httpVersion = ALLOWED_HTTP_VERSIONS.contains(httpVersion) ? httpVersion : DEFAULT_HTTP_VERSION;
+        this.status = status;
+        this.headers = new byte[128];
+    }
+
+    public HttpResponse contentType(String contentType) {
+        byte[] header = contentTypeHeaders.get(contentType);
+        if (header == null) {
+            header = asciiBytes("Content-type: " + contentType + "\r\n");
+            if (contentTypeHeaders.size() < MAX_CACHED_CONTENT_TYPES) {
+                contentTypeHeaders.put(contentType, header);
+            }
+        }
+        append(header, header.length);
+        return this;
+    }
+
+    public HttpResponse contentLength(long contentLength) {
+        return header("Content-Length", Long.toString(contentLength));
+    }
+
+    public HttpResponse header(String name, String value) {
+        ensureCapacity(name.length() + value.length() + 4);
+        appendChars(name);
+        this.headers[this.headersLength++] = ':';
+        this.headers[this.headersLength++] = ' ';
+        appendChars(value);
+        append(CRLF, CRLF.length);
+        return this;
+    }
+
+    // written in iteration order
+    public HttpResponse headers(Map<String, String> headers) {
+        headers.forEach(this::header);
+        return this;
+    }
+
+    public HttpResponse keepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    public String getHttpVersion() {
+        return this.httpVersion;
+    }
+
+    public HttpResponseStatus getStatus() {
+        return this.status;
+    }
+
+    public boolean isKeepAlive() {
+        return this.keepAlive;
+    }
+
+    // the header lines set on this response, without the shared ones added by writeTo
+    public byte[] getHeaderBytes() {
+        return Arrays.copyOf(this.headers, this.headersLength);
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(this.status.getStatusLine(this.httpVersion));
+        outputStream.write(dateHeader());
+        outputStream.write(SERVER_HEADER);
+        outputStream.write(this.headers, 0, this.headersLength);
+        outputStream.write(connectionHeader(this.httpVersion, this.keepAlive));
+        outputStream.write(CRLF);
+    }
+
+    // the Date line changes once a second, it is re-encoded by the first response of each second
+    public static byte[] dateHeader() {
+        long epochSecond = System.currentTimeMillis() / 1000;
+        DateHeader current = dateHeader;
+        if (current.epochSecond() != epochSecond) {
+            current = new DateHeader(epochSecond, asciiBytes(
+                    "Date: " + ConditionalRequest.formatHttpDate(Instant.ofEpochSecond(epochSecond)) + "\r\n"));
+            dateHeader = current;
+        }
+        return current.bytes();
+    }
+
+    public static byte[] serverHeader() {
+        return SERVER_HEADER;
+    }
+
+    // HTTP/1.1 connections are persistent unless closed, HTTP/1.0 ones only if asked for
+    public static byte[] connectionHeader(String validatedHttpVersion, boolean keepAlive) {
+        boolean persistentByDefault = DEFAULT_HTTP_VERSION.equals(validatedHttpVersion);
+        if (keepAlive && !persistentByDefault) {
+            return CONNECTION_KEEP_ALIVE_HEADER;
+        } else if (!keepAlive && persistentByDefault) {
+            return CONNECTION_CLOSE_HEADER;
+        }
+        return NO_HEADER;
+    }
+
+    private void append(byte[] bytes, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, 0, this.headers, this.headersLength, length);
+        this.headersLength += length;
+    }
+
+    // header values are ISO-8859-1 on the wire: each char is its own byte, anything beyond is replaced
+    private void appendChars(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            this.headers[this.headersLength++] = c <= 0xFF ? (byte) c : (byte) '?';
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (this.headersLength + length > this.headers.length) {
+            this.headers = Arrays.copyOf(this.headers, Math.max(this.headers.length * 2, this.headersLength + length));
+        }
+    }
+
+    private static byte[] asciiBytes(String value) {
+        return value.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -1,21 +1,38 @@
 package org.example.http;
 
+import java.nio.charset.StandardCharsets;
+import static org.example.http.HttpConfiguration.DEFAULT_HTTP_VERSION;
+
 public enum HttpResponseStatus {
     OK(200, "OK"),
+    PARTIAL_CONTENT(206, "Partial Content"),
+    NOT_MODIFIED(304, "Not Modified"),
     NOT_FOUND(404, "Not Found"),
     INTERNAL_SERVER_ERROR(500, "Internal Server Error"),
-    METHOD_NOT_ALLOWED(402, "Method Not Allowed"),
+    METHOD_NOT_ALLOWED(405, "Method Not Allowed"),
     FORBIDDEN(403, "Forbidden"),
     BAD_REQUEST(400, "Bad Request"),
     CREATED(201, "Created"),
-    UNSUPPORTED_MEDIA_TYPE(415, "Unsupported Media Type: Content-Type not supported");
+    REQUEST_TIMEOUT(408, "Request Timeout"),
+    PAYLOAD_TOO_LARGE(413, "Payload Too Large"),
+    UNSUPPORTED_MEDIA_TYPE(415, "Unsupported Media Type: Content-Type not supported"),
+    RANGE_NOT_SATISFIABLE(416, "Range Not Satisfiable"),
+    TOO_MANY_REQUESTS(429, "Too Many Requests"),
+    REQUEST_HEADER_FIELDS_TOO_LARGE(431, "Request Header Fields Too Large"),
+    NOT_IMPLEMENTED(501, "Not Implemented"),
+    SERVICE_UNAVAILABLE(503, "Service Unavailable");
 
     private final int status;
     private final String message;
+    // status lines encoded once for each version, HTTP/1.1 and HTTP/1.0
+    private final byte[] statusLine;
+    private final byte[] http10StatusLine;
 
     HttpResponseStatus(int status, String message) {
         this.status = status;
         this.message = message;
+        this.statusLine = encodeStatusLine(DEFAULT_HTTP_VERSION, status, message);
+        this.http10StatusLine = encodeStatusLine("HTTP/1.0", status, message);
     }
 
     public int getStatus() {
@@ -25,4 +42,13 @@ public enum HttpResponseStatus {
     public String getMessage() {
         return this.message;
     }
+
+    // validatedHttpVersion must be one of the allowed versions, the returned bytes must not be modified
+    public byte[] getStatusLine(String validatedHttpVersion) {
+        return DEFAULT_HTTP_VERSION.equals(validatedHttpVersion) ? this.statusLine : this.http10StatusLine;
+    }
+
+    private static byte[] encodeStatusLine(String httpVersion, int status, String message) {
+        return (httpVersion + " " + status + " " + message + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
 }
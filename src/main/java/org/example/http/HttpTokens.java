@@ -0,0 +1,68 @@
+package org.example.http;
+
+import java.nio.charset.StandardCharsets;
+
+// Maps the tokens seen in almost every request to shared constant strings, so that parsing them
+// allocates nothing. Unknown tokens fall back to a new (lowercased, for header names) string.
+final class HttpTokens {
+    private static final String[] METHODS = {
+            "GET", "POST", "PUT", "HEAD", "DELETE", "OPTIONS", "PATCH", "TRACE", "CONNECT"
+    };
+    private static final String[] VERSIONS = {
+            "HTTP/1.1", "HTTP/1.0", "HTTP/0.9"
+    };
+    private static final String[] HEADER_NAMES = {
+            "host", "connection", "content-length", "content-type", "transfer-encoding", "accept",
+            "accept-encoding", "accept-language", "user-agent", "cookie", "referer", "cache-control",
+            "if-none-match", "if-modified-since", "range", "if-range", "origin", "authorization", "pragma",
+            "upgrade-insecure-requests", "x-forwarded-for"
+    };
+
+    private HttpTokens() {}
+
+    static String method(byte[] bytes, int offset, int length) {
+        String method = find(METHODS, bytes, offset, length, false);
+        return method != null ? method : new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    static String version(byte[] bytes, int offset, int length) {
+        String version = find(VERSIONS, bytes, offset, length, false);
+        return version != null ? version : new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    // header names are case-insensitive, they are always returned lowercase
+    static String headerName(byte[] bytes, int offset, int length) {
+        String headerName = find(HEADER_NAMES, bytes, offset, length, true);
+        if (headerName != null) {
+            return headerName;
+        }
+        byte[] lowercase = new byte[length];
+        for (int i = 0; i < length; i++) {
+            lowercase[i] = toLowerCase(bytes[offset + i]);
+        }
+        return new String(lowercase, StandardCharsets.ISO_8859_1);
+    }
+
+    static byte toLowerCase(byte value) {
+        return value >= 'A' && value <= 'Z' ? (byte) (value + ('a' - 'A')) : value;
+    }
+
+    private static String find(String[] tokens, byte[] bytes, int offset, int length, boolean ignoreCase) {
+        for (String token : tokens) {
+            if (token.length() == length && matches(token, bytes, offset, ignoreCase)) {
+                return token;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(String token, byte[] bytes, int offset, boolean ignoreCase) {
+        for (int i = 0; i < token.length(); i++) {
+            byte value = ignoreCase ? toLowerCase(bytes[offset + i]) : bytes[offset + i];
+            if (value != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.http;
+
+import org.example.http.util.PercentDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Query string parameters, decoded on first access only: requests whose handler never looks at the query
+// keep it as the raw string. Pairs are held in one array, alternating names and values, in query order;
+// a name may have several values, a name without '=' has an empty value. Malformed escapes are kept as sent.
+public class QueryParameters {
+    private static final String[] NO_ENTRIES = new String[0];
+    private final String queryString;
+    private String[] entries;
+    private int size;
+
+    // queryString: without the '?', null if the request target has none
+    public QueryParameters(String queryString) {
+        this.queryString = queryString;
+    }
+
+    public String getQueryString() {
+        return this.queryString;
+    }
+
+    // the first value of the parameter, null if absent
+    public String get(String name) {
+        parse();
+        for (int i = 0; i < this.size; i += 2) {
+            if (this.entries[i].equals(name)) {
+                return this.entries[i + 1];
+            }
+        }
+        return null;
+    }
+
+    public List<String> getAll(String name) {
+        parse();
+        List<String> values = new ArrayList<>(1);
+        for (int i = 0; i < this.size; i += 2) {
+            if (this.entries[i].equals(name)) {
+                values.add(this.entries[i + 1]);
+            }
+        }
+        return values;
+    }
+
+    public Set<String> names() {
+        parse();
+        Set<String> names = new LinkedHashSet<>();
+        for (int i = 0; i < this.size; i += 2) {
+            names.add(this.entries[i]);
+        }
+        return names;
+    }
+
+    public int size() {
+        parse();
+        return this.size / 2;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    private void parse() {
+        if (this.entries != null) {
+            return;
+        }
+        if (this.queryString == null || this.queryString.isEmpty()) {
+            this.entries = NO_ENTRIES;
+            return;
+        }
+        String[] entries = new String[8];
+        int size = 0;
+        int start = 0;
+        while (start <= this.queryString.length()) {
+            int end = this.queryString.indexOf('&', start);
+            if (end < 0) {
+                end = this.queryString.length();
+            }
+            if (end > start) {
+                int equals = this.queryString.indexOf('=', start);
+                int nameEnd = equals >= 0 && equals < end ? equals : end;
+                if (size + 2 > entries.length) {
+                    entries = Arrays.copyOf(entries, entries.length * 2);
+                }
+                entries[size++] = decode(this.queryString.substring(start, nameEnd));
+                entries[size++] = nameEnd < end ? decode(this.queryString.substring(nameEnd + 1, end)) : "";
+            }
+            start = end + 1;
+        }
+        this.entries = entries;
+        this.size = size;
+    }
+
+    private static String decode(String value) {
+        try {
+            return PercentDecoder.decode(value, true);
+        } catch (IllegalArgumentException e) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.http;
+
+import org.example.http.util.HttpResponseBuilder;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import static org.example.http.HttpConfiguration.DEFAULT_HTTP_VERSION;
+
+// A response whose body is produced while it is sent, for bodies too big or too slow to be built in memory.
+// The head goes out first and is flushed, then the body is written by the handler's Body to a sink framing
+// it with the announced Content-Length, with the chunked transfer coding when the length is unknown, or,
+// for HTTP/1.0 clients that know no chunks, by closing the connection once done.
+public class StreamingResponse {
+    private final String httpVersion;
+    private final HttpResponseStatus status;
+    private final String contentType;
+    private final Map<String, String> headers;
+    private final long contentLength;
+    private final Body body;
+
+    @FunctionalInterface
+    public interface Body {
+        // flushing the stream sends what was written so far, closing it is optional
+        void writeTo(OutputStream body) throws IOException;
+    }
+
+    // contentLength: -1 if unknown. headers: additional headers, written in iteration order
+    public StreamingResponse(
+            String httpVersion,
+            HttpResponseStatus status,
+            String contentType,
+            Map<String, String> headers,
+            long contentLength,
+            Body body
+    ) {
+        this.httpVersion = httpVersion;
+        this.status = status;
+        this.contentType = contentType;
+        this.headers = headers;
+        this.contentLength = contentLength;
+        this.body = body;
+    }
+
+    public HttpResponseStatus getStatus() {
+        return this.status;
+    }
+
+    // returns whether the connection can be reused afterwards. an exception once the head is out leaves the
+    // response incomplete and the connection must be closed, failures of the body are thrown as IOExceptions
+    public boolean writeTo(HttpOutputBuffer outputBuffer, boolean keepAlive) throws IOException {
+        boolean chunked = this.contentLength < 0 && DEFAULT_HTTP_VERSION.equals(this.httpVersion);
+        keepAlive = keepAlive && (this.contentLength >= 0 || chunked);
+        HttpResponseBuilder.generateHttpStreamingResponse(
+                this.httpVersion, this.status, this.contentType, this.contentLength, this.headers, keepAlive
+        ).writeTo(outputBuffer);
+        outputBuffer.flush();
+        OutputStream sink;
+        if (chunked) {
+            sink = new ChunkedOutputStream(outputBuffer);
+        } else if (this.contentLength >= 0) {
+            sink = new FixedLengthOutputStream(outputBuffer, this.contentLength);
+        } else {
+            sink = new FilterOutputStream(outputBuffer) {
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    this.out.write(bytes, offset, length);
+                }
+
+                @Override
+                public void close() {
+                    // the connection is closed by the caller
+                }
+            };
+        }
+        try {
+            this.body.writeTo(sink);
+        } catch (RuntimeException e) {
+            throw new IOException("Response body failed: " + e.getMessage(), e);
+        }
+        // only once the body is complete: closing writes the last chunk or checks the length, a failed body must
+        // reach the client cut short and not look like a whole response
+        sink.close();
+        return keepAlive;
+    }
+}
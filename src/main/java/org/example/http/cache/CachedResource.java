@@ -0,0 +1,147 @@
+package org.example.http.cache;
+
+import org.example.http.ContentEncoding;
+import org.example.http.HttpResponseStatus;
+import org.example.http.util.ConditionalRequest;
+import org.example.http.util.HttpResponseBuilder;
+import org.example.http.util.ResourceManager;
+import org.example.http.util.StaticResource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.EnumMap;
+import java.util.Map;
+import static org.example.http.HttpConfiguration.COMPRESSION_MIN_BYTES;
+import static org.example.http.HttpConfiguration.DEFAULT_HTTP_VERSION;
+import static org.example.http.HttpConfiguration.STATIC_CACHE_REVALIDATE_MILLIS;
+
+// A static file with the responses rendered for each of its content encodings, identity included,
+// along with the 304 answering a revalidation of each. Compressed variants are built once when the
+// file is loaded, or read from precompressed siblings.
+public class CachedResource {
+    private final Map<ContentEncoding, Variant> variants;
+    private final int size;
+    private final String contentType;
+    private final Path file;
+    private final FileTime lastModified;
+    private final String lastModifiedDate;
+    private volatile long lastValidatedMillis;
+    private volatile long lastAccess;
+
+    // headers: the representation headers of response, repeated in partial responses built from it
+    public record Variant(CachedResponse response, CachedResponse notModified, String entityTag, Map<String, String> headers) {
+        int size() {
+            return this.response.size() + this.notModified.size();
+        }
+    }
+
+    // file and lastModified: the file the body was read from, null if it cannot change (e.g. inside a jar)
+    public CachedResource(Map<ContentEncoding, Variant> variants, String contentType, Path file, FileTime lastModified) {
+        this.variants = new EnumMap<>(variants);
+        this.size = variants.values().stream().mapToInt(Variant::size).sum();
+        this.contentType = contentType;
+        this.file = file;
+        this.lastModified = lastModified;
+        this.lastModifiedDate = ConditionalRequest.formatHttpDate(lastModified);
+        this.lastValidatedMillis = System.currentTimeMillis();
+    }
+
+    public static CachedResource load(String resourcePath, StaticResource staticResource, String contentType) throws IOException {
+        byte[] content = staticResource.readAllBytes();
+        Map<ContentEncoding, byte[]> bodies = new EnumMap<>(ContentEncoding.class);
+        bodies.put(ContentEncoding.IDENTITY, content);
+        boolean compressible = ContentEncoding.isCompressible(contentType) && content.length >= COMPRESSION_MIN_BYTES;
+        for (ContentEncoding contentEncoding : ContentEncoding.values()) {
+            byte[] encoded = null;
+            try (StaticResource precompressed = ResourceManager.getPrecompressedResource(resourcePath, contentEncoding)) {
+                if (precompressed != null) {
+                    encoded = precompressed.readAllBytes();
+                }
+            }
+            if (encoded == null && compressible && contentEncoding.canEncode()) {
+                encoded = contentEncoding.encode(content);
+            }
+            // not worth a Content-Encoding if nothing is saved
+            if (encoded != null && encoded.length < content.length) {
+                bodies.put(contentEncoding, encoded);
+            }
+        }
+        boolean varyOnEncoding = bodies.size() > 1;
+        String entityTag = staticResource.getEntityTag();
+        String lastModifiedDate = ConditionalRequest.formatHttpDate(staticResource.getLastModified());
+        Map<ContentEncoding, Variant> variants = new EnumMap<>(ContentEncoding.class);
+        bodies.forEach((contentEncoding, body) -> {
+            String variantEntityTag = ConditionalRequest.variantEntityTag(entityTag, contentEncoding);
+            Map<String, String> headers = HttpResponseBuilder.generateRepresentationHeaders(
+                    contentEncoding, varyOnEncoding, variantEntityTag, lastModifiedDate);
+            variants.put(contentEncoding, new Variant(
+                    new CachedResponse(
+                            HttpResponseBuilder.generateHttpGetResponse(
+                                    DEFAULT_HTTP_VERSION,
+                                    HttpResponseStatus.OK,
+                                    body.length,
+                                    contentType,
+                                    headers,
+                                    true),
+                            body),
+                    new CachedResponse(
+                            HttpResponseBuilder.generateHttpNotModifiedResponse(
+                                    DEFAULT_HTTP_VERSION,
+                                    HttpResponseBuilder.generateValidatorHeaders(varyOnEncoding, variantEntityTag, lastModifiedDate),
+                                    true),
+                            new byte[0]),
+                    variantEntityTag,
+                    headers
+            ));
+        });
+        return new CachedResource(variants, contentType, staticResource.getFile(), staticResource.getLastModified());
+    }
+
+    // the variant for the client's Accept-Encoding header (null if it sent none)
+    public Variant select(String acceptEncoding) {
+        return this.variants.get(ContentEncoding.negotiate(acceptEncoding, this.variants.keySet()));
+    }
+
+    // whether the client's copy of the variant is still current, header values are null when not sent
+    public boolean isNotModified(Variant variant, String ifNoneMatch, String ifModifiedSince) {
+        return (ifNoneMatch != null || ifModifiedSince != null) && ConditionalRequest.isNotModified(
+                ifNoneMatch, ifModifiedSince, variant.entityTag(), this.lastModified, this.lastModifiedDate);
+    }
+
+    public String getContentType() {
+        return this.contentType;
+    }
+
+    public String getLastModifiedDate() {
+        return this.lastModifiedDate;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    // the file is checked at most once per STATIC_CACHE_REVALIDATE_MILLIS, a hit in between costs no system call
+    boolean isStale(long nowMillis) {
+        if (this.file == null || nowMillis - this.lastValidatedMillis < STATIC_CACHE_REVALIDATE_MILLIS) {
+            return false;
+        }
+        this.lastValidatedMillis = nowMillis;
+        try {
+            return !Files.getLastModifiedTime(this.file).equals(this.lastModified);
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    long getLastAccess() {
+        return this.lastAccess;
+    }
+
+    // skips the write while the recency clock has not moved, hot entries are then only read by all threads
+    void touch(long clock) {
+        if (this.lastAccess != clock) {
+            this.lastAccess = clock;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.http.cache;
+
+import org.example.http.HttpOutputBuffer;
+import org.example.http.HttpResponse;
+import org.example.http.HttpResponseStatus;
+import java.io.IOException;
+import static org.example.http.HttpConfiguration.DEFAULT_HTTP_VERSION;
+
+// A complete response (status line, headers and body) rendered once for HTTP/1.1 on a persistent
+// connection, the case of nearly every request, which is then written as is with only the current Date line
+// spliced in after the status line. Other versions or a closing connection also swap in their pre-encoded
+// status line and Connection header.
+public class CachedResponse {
+    private final HttpResponseStatus status;
+    private final byte[] response;
+    // index of the end of the status line, where the Date line goes
+    private final int statusLineEnd;
+    // index of the empty line ending the head
+    private final int headEnd;
+
+    public CachedResponse(HttpResponse head, byte[] body) {
+        this.status = head.getStatus();
+        byte[] statusLine = this.status.getStatusLine(DEFAULT_HTTP_VERSION);
+        byte[] serverHeader = HttpResponse.serverHeader();
+        byte[] headers = head.getHeaderBytes();
+        this.statusLineEnd = statusLine.length;
+        this.headEnd = statusLine.length + serverHeader.length + headers.length;
+        this.response = new byte[this.headEnd + 2 + body.length];
+        System.arraycopy(statusLine, 0, this.response, 0, statusLine.length);
+        System.arraycopy(serverHeader, 0, this.response, this.statusLineEnd, serverHeader.length);
+        System.arraycopy(headers, 0, this.response, this.statusLineEnd + serverHeader.length, headers.length);
+        this.response[this.headEnd] = '\r';
+        this.response[this.headEnd + 1] = '\n';
+        System.arraycopy(body, 0, this.response, this.headEnd + 2, body.length);
+    }
+
+    public HttpResponseStatus getStatus() {
+        return this.status;
+    }
+
+    public int size() {
+        return this.response.length;
+    }
+
+    public long getBodyLength() {
+        return this.response.length - this.headEnd - 2;
+    }
+
+    // a region of the body alone, for a response with a head of its own (e.g. 206)
+    public void writeBodyTo(HttpOutputBuffer outputBuffer, long position, long count) throws IOException {
+        outputBuffer.writeShared(this.response, this.headEnd + 2 + (int) position, (int) count);
+    }
+
+    // httpVersion must be one of the allowed versions
+    public void writeTo(HttpOutputBuffer outputBuffer, String httpVersion, boolean keepAlive) throws IOException {
+        byte[] connectionHeader = HttpResponse.connectionHeader(httpVersion, keepAlive);
+        if (DEFAULT_HTTP_VERSION.equals(httpVersion)) {
+            outputBuffer.write(this.response, 0, this.statusLineEnd);
+        } else {
+            outputBuffer.write(this.status.getStatusLine(httpVersion));
+        }
+        outputBuffer.write(HttpResponse.dateHeader());
+        if (connectionHeader.length == 0) {
+            outputBuffer.writeShared(this.response, this.statusLineEnd, this.response.length - this.statusLineEnd);
+            return;
+        }
+        outputBuffer.write(this.response, this.statusLineEnd, this.headEnd - this.statusLineEnd);
+        outputBuffer.write(connectionHeader);
+        outputBuffer.writeShared(this.response, this.headEnd, this.response.length - this.headEnd);
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.http.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import static org.example.http.HttpConfiguration.STATIC_CACHE_MAX_BYTES;
+
+// Pre-rendered static resources (all their encodings) keyed by validated resource path, bounded by a byte budget.
+// Lookups are lock-free: recency is an approximate LRU where the clock only advances on insertion,
+// so a hit just reads the clock and entries are ordered by the last insertion they were used after.
+// Eviction (least recently used first) only runs on the insertion path, under a lock.
+public class StaticResponseCache {
+    private static final StaticResponseCache INSTANCE = new StaticResponseCache(STATIC_CACHE_MAX_BYTES);
+    private final ConcurrentHashMap<String, CachedResource> entries;
+    private volatile long maxBytes;
+    private final AtomicLong currentBytes;
+    private final AtomicLong clock;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    public StaticResponseCache(long maxBytes) {
+        this.entries = new ConcurrentHashMap<>();
+        this.maxBytes = maxBytes;
+        this.currentBytes = new AtomicLong();
+        this.clock = new AtomicLong();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    public static StaticResponseCache getInstance() {
+        return INSTANCE;
+    }
+
+    public CachedResource get(String resourcePath) {
+        CachedResource cachedResource = this.entries.get(resourcePath);
+        if (cachedResource != null && cachedResource.isStale(System.currentTimeMillis())) {
+            remove(resourcePath, cachedResource);
+            cachedResource = null;
+        }
+        if (cachedResource == null) {
+            this.misses.increment();
+            return null;
+        }
+        cachedResource.touch(this.clock.get());
+        this.hits.increment();
+        return cachedResource;
+    }
+
+    public void put(String resourcePath, CachedResource cachedResource) {
+        if (cachedResource.size() > this.maxBytes) {
+            return;
+        }
+        cachedResource.touch(this.clock.incrementAndGet());
+        // hits from now on rank after this insertion
+        this.clock.incrementAndGet();
+        CachedResource previous = this.entries.put(resourcePath, cachedResource);
+        this.currentBytes.addAndGet(cachedResource.size() - (previous != null ? previous.size() : 0));
+        if (this.currentBytes.get() > this.maxBytes) {
+            evict();
+        }
+    }
+
+    private void remove(String resourcePath, CachedResource cachedResource) {
+        if (this.entries.remove(resourcePath, cachedResource)) {
+            this.currentBytes.addAndGet(-cachedResource.size());
+        }
+    }
+
+    private synchronized void evict() {
+        if (this.currentBytes.get() <= this.maxBytes) {
+            return;
+        }
+        // recency is snapshotted first, hits keep updating it while we sort
+        List<EvictionCandidate> candidates = new ArrayList<>(this.entries.size());
+        this.entries.forEach((resourcePath, cachedResource) ->
+                candidates.add(new EvictionCandidate(resourcePath, cachedResource, cachedResource.getLastAccess())));
+        candidates.sort(Comparator.comparingLong(EvictionCandidate::lastAccess));
+        for (EvictionCandidate candidate : candidates) {
+            if (this.currentBytes.get() <= this.maxBytes) {
+                break;
+            }
+            if (this.entries.remove(candidate.resourcePath(), candidate.cachedResource())) {
+                this.currentBytes.addAndGet(-candidate.cachedResource().size());
+                this.evictions.increment();
+            }
+        }
+    }
+
+    // a smaller budget evicts down to it right away, a larger one just lets more entries in
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        if (this.currentBytes.get() > maxBytes) {
+            evict();
+        }
+    }
+
+    public long getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    private record EvictionCandidate(String resourcePath, CachedResource cachedResource, long lastAccess) {}
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    public long getSizeInBytes() {
+        return this.currentBytes.get();
+    }
+
+    public int getEntryCount() {
+        return this.entries.size();
+    }
+}
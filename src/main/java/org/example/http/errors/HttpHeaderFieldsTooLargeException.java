@@ -0,0 +1,7 @@
+package org.example.http.errors;
+
+public class HttpHeaderFieldsTooLargeException extends InvalidHttpHeaderException {
+    public HttpHeaderFieldsTooLargeException(String errorMessage) {
+        super(errorMessage);
+    }
+}
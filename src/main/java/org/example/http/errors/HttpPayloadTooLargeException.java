@@ -0,0 +1,7 @@
+package org.example.http.errors;
+
+public class HttpPayloadTooLargeException extends InvalidHttpBodyException {
+    public HttpPayloadTooLargeException(String errorMessage) {
+        super(errorMessage);
+    }
+}
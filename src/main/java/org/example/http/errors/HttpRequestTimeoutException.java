@@ -0,0 +1,26 @@
+package org.example.http.errors;
+
+import java.net.SocketTimeoutException;
+
+// thrown by the connection input when a client is too slow to send its request, see HttpInputBuffer
+public class HttpRequestTimeoutException extends SocketTimeoutException {
+    public enum Reason {
+        // request line and headers not received within their deadline
+        HEAD,
+        // nothing received for too long in the middle of a body
+        BODY,
+        // body received, but slower than the minimum transfer rate
+        BODY_RATE
+    }
+
+    private final Reason reason;
+
+    public HttpRequestTimeoutException(Reason reason, String errorMessage) {
+        super(errorMessage);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return this.reason;
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.http.errors;
+
+public class HttpTransferCodingNotImplementedException extends InvalidHttpHeaderException {
+    public HttpTransferCodingNotImplementedException(String errorMessage) {
+        super(errorMessage);
+    }
+}
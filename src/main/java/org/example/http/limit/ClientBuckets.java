@@ -0,0 +1,64 @@
+package org.example.http.limit;
+
+import java.net.InetAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// TokenBuckets by client address, spread over STRIPES maps of at most maxClients / STRIPES entries each so that
+// a flood of addresses cannot grow it without bound. A full stripe drops its full (idle) buckets, at most once
+// per SWEEP_INTERVAL_NANOS so that a stripe of active clients is not scanned on every miss. Clients that still
+// find no room share an overflow bucket: under a flood of addresses they are throttled together rather than
+// not at all.
+final class ClientBuckets {
+    private static final int STRIPES = 64;
+    private static final long SWEEP_INTERVAL_NANOS = 100_000_000;
+    private final Stripe[] stripes;
+    private final int stripeCapacity;
+    private final TokenBucket overflow;
+
+    private static final class Stripe {
+        private final ConcurrentHashMap<InetAddress, TokenBucket> buckets = new ConcurrentHashMap<>();
+        private final AtomicLong nextSweepNanos = new AtomicLong(System.nanoTime());
+    }
+
+    ClientBuckets(int maxClients) {
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.stripeCapacity = Math.max(1, maxClients / STRIPES);
+        this.overflow = new TokenBucket(System.nanoTime());
+    }
+
+    TokenBucket get(InetAddress client, long nowNanos) {
+        int hash = client.hashCode();
+        Stripe stripe = this.stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+        TokenBucket bucket = stripe.buckets.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (stripe.buckets.size() >= this.stripeCapacity && (!sweep(stripe, nowNanos) || stripe.buckets.size() >= this.stripeCapacity)) {
+            return this.overflow;
+        }
+        return stripe.buckets.computeIfAbsent(client, address -> new TokenBucket(nowNanos));
+    }
+
+    // false when the stripe was swept recently or is being swept by another thread. A request racing with the
+    // removal of its bucket may be let through by a bucket that is then dropped, which costs at most one token
+    private static boolean sweep(Stripe stripe, long nowNanos) {
+        long nextSweep = stripe.nextSweepNanos.get();
+        if (nowNanos - nextSweep < 0 || !stripe.nextSweepNanos.compareAndSet(nextSweep, nowNanos + SWEEP_INTERVAL_NANOS)) {
+            return false;
+        }
+        stripe.buckets.values().removeIf(bucket -> bucket.isFull(nowNanos));
+        return true;
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : this.stripes) {
+            size += stripe.buckets.size();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.http.limit;
+
+import java.net.InetAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.example.http.HttpConfiguration.MAX_CONNECTIONS;
+import static org.example.http.HttpConfiguration.MAX_CONNECTIONS_PER_CLIENT;
+
+// Caps on the connections open at once, per client and for the whole server. Connections are counted whether or
+// not a cap is set, so that a cap set by a reload applies to the connections already open. Clients are only
+// tracked while they have a connection open, the map is bounded by the open connections.
+public final class ConnectionLimiter {
+    private static final ConnectionLimiter INSTANCE = new ConnectionLimiter(MAX_CONNECTIONS_PER_CLIENT, MAX_CONNECTIONS);
+    private final AtomicInteger openConnections;
+    private final ConcurrentHashMap<InetAddress, Integer> openConnectionsByClient;
+    // 0 for no cap
+    private volatile int maxConnectionsPerClient;
+    private volatile int maxConnections;
+
+    public ConnectionLimiter(int maxConnectionsPerClient, int maxConnections) {
+        this.openConnections = new AtomicInteger();
+        this.openConnectionsByClient = new ConcurrentHashMap<>();
+        setLimits(maxConnectionsPerClient, maxConnections);
+    }
+
+    public static ConnectionLimiter getInstance() {
+        return INSTANCE;
+    }
+
+    // for ConfigurationReloader, connections over a lowered cap are left open
+    public void setLimits(int maxConnectionsPerClient, int maxConnections) {
+        this.maxConnectionsPerClient = maxConnectionsPerClient;
+        this.maxConnections = maxConnections;
+    }
+
+    // null when the connection may be served, close must then be called once it is closed.
+    // client: null when unknown, only the server-wide cap applies then
+    public Limit open(InetAddress client) {
+        int maxConnections = this.maxConnections;
+        if (this.openConnections.incrementAndGet() > maxConnections && maxConnections > 0) {
+            this.openConnections.decrementAndGet();
+            return Limit.CONNECTIONS;
+        }
+        if (client != null) {
+            int maxConnectionsPerClient = this.maxConnectionsPerClient;
+            if (this.openConnectionsByClient.merge(client, 1, Integer::sum) > maxConnectionsPerClient && maxConnectionsPerClient > 0) {
+                close(client);
+                return Limit.CLIENT_CONNECTIONS;
+            }
+        }
+        return null;
+    }
+
+    public void close(InetAddress client) {
+        this.openConnections.decrementAndGet();
+        if (client != null) {
+            this.openConnectionsByClient.computeIfPresent(client, (address, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    public int getOpenConnections() {
+        return this.openConnections.get();
+    }
+
+    public int getOpenConnections(InetAddress client) {
+        return this.openConnectionsByClient.getOrDefault(client, 0);
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.http.limit;
+
+import org.example.http.HttpResponseStatus;
+
+// what a refused request or connection went over: a client's own limits are answered with 429, the server's
+// with 503
+public enum Limit {
+    CLIENT_CONNECTIONS(HttpResponseStatus.TOO_MANY_REQUESTS),
+    CONNECTIONS(HttpResponseStatus.SERVICE_UNAVAILABLE),
+    CLIENT_REQUESTS(HttpResponseStatus.TOO_MANY_REQUESTS),
+    ROUTE_REQUESTS(HttpResponseStatus.TOO_MANY_REQUESTS),
+    REQUESTS(HttpResponseStatus.SERVICE_UNAVAILABLE);
+
+    private final HttpResponseStatus status;
+
+    Limit(HttpResponseStatus status) {
+        this.status = status;
+    }
+
+    public HttpResponseStatus getStatus() {
+        return this.status;
+    }
+}
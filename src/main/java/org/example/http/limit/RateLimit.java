@@ -0,0 +1,56 @@
+package org.example.http.limit;
+
+// requestsPerSecond sustained, with bursts of up to burst requests. Kept as the spacing between requests and the
+// slack a burst may use, so that checking a TokenBucket against it takes no division
+public final class RateLimit {
+    private final double requestsPerSecond;
+    private final int burst;
+    final long intervalNanos;
+    final long burstNanos;
+
+    public RateLimit(double requestsPerSecond, int burst) {
+        if (!(requestsPerSecond > 0) || requestsPerSecond > 1_000_000_000) {
+            throw new IllegalArgumentException("requests per second must be positive");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1");
+        }
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.intervalNanos = (long) (1_000_000_000 / requestsPerSecond);
+        try {
+            // TokenBucket compares nanoTime differences of up to one interval more than the burst
+            Math.multiplyExact(this.intervalNanos, burst + 1L);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("burst too large for the rate");
+        }
+        this.burstNanos = this.intervalNanos * burst;
+    }
+
+    // "requests per second[/burst]", e.g. "20/40" or "0.5". The burst defaults to one second of requests
+    public static RateLimit parse(String spec) {
+        int separator = spec.indexOf('/');
+        try {
+            double requestsPerSecond = Double.parseDouble((separator < 0 ? spec : spec.substring(0, separator)).trim());
+            int burst = separator < 0
+                    ? (int) Math.max(1, Math.ceil(requestsPerSecond))
+                    : Integer.parseInt(spec.substring(separator + 1).trim());
+            return new RateLimit(requestsPerSecond, burst);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("expected requests per second[/burst]");
+        }
+    }
+
+    public double getRequestsPerSecond() {
+        return this.requestsPerSecond;
+    }
+
+    public int getBurst() {
+        return this.burst;
+    }
+
+    @Override
+    public String toString() {
+        return this.requestsPerSecond + "/" + this.burst;
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.http.limit;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+import static org.example.http.HttpConfiguration.CLIENT_RATE_LIMIT;
+import static org.example.http.HttpConfiguration.GLOBAL_RATE_LIMIT;
+import static org.example.http.HttpConfiguration.RATE_LIMIT_MAX_CLIENTS;
+import static org.example.http.HttpConfiguration.ROUTE_RATE_LIMITS;
+
+// Request rate limits, checked once the request head is parsed and before its body is read: per client on the
+// matched route, per client on any request, then for the whole server. A request refused by a client limit
+// takes nothing from the server-wide one, so a throttled client cannot use it up for the others.
+// With no limit set a check is a single volatile read.
+public final class RateLimiter {
+    private static final RateLimiter INSTANCE = new RateLimiter(RATE_LIMIT_MAX_CLIENTS, CLIENT_RATE_LIMIT, GLOBAL_RATE_LIMIT, ROUTE_RATE_LIMITS);
+    private final int maxClients;
+    private final ClientBuckets clientBuckets;
+    private final TokenBucket globalBucket;
+    private volatile Limits limits;
+
+    public record Rejection(Limit limit, long retryAfterNanos) {
+        // for the Retry-After header, rounded up
+        public long getRetryAfterSeconds() {
+            return (this.retryAfterNanos + 999_999_999) / 1_000_000_000;
+        }
+    }
+
+    private record RouteLimit(RateLimit limit, ClientBuckets buckets) {}
+
+    // client, global: null for no limit. routes: by "METHOD pattern", as in Router.Match.route()
+    private record Limits(RateLimit client, RateLimit global, Map<String, RouteLimit> routes) {
+        boolean isEmpty() {
+            return this.client == null && this.global == null && this.routes.isEmpty();
+        }
+    }
+
+    // maxClients: clients tracked by each limit, see ClientBuckets
+    public RateLimiter(int maxClients, RateLimit client, RateLimit global, Map<String, RateLimit> routes) {
+        this.maxClients = maxClients;
+        this.clientBuckets = new ClientBuckets(maxClients);
+        this.globalBucket = new TokenBucket(System.nanoTime());
+        this.limits = new Limits(null, null, Map.of());
+        setLimits(client, global, routes);
+    }
+
+    public static RateLimiter getInstance() {
+        return INSTANCE;
+    }
+
+    // for ConfigurationReloader. Buckets in use are kept, those of routes no longer limited are dropped
+    public synchronized void setLimits(RateLimit client, RateLimit global, Map<String, RateLimit> routes) {
+        Map<String, RouteLimit> routeLimits = new HashMap<>();
+        routes.forEach((route, limit) -> {
+            RouteLimit current = this.limits.routes().get(route);
+            routeLimits.put(route, new RouteLimit(limit, current != null ? current.buckets() : new ClientBuckets(this.maxClients)));
+        });
+        this.limits = new Limits(client, global, Map.copyOf(routeLimits));
+    }
+
+    // null when the request may be served. client: null when unknown, only the server-wide limit applies then.
+    // route: null when no route matched
+    public Rejection acquire(InetAddress client, String route) {
+        return this.limits.isEmpty() ? null : acquire(client, route, System.nanoTime());
+    }
+
+    public Rejection acquire(InetAddress client, String route, long nowNanos) {
+        Limits limits = this.limits;
+        if (client != null) {
+            RouteLimit routeLimit = route != null ? limits.routes().get(route) : null;
+            if (routeLimit != null) {
+                long wait = routeLimit.buckets().get(client, nowNanos).tryAcquire(routeLimit.limit(), nowNanos);
+                if (wait > 0) {
+                    return new Rejection(Limit.ROUTE_REQUESTS, wait);
+                }
+            }
+            if (limits.client() != null) {
+                long wait = this.clientBuckets.get(client, nowNanos).tryAcquire(limits.client(), nowNanos);
+                if (wait > 0) {
+                    return new Rejection(Limit.CLIENT_REQUESTS, wait);
+                }
+            }
+        }
+        if (limits.global() != null) {
+            long wait = this.globalBucket.tryAcquire(limits.global(), nowNanos);
+            if (wait > 0) {
+                return new Rejection(Limit.REQUESTS, wait);
+            }
+        }
+        return null;
+    }
+
+    // clients with a bucket for the per-client limit
+    public int getTrackedClients() {
+        return this.clientBuckets.size();
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.http.limit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token bucket kept as a single timestamp, the time at which it will be full again (the generic cell rate
+// algorithm): taking a token pushes it one interval later, and it is refused when that would go past a burst of
+// intervals from now. One read and one compare-and-set, no lock and no refill thread. The limit is passed on
+// each call, so a reloaded one applies to buckets already in use.
+final class TokenBucket {
+    private final AtomicLong fullAtNanos;
+
+    TokenBucket(long nowNanos) {
+        this.fullAtNanos = new AtomicLong(nowNanos);
+    }
+
+    // 0 when a token was taken, otherwise the nanoseconds until the next one. nowNanos: System.nanoTime()
+    long tryAcquire(RateLimit limit, long nowNanos) {
+        while (true) {
+            long fullAt = this.fullAtNanos.get();
+            long next = (fullAt - nowNanos > 0 ? fullAt : nowNanos) + limit.intervalNanos;
+            long wait = next - nowNanos - limit.burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (this.fullAtNanos.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // a full bucket holds no state, dropping it and creating a new one later changes nothing
+    boolean isFull(long nowNanos) {
+        return this.fullAtNanos.get() - nowNanos <= 0;
+    }
+}
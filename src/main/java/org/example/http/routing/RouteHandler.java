@@ -0,0 +1,12 @@
+package org.example.http.routing;
+
+import org.example.http.StreamingResponse;
+import org.example.http.errors.InvalidHttpRequestException;
+import java.io.IOException;
+
+// A dynamic endpoint mounted on the Router. The returned response is written by HttpRequestHandler, with the
+// request's HTTP version and connection handling; an InvalidHttpRequestException is answered with 400.
+@FunctionalInterface
+public interface RouteHandler {
+    StreamingResponse handle(RouteRequest request) throws IOException, InvalidHttpRequestException;
+}
@@ -0,0 +1,90 @@
+package org.example.http.routing;
+
+import org.example.http.HttpHeaders;
+import org.example.http.HttpRequestLine;
+import org.example.http.HttpRequestParser;
+import org.example.http.QueryParameters;
+import org.example.http.errors.InvalidHttpRequestException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+// What a RouteHandler gets to see of a request: its line, headers (case-insensitive), query parameters, the
+// values captured by the route pattern and, at most once, its body
+public class RouteRequest {
+    private final HttpRequestLine httpRequestLine;
+    private final Map<String, String> httpRequestHeaders;
+    private final Map<String, String> pathParameters;
+    private final HttpRequestParser httpRequestParser;
+    private boolean bodyRead;
+
+    public RouteRequest(
+            HttpRequestLine httpRequestLine,
+            Map<String, String> httpRequestHeaders,
+            Map<String, String> pathParameters,
+            HttpRequestParser httpRequestParser
+    ) {
+        this.httpRequestLine = httpRequestLine;
+        this.httpRequestHeaders = httpRequestHeaders;
+        this.pathParameters = pathParameters;
+        this.httpRequestParser = httpRequestParser;
+    }
+
+    public HttpRequestLine getHttpRequestLine() {
+        return this.httpRequestLine;
+    }
+
+    public String getHttpMethod() {
+        return this.httpRequestLine.getHttpMethod();
+    }
+
+    public String getHeader(String name) {
+        return this.httpRequestHeaders.get(name);
+    }
+
+    // every value of a repeated header, in the order received
+    public List<String> getHeaderValues(String name) {
+        if (this.httpRequestHeaders instanceof HttpHeaders httpHeaders) {
+            return httpHeaders.getAll(name);
+        }
+        String value = this.httpRequestHeaders.get(name);
+        return value != null ? List.of(value) : List.of();
+    }
+
+    public Map<String, String> getHeaders() {
+        return this.httpRequestHeaders;
+    }
+
+    // the value of a {name} segment, or of "*" for the rest of the path matched by a wildcard
+    public String getPathParameter(String name) {
+        return this.pathParameters.get(name);
+    }
+
+    public Map<String, String> getPathParameters() {
+        return this.pathParameters;
+    }
+
+    // the first value of a query parameter, null if absent. the query is only parsed once asked for
+    public String getQueryParameter(String name) {
+        return this.httpRequestLine.getQueryParameters().get(name);
+    }
+
+    public QueryParameters getQueryParameters() {
+        return this.httpRequestLine.getQueryParameters();
+    }
+
+    // copies the body to the sink, returns its length or -1 when the request has none
+    public long readBody(OutputStream sink) throws IOException, InvalidHttpRequestException {
+        if (this.bodyRead) {
+            throw new IllegalStateException("Request body already read.");
+        }
+        this.bodyRead = true;
+        return this.httpRequestParser.readHttpRequestBody(sink);
+    }
+
+    // a body left unread would be taken for the next request on the connection
+    public boolean isBodyRead() {
+        return this.bodyRead;
+    }
+}
@@ -0,0 +1,189 @@
+package org.example.http.routing;
+
+import org.example.http.util.PercentDecoder;
+import org.example.metrics.MetricsEndpoint;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import static org.example.http.HttpConfiguration.METRICS_PATH;
+
+// Route registry compiled into a trie with one level per path segment. A pattern segment is a literal, a
+// {name} capturing one segment, or a trailing * capturing the rest of the path (possibly empty). Lookup walks
+// the request path once, percent-decoding each segment on its own so that an encoded '/' does not end it,
+// trying literal children before parameters before wildcards and only backtracking when a more specific branch
+// dead-ends, so its cost depends on the path length and not on the route count.
+// The most specific pattern matching the path decides: if it has no route for the method the answer is
+// "method not allowed", less specific patterns are not tried for it.
+// Routes are added before the server starts, lookups are not synchronized with additions.
+public class Router {
+    public static final String WILDCARD = "*";
+    private static final Router INSTANCE = withDefaultRoutes();
+    private final Node root = new Node();
+
+    // STATIC_FILES and UPLOADS are served by HttpRequestHandler itself, mounted by default on GET /* and POST /*
+    // next to the metrics endpoint. HANDLER routes are served by their RouteHandler
+    public enum RouteType {STATIC_FILES, UPLOADS, HANDLER}
+
+    // type, handler and route are null when the path matches routes of other methods only, allowedMethods (the
+    // value of the 405's Allow header) lists them. handler: null unless type is HANDLER. route: "METHOD pattern"
+    // of the matched route, e.g. "GET /api/users/{id}", the key of its jwebserver.routeRateLimits entry
+    public record Match(RouteType type, RouteHandler handler, Map<String, String> pathParameters, String route, String allowedMethods) {}
+
+    private record Route(RouteType type, RouteHandler handler, List<String> parameterNames, String name) {}
+
+    private static final class Node {
+        private final Map<String, Node> literalChildren = new HashMap<>();
+        private Node parameterChild;
+        private Node wildcardChild;
+        // by method, empty for nodes no pattern ends at
+        private final Map<String, Route> routes = new HashMap<>();
+    }
+
+    public static Router getInstance() {
+        return INSTANCE;
+    }
+
+    public static Router withDefaultRoutes() {
+        Router router = new Router();
+        router.add("GET", "/*", RouteType.STATIC_FILES, null);
+        router.add("POST", "/*", RouteType.UPLOADS, null);
+        if (!METRICS_PATH.isEmpty()) {
+            router.add("GET", METRICS_PATH, new MetricsEndpoint());
+        }
+        return router;
+    }
+
+    public Router add(String method, String pattern, RouteHandler handler) {
+        return add(method, pattern, RouteType.HANDLER, Objects.requireNonNull(handler, "handler"));
+    }
+
+    // the node is left in the trie, a pattern without routes matches nothing
+    public Router remove(String method, String pattern) {
+        Node node = this.root;
+        String[] segments = pattern.substring(1).split("/", -1);
+        for (int i = 0; i < segments.length && node != null; i++) {
+            String segment = segments[i];
+            if (segment.isEmpty() && i == segments.length - 1) {
+                break;
+            }
+            if (WILDCARD.equals(segment)) {
+                node = node.wildcardChild;
+            } else if (segment.startsWith("{") && segment.endsWith("}") && segment.length() > 2) {
+                node = node.parameterChild;
+            } else {
+                node = node.literalChildren.get(segment);
+            }
+        }
+        if (node != null) {
+            node.routes.remove(method);
+        }
+        return this;
+    }
+
+    private Router add(String method, String pattern, RouteType type, RouteHandler handler) {
+        if (!pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Route pattern must start with '/': " + pattern);
+        }
+        Node node = this.root;
+        List<String> parameterNames = new ArrayList<>();
+        String[] segments = pattern.substring(1).split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.isEmpty() && i == segments.length - 1) {
+                // "/" and trailing slashes add no level, as in lookups
+                break;
+            }
+            if (WILDCARD.equals(segment)) {
+                if (i != segments.length - 1) {
+                    throw new IllegalArgumentException("Wildcard must be the last segment: " + pattern);
+                }
+                if (node.wildcardChild == null) {
+                    node.wildcardChild = new Node();
+                }
+                node = node.wildcardChild;
+                parameterNames.add(WILDCARD);
+            } else if (segment.startsWith("{") && segment.endsWith("}") && segment.length() > 2) {
+                if (node.parameterChild == null) {
+                    node.parameterChild = new Node();
+                }
+                node = node.parameterChild;
+                parameterNames.add(segment.substring(1, segment.length() - 1));
+            } else {
+                node = node.literalChildren.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+        if (node.routes.putIfAbsent(method, new Route(type, handler, List.copyOf(parameterNames), method + " " + pattern)) != null) {
+            throw new IllegalArgumentException("Route already defined: " + method + " " + pattern);
+        }
+        return this;
+    }
+
+    // rawPath: as sent, without query, with valid percent-encoding (see HttpRequestLine.getRawPath). null when no
+    // pattern matches the path
+    public Match match(String method, String rawPath) {
+        Objects.requireNonNull(method, "method");
+        List<String> values = new ArrayList<>(4);
+        Node node = find(this.root, rawPath, 1, rawPath.length(), values);
+        if (node == null) {
+            return null;
+        }
+        Route route = node.routes.get(method);
+        if (route == null) {
+            return new Match(null, null, Map.of(), null, String.join(", ", new TreeSet<>(node.routes.keySet())));
+        }
+        if (route.parameterNames().isEmpty()) {
+            return new Match(route.type(), route.handler(), Map.of(), route.name(), null);
+        }
+        Map<String, String> pathParameters = new LinkedHashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            pathParameters.put(route.parameterNames().get(i), values.get(i));
+        }
+        return new Match(route.type(), route.handler(), pathParameters, route.name(), null);
+    }
+
+    // start: first char of the next segment, values: what parameters and wildcards captured on the way, decoded
+    private static Node find(Node node, String path, int start, int end, List<String> values) {
+        if (start >= end) {
+            if (!node.routes.isEmpty()) {
+                return node;
+            }
+            if (node.wildcardChild != null && !node.wildcardChild.routes.isEmpty()) {
+                values.add("");
+                return node.wildcardChild;
+            }
+            return null;
+        }
+        int segmentEnd = path.indexOf('/', start);
+        if (segmentEnd < 0 || segmentEnd > end) {
+            segmentEnd = end;
+        }
+        String segment = null;
+        if (!node.literalChildren.isEmpty()) {
+            segment = PercentDecoder.decode(path.substring(start, segmentEnd), false);
+            Node literalChild = node.literalChildren.get(segment);
+            if (literalChild != null) {
+                Node found = find(literalChild, path, segmentEnd + 1, end, values);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        if (node.parameterChild != null && segmentEnd > start) {
+            values.add(segment != null ? segment : PercentDecoder.decode(path.substring(start, segmentEnd), false));
+            Node found = find(node.parameterChild, path, segmentEnd + 1, end, values);
+            if (found != null) {
+                return found;
+            }
+            values.remove(values.size() - 1);
+        }
+        if (node.wildcardChild != null && !node.wildcardChild.routes.isEmpty()) {
+            values.add(PercentDecoder.decode(path.substring(start, end), false));
+            return node.wildcardChild;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,226 @@
+package org.example.http.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import static org.example.http.HttpConfiguration.ACCESS_LOG_BUFFER_SIZE;
+import static org.example.http.HttpConfiguration.ACCESS_LOG_FILE;
+import static org.example.http.HttpConfiguration.ACCESS_LOG_OVERFLOW_POLICY;
+
+// Access log in the combined log format, written off the request path. Request threads only put an entry in
+// a bounded ring buffer (an ArrayBlockingQueue); a single writer thread takes whatever has accumulated,
+// formats it and writes it out in one batch, so the busier the server the bigger the batches and the fewer the
+// writes. When the buffer is full the entry is dropped and counted (DROP), or the request thread waits for
+// room (BLOCK), trading throughput for a complete log.
+public class AccessLog implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(AccessLog.class);
+    private static final int MAX_BATCH_SIZE = 1024;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.US).withZone(ZoneId.systemDefault());
+    // queued by close to stop the writer once the entries before it are written
+    private static final Entry END = new Entry(0, null, null, null, null, 0, 0, null, null);
+    private static final AccessLog INSTANCE = ACCESS_LOG_FILE.isEmpty() ? null : open(Path.of(ACCESS_LOG_FILE));
+    private final OutputStream outputStream;
+    private final BlockingQueue<Entry> entries;
+    private final OverflowPolicy overflowPolicy;
+    private final LongAdder droppedEntries;
+    private final Thread writer;
+    // only touched by the writer thread: the timestamp of the last second formatted
+    private long timestampSecond = -1;
+    private String timestamp;
+
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK
+    }
+
+    // method, target and version are null when the request line could not be parsed,
+    // referer and userAgent when the request did not send them
+    private record Entry(
+            long timeMillis,
+            InetAddress remoteAddress,
+            String method,
+            String target,
+            String httpVersion,
+            int status,
+            long bytes,
+            String referer,
+            String userAgent
+    ) {}
+
+    public AccessLog(OutputStream outputStream, int capacity, OverflowPolicy overflowPolicy) {
+        this.outputStream = outputStream;
+        this.entries = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.droppedEntries = new LongAdder();
+        this.writer = new Thread(this::writeEntries, "access-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // null when no access log file is configured, or when it cannot be opened
+    public static AccessLog getInstance() {
+        return INSTANCE;
+    }
+
+    private static AccessLog open(Path path) {
+        try {
+            OutputStream outputStream = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return new AccessLog(outputStream, ACCESS_LOG_BUFFER_SIZE, ACCESS_LOG_OVERFLOW_POLICY);
+        } catch (IOException e) {
+            logger.error("Error opening access log, requests will not be logged: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // bytes: size of the response as written, head included
+    public void log(
+            long timeMillis,
+            InetAddress remoteAddress,
+            String method,
+            String target,
+            String httpVersion,
+            int status,
+            long bytes,
+            String referer,
+            String userAgent
+    ) {
+        Entry entry = new Entry(timeMillis, remoteAddress, method, target, httpVersion, status, bytes, referer, userAgent);
+        if (this.overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                this.entries.put(entry);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.droppedEntries.increment();
+            }
+        } else if (!this.entries.offer(entry)) {
+            this.droppedEntries.increment();
+        }
+    }
+
+    public long getDroppedEntries() {
+        return this.droppedEntries.sum();
+    }
+
+    // writes the entries logged so far, then stops the writer and closes the output. When interrupted the entries
+    // still buffered are lost, the interrupt flag is left set for the caller
+    @Override
+    public void close() {
+        try {
+            this.entries.put(END);
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Access log entries still buffered were lost");
+        }
+    }
+
+    private void writeEntries() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        StringBuilder lines = new StringBuilder(16 * 1024);
+        try (OutputStream output = new BufferedOutputStream(this.outputStream, 64 * 1024)) {
+            while (true) {
+                batch.add(this.entries.take());
+                this.entries.drainTo(batch, MAX_BATCH_SIZE - 1);
+                boolean end = false;
+                for (Entry entry : batch) {
+                    if (entry == END) {
+                        end = true;
+                        break;
+                    }
+                    appendLine(lines, entry);
+                }
+                batch.clear();
+                writeLines(output, lines);
+                if (end) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.error("Access log writer interrupted, requests will not be logged anymore");
+        } catch (IOException e) {
+            logger.error("Error closing access log: {}", e.getMessage());
+        }
+    }
+
+    // a failed write loses its batch only, the next one is tried again
+    private static void writeLines(OutputStream output, StringBuilder lines) {
+        try {
+            output.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+            output.flush();
+        } catch (IOException e) {
+            logger.error("Error writing access log: {}", e.getMessage());
+        }
+        lines.setLength(0);
+    }
+
+    // host ident authuser [date] "request" status bytes "referer" "user-agent"
+    private void appendLine(StringBuilder lines, Entry entry) {
+        lines.append(entry.remoteAddress() != null ? entry.remoteAddress().getHostAddress() : "-")
+                .append(" - - [").append(timestamp(entry.timeMillis())).append("] \"");
+        if (entry.method() != null) {
+            appendEscaped(lines, entry.method());
+            lines.append(' ');
+            appendEscaped(lines, entry.target());
+            lines.append(' ');
+            appendEscaped(lines, entry.httpVersion());
+        } else {
+            lines.append('-');
+        }
+        lines.append("\" ").append(entry.status()).append(' ');
+        if (entry.bytes() > 0) {
+            lines.append(entry.bytes());
+        } else {
+            lines.append('-');
+        }
+        lines.append(" \"");
+        appendEscaped(lines, entry.referer());
+        lines.append("\" \"");
+        appendEscaped(lines, entry.userAgent());
+        lines.append("\"\n");
+    }
+
+    private String timestamp(long timeMillis) {
+        long second = timeMillis / 1000;
+        if (second != this.timestampSecond) {
+            this.timestampSecond = second;
+            this.timestamp = TIMESTAMP_FORMAT.format(Instant.ofEpochSecond(second));
+        }
+        return this.timestamp;
+    }
+
+    // quotes, backslashes and control characters come from the client, they are escaped so that they cannot
+    // end a field or forge a line. missing values are written as "-"
+    private static void appendEscaped(StringBuilder lines, String value) {
+        if (value == null) {
+            lines.append('-');
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                lines.append('\\').append(c);
+            } else if (c < 0x20 || c == 0x7F) {
+                lines.append("\\x").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+            } else {
+                lines.append(c);
+            }
+        }
+    }
+}
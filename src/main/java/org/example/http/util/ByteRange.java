@@ -0,0 +1,108 @@
+package org.example.http.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import static org.example.http.HttpConfiguration.MAX_BYTE_RANGES;
+
+// One satisfiable range of a Range header, positions inclusive like in Content-Range (RFC 7233)
+public record ByteRange(long first, long last) {
+
+    public long length() {
+        return this.last - this.first + 1;
+    }
+
+    public String contentRange(long completeLength) {
+        return "bytes " + this.first + "-" + this.last + "/" + completeLength;
+    }
+
+    // the ranges to send for a representation of the given length: null if the whole representation is to be
+    // sent (no Range, a Range we do not understand, too many ranges, ranges adding up to more than the
+    // representation or an If-Range that no longer matches), an empty list if none of the ranges can be satisfied
+    public static List<ByteRange> evaluate(String range, String ifRange, long length, String entityTag, String lastModifiedDate) {
+        if (range == null || (ifRange != null && !matchesIfRange(ifRange.trim(), entityTag, lastModifiedDate))) {
+            return null;
+        }
+        return parse(range, length);
+    }
+
+    static List<ByteRange> parse(String range, long length) {
+        range = range.trim();
+        if (!range.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        String[] rangeSpecs = range.substring(6).split(",");
+        if (rangeSpecs.length > MAX_BYTE_RANGES) {
+            return null;
+        }
+        List<ByteRange> byteRanges = new ArrayList<>(rangeSpecs.length);
+        for (String rangeSpec : rangeSpecs) {
+            rangeSpec = rangeSpec.trim();
+            int dash = rangeSpec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                ByteRange byteRange;
+                if (dash == 0) {
+                    // suffix range: the last N bytes
+                    long suffixLength = Long.parseLong(rangeSpec.substring(1));
+                    if (suffixLength < 0) {
+                        return null;
+                    }
+                    byteRange = suffixLength == 0 || length == 0 ? null : new ByteRange(Math.max(0, length - suffixLength), length - 1);
+                } else {
+                    long first = Long.parseLong(rangeSpec.substring(0, dash));
+                    long last = dash == rangeSpec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(rangeSpec.substring(dash + 1));
+                    if (first < 0 || last < first) {
+                        return null;
+                    }
+                    byteRange = first < length ? new ByteRange(first, Math.min(last, length - 1)) : null;
+                }
+                if (byteRange != null) {
+                    byteRanges.add(byteRange);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return coalesce(byteRanges, length);
+    }
+
+    // overlapping and adjacent ranges are merged, in order of position. null when the ranges add up to more than
+    // the representation: they ask for some bytes several times over (e.g. "bytes=0-,0-,0-")
+    private static List<ByteRange> coalesce(List<ByteRange> byteRanges, long length) {
+        if (byteRanges.size() < 2) {
+            return byteRanges;
+        }
+        long requested = 0;
+        for (ByteRange byteRange : byteRanges) {
+            requested += byteRange.length();
+        }
+        if (requested > length) {
+            return null;
+        }
+        byteRanges.sort(Comparator.comparingLong(ByteRange::first));
+        List<ByteRange> coalesced = new ArrayList<>(byteRanges.size());
+        ByteRange current = byteRanges.get(0);
+        for (int i = 1; i < byteRanges.size(); i++) {
+            ByteRange next = byteRanges.get(i);
+            if (next.first() <= current.last() + 1) {
+                current = new ByteRange(current.first(), Math.max(current.last(), next.last()));
+            } else {
+                coalesced.add(current);
+                current = next;
+            }
+        }
+        coalesced.add(current);
+        return coalesced;
+    }
+
+    // If-Range needs a strong match: the exact entity tag, or the exact Last-Modified date
+    private static boolean matchesIfRange(String ifRange, String entityTag, String lastModifiedDate) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(entityTag);
+        }
+        return ifRange.equals(lastModifiedDate);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.http.util;
+
+import org.example.http.ContentEncoding;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+// Evaluation of If-None-Match and If-Modified-Since against a file's validators (RFC 7232)
+public class ConditionalRequest {
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter
+            .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+            .withZone(ZoneOffset.UTC);
+
+    public static String formatHttpDate(FileTime time) {
+        return time != null ? formatHttpDate(time.toInstant()) : null;
+    }
+
+    public static String formatHttpDate(Instant instant) {
+        return HTTP_DATE.format(instant);
+    }
+
+    // each encoding of a file is a different sequence of bytes and needs its own strong entity tag
+    public static String variantEntityTag(String entityTag, ContentEncoding contentEncoding) {
+        if (contentEncoding == ContentEncoding.IDENTITY) {
+            return entityTag;
+        }
+        return entityTag.substring(0, entityTag.length() - 1) + "-" + contentEncoding.getToken() + "\"";
+    }
+
+    // If-Modified-Since is only looked at when the client has no entity tag to send.
+    // lastModified and lastModifiedDate are null when the file's modification time is unknown
+    public static boolean isNotModified(
+            String ifNoneMatch,
+            String ifModifiedSince,
+            String entityTag,
+            FileTime lastModified,
+            String lastModifiedDate
+    ) {
+        if (ifNoneMatch != null) {
+            return matchesEntityTag(ifNoneMatch, entityTag);
+        }
+        if (ifModifiedSince == null || lastModified == null) {
+            return false;
+        }
+        // clients usually send back the exact date they were given
+        if (ifModifiedSince.equals(lastModifiedDate)) {
+            return true;
+        }
+        try {
+            Instant since = Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(ifModifiedSince.trim()));
+            return !lastModified.toInstant().truncatedTo(ChronoUnit.SECONDS).isAfter(since);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    // If-None-Match uses the weak comparison: W/ prefixes are ignored
+    private static boolean matchesEntityTag(String ifNoneMatch, String entityTag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(entityTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,61 +1,139 @@
 package org.example.http.util;
 
+import org.example.http.ContentEncoding;
+import org.example.http.HttpResponse;
 import org.example.http.HttpResponseStatus;
-import static org.example.http.HttpConfiguration.ALLOWED_HTTP_VERSIONS;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import static org.example.http.HttpConfiguration.DEFAULT_HTTP_VERSION;
 
 public class HttpResponseBuilder {
-    public static StringBuilder generateHttpErrorResponse(
+    // for responses after which the connection is closed anyway (rejections, unparsable requests)
+    public static HttpResponse generateHttpErrorResponse(
             String httpVersion,
             HttpResponseStatus status
     ) {
-        String validatedHttpVersion = validateHttpVersion(httpVersion);
-        return new StringBuilder()
-                .append(validatedHttpVersion)
-                .append(" ")
-                .append(status.getStatus())
-                .append(" ")
-                .append(status.getMessage())
-                .append("\r\n\r\n");
+        return generateHttpErrorResponse(httpVersion, status, false);
     }
 
-    public static StringBuilder generateHttpGetResponse(
+    public static HttpResponse generateHttpErrorResponse(
             String httpVersion,
             HttpResponseStatus status,
-            StringBuilder fileContent,
-            String fileExtension
+            boolean keepAlive
+    ) {
+        return new HttpResponse(httpVersion, status)
+                .contentLength(0)
+                .keepAlive(keepAlive);
+    }
+
+    // status line and headers only, the body is written separately from the file
+    public static HttpResponse generateHttpGetResponse(
+            String httpVersion,
+            HttpResponseStatus status,
+            long contentLength,
+            String fileExtension,
+            boolean keepAlive
+    ){
+        return generateHttpGetResponse(httpVersion, status, contentLength, fileExtension, Map.of(), keepAlive);
+    }
+
+    // headers: additional representation headers (e.g. Content-Encoding), written in iteration order
+    public static HttpResponse generateHttpGetResponse(
+            String httpVersion,
+            HttpResponseStatus status,
+            long contentLength,
+            String fileExtension,
+            Map<String, String> headers,
+            boolean keepAlive
+    ){
+        return new HttpResponse(httpVersion, status)
+                .contentType(fileExtension)
+                .contentLength(contentLength)
+                .headers(headers)
+                .keepAlive(keepAlive);
+    }
+
+    // head of a response whose body is streamed after it: framed by its Content-Length when known, by the
+    // chunked transfer coding otherwise on HTTP/1.1, or by closing the connection on HTTP/1.0 (keepAlive false)
+    public static HttpResponse generateHttpStreamingResponse(
+            String httpVersion,
+            HttpResponseStatus status,
+            String contentType,
+            long contentLength,
+            Map<String, String> headers,
+            boolean keepAlive
     ){
-        String validatedHttpVersion = validateHttpVersion(httpVersion);
-        return new StringBuilder()
-                .append(validatedHttpVersion)
-                .append(" ")
-                .append(status.getStatus())
-                .append(" ")
-                .append(status.getMessage())
-                .append("\r\n")
-                .append("Content-type: ")
-                .append(fileExtension)
-                .append("\r\n\r\n")
-                .append(fileContent);
-    }
-
-    public static StringBuilder generateHttpPostResponse(
+        HttpResponse httpResponse = new HttpResponse(httpVersion, status).contentType(contentType);
+        if (contentLength >= 0) {
+            httpResponse.contentLength(contentLength);
+        } else if (DEFAULT_HTTP_VERSION.equals(httpResponse.getHttpVersion())) {
+            httpResponse.header("Transfer-Encoding", "chunked");
+        }
+        return httpResponse
+                .headers(headers)
+                .keepAlive(keepAlive);
+    }
+
+    // no body and no Content-Length, only the validators the client has to refresh its copy with
+    public static HttpResponse generateHttpNotModifiedResponse(
+            String httpVersion,
+            Map<String, String> headers,
+            boolean keepAlive
+    ){
+        return new HttpResponse(httpVersion, HttpResponseStatus.NOT_MODIFIED)
+                .headers(headers)
+                .keepAlive(keepAlive);
+    }
+
+    // the Content-Range tells the client how long the representation actually is
+    public static HttpResponse generateHttpRangeNotSatisfiableResponse(
+            String httpVersion,
+            long completeLength,
+            boolean keepAlive
+    ){
+        return new HttpResponse(httpVersion, HttpResponseStatus.RANGE_NOT_SATISFIABLE)
+                .header("Content-Range", "bytes */" + completeLength)
+                .contentLength(0)
+                .keepAlive(keepAlive);
+    }
+
+    // headers describing one representation of a file, Content-Encoding omitted for identity
+    public static Map<String, String> generateRepresentationHeaders(
+            ContentEncoding contentEncoding,
+            boolean varyOnEncoding,
+            String entityTag,
+            String lastModified
+    ) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (contentEncoding != ContentEncoding.IDENTITY) {
+            headers.put("Content-Encoding", contentEncoding.getToken());
+        }
+        headers.putAll(generateValidatorHeaders(varyOnEncoding, entityTag, lastModified));
+        headers.put("Accept-Ranges", "bytes");
+        return headers;
+    }
+
+    // the headers repeated in a 304 response, lastModified is null when unknown
+    public static Map<String, String> generateValidatorHeaders(boolean varyOnEncoding, String entityTag, String lastModified) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (varyOnEncoding) {
+            headers.put("Vary", "Accept-Encoding");
+        }
+        headers.put("ETag", entityTag);
+        if (lastModified != null) {
+            headers.put("Last-Modified", lastModified);
+        }
+        return headers;
+    }
+
+    // the uploaded body is not echoed back
+    public static HttpResponse generateHttpPostResponse(
             String httpVersion,
             HttpResponseStatus status,
-            StringBuilder fileContent
+            boolean keepAlive
     ){
-        String validatedHttpVersion = validateHttpVersion(httpVersion);
-        return new StringBuilder()
-                .append(validatedHttpVersion)
-                .append(" ")
-                .append(status.getStatus())
-                .append(" ")
-                .append(status.getMessage())
-                .append("\r\n\r\n")
-                .append(fileContent);
-    }
-
-    private static String validateHttpVersion(String httpVersion) {
-        return ALLOWED_HTTP_VERSIONS.contains(httpVersion) ? httpVersion: DEFAULT_HTTP_VERSION;
+        return new HttpResponse(httpVersion, status)
+                .contentLength(0)
+                .keepAlive(keepAlive);
     }
 }
@@ -0,0 +1,40 @@
+package org.example.http.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Rate limit for log lines written per request: at most maxPerSecond lines go through in each second, the
+// others are only counted and reported by the next line let through. Lock-free, threads racing at a second
+// boundary may let a few more lines through.
+public class LogSampler {
+    private volatile int maxPerSecond;
+    private final AtomicLong currentSecond;
+    private final AtomicInteger lines;
+    private final LongAdder suppressed;
+
+    public LogSampler(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+        this.currentSecond = new AtomicLong();
+        this.lines = new AtomicInteger();
+        this.suppressed = new LongAdder();
+    }
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    // -1 if the line must be dropped, otherwise the number of lines dropped since the last one let through
+    public long acquire() {
+        long second = System.currentTimeMillis() / 1000;
+        long previousSecond = this.currentSecond.get();
+        if (previousSecond != second && this.currentSecond.compareAndSet(previousSecond, second)) {
+            this.lines.set(0);
+        }
+        if (this.lines.incrementAndGet() > this.maxPerSecond) {
+            this.suppressed.increment();
+            return -1;
+        }
+        return this.suppressed.sumThenReset();
+    }
+}
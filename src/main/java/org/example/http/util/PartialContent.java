@@ -0,0 +1,81 @@
+package org.example.http.util;
+
+import org.example.http.HttpOutputBuffer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Body of a 206 response: the requested region itself for a single range, a multipart/byteranges
+// document otherwise. The regions are written straight from their source, never copied.
+public class PartialContent {
+    private final List<ByteRange> byteRanges;
+    private final long completeLength;
+    private final String contentType;
+    private final BodyRegion source;
+    private final String boundary;
+    private final byte[][] partHeads;
+    private final byte[] closingDelimiter;
+
+    @FunctionalInterface
+    public interface BodyRegion {
+        void writeTo(HttpOutputBuffer outputBuffer, long position, long count) throws IOException;
+    }
+
+    // byteRanges must not be empty
+    public PartialContent(List<ByteRange> byteRanges, long completeLength, String contentType, BodyRegion source) {
+        this.byteRanges = byteRanges;
+        this.completeLength = completeLength;
+        this.contentType = contentType;
+        this.source = source;
+        if (byteRanges.size() == 1) {
+            this.boundary = null;
+            this.partHeads = null;
+            this.closingDelimiter = null;
+            return;
+        }
+        this.boundary = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+        this.partHeads = new byte[byteRanges.size()][];
+        for (int i = 0; i < byteRanges.size(); i++) {
+            this.partHeads[i] = ("\r\n--" + this.boundary + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: " + byteRanges.get(i).contentRange(completeLength) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+        }
+        this.closingDelimiter = ("\r\n--" + this.boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public boolean isMultipart() {
+        return this.boundary != null;
+    }
+
+    public String getContentType() {
+        return isMultipart() ? "multipart/byteranges; boundary=" + this.boundary : this.contentType;
+    }
+
+    // only sent for a single range, each part carries its own otherwise
+    public String getContentRange() {
+        return isMultipart() ? null : this.byteRanges.get(0).contentRange(this.completeLength);
+    }
+
+    public long getContentLength() {
+        long contentLength = 0;
+        for (int i = 0; i < this.byteRanges.size(); i++) {
+            contentLength += this.byteRanges.get(i).length() + (isMultipart() ? this.partHeads[i].length : 0);
+        }
+        return isMultipart() ? contentLength + this.closingDelimiter.length : contentLength;
+    }
+
+    public void writeTo(HttpOutputBuffer outputBuffer) throws IOException {
+        for (int i = 0; i < this.byteRanges.size(); i++) {
+            if (isMultipart()) {
+                outputBuffer.write(this.partHeads[i]);
+            }
+            ByteRange byteRange = this.byteRanges.get(i);
+            this.source.writeTo(outputBuffer, byteRange.first(), byteRange.length());
+        }
+        if (isMultipart()) {
+            outputBuffer.write(this.closingDelimiter);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.example.http.util;
 
 import org.example.http.errors.InvalidHttpRequestLineException;
 
+import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
 import java.util.regex.Pattern;
 
@@ -9,7 +10,12 @@ public class PathValidator {
     private static final Pattern VALID_PATH_PATTERN = Pattern.compile("^[a-zA-Z0-9/_.-]+$");
 
     public static String validatePath(String httpPath) throws InvalidHttpRequestLineException {
-        String normalizedPath = Paths.get(httpPath).normalize().toString();
+        String normalizedPath;
+        try {
+            normalizedPath = Paths.get(httpPath).normalize().toString();
+        } catch (InvalidPathException e) {
+            throw new InvalidHttpRequestLineException("Invalid characters in path");
+        }
         normalizedPath = normalizedPath.replaceAll("^[/\\\\]+", "");
 
         if (normalizedPath.contains("..")) {
@@ -0,0 +1,37 @@
+package org.example.http.util;
+
+import java.nio.charset.StandardCharsets;
+
+// Percent-decoding of request target components (RFC 3986, 2.1). Octets are decoded as UTF-8; the request
+// target is read as ISO-8859-1, so chars up to 0xFF stand for the raw bytes the client sent
+public class PercentDecoder {
+    // plusAsSpace: for form-encoded query strings. throws IllegalArgumentException on a truncated or
+    // non-hexadecimal escape
+    public static String decode(String value, boolean plusAsSpace) {
+        if (value.indexOf('%') < 0 && (!plusAsSpace || value.indexOf('+') < 0)) {
+            return value;
+        }
+        byte[] bytes = new byte[value.length()];
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%') {
+                if (i + 2 >= value.length()) {
+                    throw new IllegalArgumentException("Truncated percent-encoding.");
+                }
+                int high = Character.digit(value.charAt(i + 1), 16);
+                int low = Character.digit(value.charAt(i + 2), 16);
+                if (high < 0 || low < 0) {
+                    throw new IllegalArgumentException("Invalid percent-encoding.");
+                }
+                bytes[length++] = (byte) (high << 4 | low);
+                i += 2;
+            } else if (c == '+' && plusAsSpace) {
+                bytes[length++] = ' ';
+            } else {
+                bytes[length++] = (byte) c;
+            }
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -2,34 +2,90 @@ package org.example.http.util;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.example.http.ContentEncoding;
 import org.example.http.errors.InvalidHttpRequestLineException;
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import static org.example.http.HttpConfiguration.REQUEST_BODY_TIMEOUT_MILLIS;
 import static org.example.http.util.PathValidator.validatePath;
 
 public class ResourceManager {
     private static final Logger logger = LogManager.getLogger(ResourceManager.class);
 
-    public static void createResource(String path, StringBuilder body) throws IOException, InvalidHttpRequestLineException {
+    // the body is then written to the upload's output stream, and the upload committed once complete
+    public static ResourceUpload createResource(String path) throws IOException, InvalidHttpRequestLineException {
         String sanitizedHttpPath = validatePath(path);
-        try(BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(String.format("user-uploads/%s", sanitizedHttpPath)))) {
-            bufferedWriter.write(String.valueOf(body));
+        return new ResourceUpload(Path.of(String.format("user-uploads/%s", sanitizedHttpPath)));
+    }
+
+    // temporary files of uploads cut off by a killed process. Only those untouched for longer than a body may stall,
+    // so that uploads in progress in another instance sharing the directory (e.g. during a restart) are kept
+    public static void deleteAbandonedUploads() {
+        Path uploadDirectory = Path.of("user-uploads");
+        if (!Files.isDirectory(uploadDirectory)) {
+            return;
+        }
+        long abandonedBefore = System.currentTimeMillis() - REQUEST_BODY_TIMEOUT_MILLIS;
+        try (Stream<Path> files = Files.walk(uploadDirectory)) {
+            files.filter(file -> isAbandonedUpload(file, abandonedBefore)).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                    logger.info("Deleted abandoned upload {}", file);
+                } catch (IOException e) {
+                    logger.error("Error deleting abandoned upload {}: {}", file, e.getMessage());
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Error looking for abandoned uploads: {}", e.getMessage());
         }
     }
 
-    public static BufferedReader getResourceContent(String httpPath) throws IOException, InvalidHttpRequestLineException {
-        String sanitizedHttpPath = httpPath.equals("/") ? "index.html" : validatePath(httpPath);
-        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-        InputStream inputStream = classLoader.getResourceAsStream(String.format("www/%s", sanitizedHttpPath));
-        if (inputStream != null) {
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
-            return new BufferedReader(inputStreamReader);
+    private static boolean isAbandonedUpload(Path file, long abandonedBefore) {
+        String fileName = file.getFileName().toString();
+        try {
+            return fileName.startsWith(ResourceUpload.TEMPORARY_FILE_PREFIX) && fileName.endsWith(ResourceUpload.TEMPORARY_FILE_SUFFIX)
+                    && Files.isRegularFile(file) && Files.getLastModifiedTime(file).toMillis() < abandonedBefore;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // path of the requested file inside www, also used as its cache key
+    public static String resolveResourcePath(String httpPath) throws InvalidHttpRequestLineException {
+        return httpPath.equals("/") ? "index.html" : validatePath(httpPath);
+    }
+
+    public static StaticResource getResourceContent(String sanitizedHttpPath) throws IOException {
+        URL resource = findResource(sanitizedHttpPath);
+        if (resource != null) {
+            return StaticResource.open(resource);
         } else {
-            logger.error("Resource not found: {}", sanitizedHttpPath);
+            logger.debug("Resource not found: {}", sanitizedHttpPath);
             throw new IOException("No such file in the resources folder.");
         }
     }
 
+    public static boolean hasPrecompressedResource(String sanitizedHttpPath, ContentEncoding contentEncoding) {
+        return contentEncoding.getFileSuffix() != null && findResource(sanitizedHttpPath + contentEncoding.getFileSuffix()) != null;
+    }
+
+    // sibling of a resource compressed ahead of time (e.g. index.html.gz), null if there is none
+    public static StaticResource getPrecompressedResource(String sanitizedHttpPath, ContentEncoding contentEncoding) throws IOException {
+        if (contentEncoding.getFileSuffix() == null) {
+            return null;
+        }
+        URL resource = findResource(sanitizedHttpPath + contentEncoding.getFileSuffix());
+        return resource != null ? StaticResource.open(resource) : null;
+    }
+
+    private static URL findResource(String sanitizedHttpPath) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return classLoader.getResource(String.format("www/%s", sanitizedHttpPath));
+    }
+
     public static String getFileExtensions(String path) {
         int dotIndex = path.lastIndexOf(".");
         if (dotIndex >= 0) {
@@ -0,0 +1,54 @@
+package org.example.http.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// A file being uploaded. The body is written to a temporary file next to its destination and moved into
+// place atomically once complete, so a partial upload is never visible. Closing it uncommitted discards it.
+public class ResourceUpload implements Closeable {
+    static final String TEMPORARY_FILE_PREFIX = ".upload-";
+    static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+    private final Path temporaryFile;
+    private final Path destination;
+    private final OutputStream outputStream;
+    private boolean committed;
+
+    ResourceUpload(Path destination) throws IOException {
+        this.destination = destination;
+        this.temporaryFile = Files.createTempFile(
+                destination.toAbsolutePath().getParent(), TEMPORARY_FILE_PREFIX, TEMPORARY_FILE_SUFFIX);
+        try {
+            this.outputStream = Files.newOutputStream(this.temporaryFile);
+        } catch (IOException e) {
+            // nothing else would delete it
+            try {
+                Files.deleteIfExists(this.temporaryFile);
+            } catch (IOException deleteError) {
+                e.addSuppressed(deleteError);
+            }
+            throw e;
+        }
+    }
+
+    public OutputStream getOutputStream() {
+        return this.outputStream;
+    }
+
+    public void commit() throws IOException {
+        this.outputStream.close();
+        Files.move(this.temporaryFile, this.destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        this.committed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!this.committed) {
+            this.outputStream.close();
+            Files.deleteIfExists(this.temporaryFile);
+        }
+    }
+}
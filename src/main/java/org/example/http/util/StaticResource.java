@@ -0,0 +1,133 @@
+package org.example.http.util;
+
+import org.example.http.HttpOutputBuffer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.CRC32;
+
+// A static file opened for one response. Resources on the file system are sent from their FileChannel
+// (zero-copy), resources packaged inside a jar can only be read through a stream and are kept as bytes.
+// The content is never decoded to characters.
+public class StaticResource implements Closeable {
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private final Path file;
+    private final FileChannel fileChannel;
+    private final byte[] content;
+    private final long length;
+    private final FileTime lastModified;
+
+    private StaticResource(Path file, FileChannel fileChannel, byte[] content, long length, FileTime lastModified) {
+        this.file = file;
+        this.fileChannel = fileChannel;
+        this.content = content;
+        this.length = length;
+        this.lastModified = lastModified;
+    }
+
+    static StaticResource open(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                Path file = Path.of(url.toURI());
+                FileTime lastModified = Files.getLastModifiedTime(file);
+                FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ);
+                return new StaticResource(file, fileChannel, null, fileChannel.size(), lastModified);
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid resource location.", e);
+            }
+        }
+        try (InputStream inputStream = url.openStream()) {
+            byte[] content = inputStream.readAllBytes();
+            return new StaticResource(null, null, content, content.length, null);
+        }
+    }
+
+    public long getLength() {
+        return this.length;
+    }
+
+    // the file on disk, null for resources inside a jar
+    public Path getFile() {
+        return this.file;
+    }
+
+    public FileTime getLastModified() {
+        return this.lastModified;
+    }
+
+    // strong validator of this version of the file: its modification time and length on disk,
+    // a checksum of the bytes for resources inside a jar
+    public String getEntityTag() {
+        long version;
+        if (this.lastModified != null) {
+            version = this.lastModified.toMillis();
+        } else {
+            CRC32 checksum = new CRC32();
+            checksum.update(this.content);
+            version = checksum.getValue();
+        }
+        return "\"" + Long.toHexString(version) + "-" + Long.toHexString(this.length) + "\"";
+    }
+
+    public byte[] readAllBytes() throws IOException {
+        if (this.fileChannel == null) {
+            return this.content;
+        }
+        ByteBuffer content = ByteBuffer.allocate((int) this.length);
+        while (content.hasRemaining()) {
+            if (this.fileChannel.read(content, content.position()) < 0) {
+                throw new IOException("File shorter than expected.");
+            }
+        }
+        return content.array();
+    }
+
+    public void writeTo(HttpOutputBuffer outputBuffer) throws IOException {
+        if (this.fileChannel != null) {
+            outputBuffer.transferFrom(this.fileChannel, 0, this.length);
+        } else {
+            outputBuffer.write(this.content);
+        }
+    }
+
+    // a region of the file, zero-copy like the whole file
+    public void writeTo(HttpOutputBuffer outputBuffer, long position, long count) throws IOException {
+        if (this.fileChannel != null) {
+            outputBuffer.transferFrom(this.fileChannel, position, count);
+        } else {
+            outputBuffer.write(this.content, (int) position, (int) count);
+        }
+    }
+
+    // the whole file through the heap, for bodies that are transformed on their way out (e.g. compressed)
+    public void copyTo(OutputStream outputStream) throws IOException {
+        if (this.fileChannel == null) {
+            outputStream.write(this.content);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        long position = 0;
+        int read;
+        while ((read = this.fileChannel.read(buffer, position)) > 0) {
+            outputStream.write(buffer.array(), 0, read);
+            position += read;
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.fileChannel != null) {
+            this.fileChannel.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.metrics;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+// Durations counted in fixed buckets, one LongAdder each, so recording from many threads is a binary search
+// and an uncontended increment. Bounds go from 1 µs to 10 s in 1-2.5-5 steps, close enough for percentiles of
+// request phases; exported as a Prometheus histogram, with cumulative buckets in seconds.
+public final class LatencyHistogram {
+    private static final long[] BOUNDS_NANOS = {
+            1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000, 10_000_000, 25_000_000, 50_000_000, 100_000_000, 250_000_000, 500_000_000,
+            1_000_000_000, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L
+    };
+    private static final String[] BOUND_LABELS = Arrays.stream(BOUNDS_NANOS)
+            .mapToObj(bound -> BigDecimal.valueOf(bound, 9).stripTrailingZeros().toPlainString())
+            .toArray(String[]::new);
+    // the last one counts durations above every bound
+    private final LongAdder[] buckets;
+    private final LongAdder sumNanos;
+
+    public LatencyHistogram() {
+        this.buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+        for (int i = 0; i < this.buckets.length; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+        this.sumNanos = new LongAdder();
+    }
+
+    public void record(long nanos) {
+        int index = Arrays.binarySearch(BOUNDS_NANOS, nanos);
+        this.buckets[index >= 0 ? index : -index - 1].increment();
+        this.sumNanos.add(nanos);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : this.buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public long getSumNanos() {
+        return this.sumNanos.sum();
+    }
+
+    // name: metric name without the _bucket/_sum/_count suffixes
+    void writePrometheus(StringBuilder output, String name, String help) {
+        output.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" histogram\n");
+        long cumulative = 0;
+        for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+            cumulative += this.buckets[i].sum();
+            output.append(name).append("_bucket{le=\"").append(BOUND_LABELS[i]).append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += this.buckets[BOUNDS_NANOS.length].sum();
+        output.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n')
+                .append(name).append("_sum ").append(getSumNanos() / 1e9).append('\n')
+                .append(name).append("_count ").append(cumulative).append('\n');
+    }
+}
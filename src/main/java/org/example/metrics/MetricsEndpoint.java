@@ -0,0 +1,30 @@
+package org.example.metrics;
+
+import org.example.http.HttpResponseStatus;
+import org.example.http.StreamingResponse;
+import org.example.http.cache.StaticResponseCache;
+import org.example.http.routing.RouteHandler;
+import org.example.http.routing.RouteRequest;
+import org.example.http.util.AccessLog;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+// GET handler serving ServerMetrics for Prometheus to scrape, mounted by the Router's default routes
+public class MetricsEndpoint implements RouteHandler {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Override
+    public StreamingResponse handle(RouteRequest request) {
+        byte[] content = ServerMetrics.get()
+                .toPrometheusText(StaticResponseCache.getInstance(), AccessLog.getInstance())
+                .getBytes(StandardCharsets.UTF_8);
+        return new StreamingResponse(
+                request.getHttpRequestLine().getHttpVersion(),
+                HttpResponseStatus.OK,
+                CONTENT_TYPE,
+                Map.of("Cache-Control", "no-store"),
+                content.length,
+                body -> body.write(content)
+        );
+    }
+}
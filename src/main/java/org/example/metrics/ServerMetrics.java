@@ -0,0 +1,304 @@
+package org.example.metrics;
+
+import org.example.ConnectionExecutor;
+import org.example.http.HttpResponseStatus;
+import org.example.http.cache.StaticResponseCache;
+import org.example.http.errors.HttpRequestTimeoutException;
+import org.example.http.limit.Limit;
+import org.example.http.limit.RateLimiter;
+import org.example.http.util.AccessLog;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import static org.example.http.HttpConfiguration.ACCEPTORS;
+
+// process wide counters, LongAdder keeps increments from the worker threads contention free
+public final class ServerMetrics {
+    // requests with any other method are counted as OTHER, which keeps the label set bounded
+    private static final List<String> METHODS = List.of("GET", "HEAD", "POST", "PUT", "DELETE", "OPTIONS", "PATCH", "OTHER");
+    private static final ServerMetrics INSTANCE = new ServerMetrics();
+    private final LongAdder connectionsAccepted;
+    // by acceptor index
+    private final LongAdder[] acceptedByAcceptor;
+    private final LongAdder[] acceptErrorsByAcceptor;
+    private final LongAdder connectionsOpened;
+    private final LongAdder connectionsClosed;
+    private final LongAdder requestsServed;
+    private final LongAdder requestsOnReusedConnections;
+    private final LongAdder keepAliveTimeouts;
+    // by a connection executor with no worker or queue slot left
+    private final LongAdder executorRejections;
+    // of the running blocking servers, their queue depth is read when scraped
+    private final Set<ConnectionExecutor> connectionExecutors;
+    // by HttpRequestTimeoutException.Reason ordinal
+    private final LongAdder[] requestTimeouts;
+    // by Limit ordinal
+    private final LongAdder[] limitRejections;
+    private final LongAdder bytesReceived;
+    private final LongAdder bytesSent;
+    // by method index, then status ordinal
+    private final LongAdder[][] responses;
+    private final LatencyHistogram parseTime;
+    private final LatencyHistogram handlerTime;
+
+    private ServerMetrics() {
+        this.connectionsAccepted = new LongAdder();
+        this.acceptedByAcceptor = new LongAdder[ACCEPTORS];
+        this.acceptErrorsByAcceptor = new LongAdder[ACCEPTORS];
+        for (int i = 0; i < ACCEPTORS; i++) {
+            this.acceptedByAcceptor[i] = new LongAdder();
+            this.acceptErrorsByAcceptor[i] = new LongAdder();
+        }
+        this.connectionsOpened = new LongAdder();
+        this.connectionsClosed = new LongAdder();
+        this.requestsServed = new LongAdder();
+        this.requestsOnReusedConnections = new LongAdder();
+        this.keepAliveTimeouts = new LongAdder();
+        this.executorRejections = new LongAdder();
+        this.connectionExecutors = ConcurrentHashMap.newKeySet();
+        this.requestTimeouts = new LongAdder[HttpRequestTimeoutException.Reason.values().length];
+        for (int i = 0; i < this.requestTimeouts.length; i++) {
+            this.requestTimeouts[i] = new LongAdder();
+        }
+        this.limitRejections = new LongAdder[Limit.values().length];
+        for (int i = 0; i < this.limitRejections.length; i++) {
+            this.limitRejections[i] = new LongAdder();
+        }
+        this.bytesReceived = new LongAdder();
+        this.bytesSent = new LongAdder();
+        this.responses = new LongAdder[METHODS.size()][HttpResponseStatus.values().length];
+        for (LongAdder[] byStatus : this.responses) {
+            for (int i = 0; i < byStatus.length; i++) {
+                byStatus[i] = new LongAdder();
+            }
+        }
+        this.parseTime = new LatencyHistogram();
+        this.handlerTime = new LatencyHistogram();
+    }
+
+    public static ServerMetrics get() {
+        return INSTANCE;
+    }
+
+    // accepted by the server, rejected ones included. acceptor: index of the accepting thread or event loop
+    public void connectionAccepted(int acceptor) {
+        this.connectionsAccepted.increment();
+        this.acceptedByAcceptor[acceptor % ACCEPTORS].increment();
+    }
+
+    public void acceptFailed(int acceptor) {
+        this.acceptErrorsByAcceptor[acceptor % ACCEPTORS].increment();
+    }
+
+    public void connectionRejectedByExecutor() {
+        this.executorRejections.increment();
+    }
+
+    public void connectionExecutorStarted(ConnectionExecutor connectionExecutor) {
+        this.connectionExecutors.add(connectionExecutor);
+    }
+
+    public void connectionExecutorStopped(ConnectionExecutor connectionExecutor) {
+        this.connectionExecutors.remove(connectionExecutor);
+    }
+
+    public void connectionOpened() {
+        this.connectionsOpened.increment();
+    }
+
+    public void connectionClosed() {
+        this.connectionsClosed.increment();
+    }
+
+    // reusedConnection: the request was not the first one served on its connection
+    public void requestServed(boolean reusedConnection) {
+        this.requestsServed.increment();
+        if (reusedConnection) {
+            this.requestsOnReusedConnections.increment();
+        }
+    }
+
+    // method: null if the request line could not be parsed
+    public void responseSent(String method, HttpResponseStatus status) {
+        int methodIndex = method != null ? METHODS.indexOf(method) : -1;
+        this.responses[methodIndex >= 0 ? methodIndex : METHODS.size() - 1][status.ordinal()].increment();
+    }
+
+    // request line and headers, including the wait for their bytes
+    public void parseTime(long nanos) {
+        this.parseTime.record(nanos);
+    }
+
+    // from the parsed head to the response ready to be written
+    public void handlerTime(long nanos) {
+        this.handlerTime.record(nanos);
+    }
+
+    public void bytesReceived(long count) {
+        this.bytesReceived.add(count);
+    }
+
+    public void bytesSent(long count) {
+        this.bytesSent.add(count);
+    }
+
+    public void keepAliveTimedOut() {
+        this.keepAliveTimeouts.increment();
+    }
+
+    public void requestTimedOut(HttpRequestTimeoutException.Reason reason) {
+        this.requestTimeouts[reason.ordinal()].increment();
+    }
+
+    // a request answered with 429 or 503, or a connection closed right after such an answer
+    public void limitExceeded(Limit limit) {
+        this.limitRejections[limit.ordinal()].increment();
+    }
+
+    public long getConnectionsAccepted() {
+        return this.connectionsAccepted.sum();
+    }
+
+    public long getConnectionsAccepted(int acceptor) {
+        return this.acceptedByAcceptor[acceptor % ACCEPTORS].sum();
+    }
+
+    public long getExecutorRejections() {
+        return this.executorRejections.sum();
+    }
+
+    // connections accepted by the running blocking servers and waiting for a worker
+    public long getWorkerQueueDepth() {
+        long queueDepth = 0;
+        for (ConnectionExecutor connectionExecutor : this.connectionExecutors) {
+            queueDepth += connectionExecutor.getQueueDepth();
+        }
+        return queueDepth;
+    }
+
+    public long getConnectionsOpened() {
+        return this.connectionsOpened.sum();
+    }
+
+    public long getActiveConnections() {
+        return this.connectionsOpened.sum() - this.connectionsClosed.sum();
+    }
+
+    public long getRequestsServed() {
+        return this.requestsServed.sum();
+    }
+
+    public long getRequestsOnReusedConnections() {
+        return this.requestsOnReusedConnections.sum();
+    }
+
+    public long getResponses(String method, HttpResponseStatus status) {
+        return this.responses[METHODS.indexOf(method)][status.ordinal()].sum();
+    }
+
+    public long getKeepAliveTimeouts() {
+        return this.keepAliveTimeouts.sum();
+    }
+
+    public long getRequestTimeouts(HttpRequestTimeoutException.Reason reason) {
+        return this.requestTimeouts[reason.ordinal()].sum();
+    }
+
+    public long getLimitRejections(Limit limit) {
+        return this.limitRejections[limit.ordinal()].sum();
+    }
+
+    public long getBytesReceived() {
+        return this.bytesReceived.sum();
+    }
+
+    public long getBytesSent() {
+        return this.bytesSent.sum();
+    }
+
+    public LatencyHistogram getParseTime() {
+        return this.parseTime;
+    }
+
+    public LatencyHistogram getHandlerTime() {
+        return this.handlerTime;
+    }
+
+    // Prometheus text exposition format (version 0.0.4). accessLog: null when there is none
+    public String toPrometheusText(StaticResponseCache responseCache, AccessLog accessLog) {
+        StringBuilder output = new StringBuilder(4096);
+        writeCounter(output, "jwebserver_connections_accepted_total", "Connections accepted.", getConnectionsAccepted());
+        writeByAcceptor(output, "jwebserver_acceptor_connections_accepted_total", "Connections accepted, by acceptor.", this.acceptedByAcceptor);
+        writeByAcceptor(output, "jwebserver_acceptor_accept_errors_total", "Failed accepts, by acceptor.", this.acceptErrorsByAcceptor);
+        output.append("# HELP jwebserver_connections_rejected_total Connections refused with 503, by what had no capacity left.\n")
+                .append("# TYPE jwebserver_connections_rejected_total counter\n")
+                .append("jwebserver_connections_rejected_total{reason=\"executor\"} ").append(getExecutorRejections()).append('\n');
+        writeGauge(output, "jwebserver_worker_queue_depth", "Connections waiting for a worker.", getWorkerQueueDepth());
+        writeCounter(output, "jwebserver_connections_opened_total", "Connections handed to a handler.", getConnectionsOpened());
+        writeGauge(output, "jwebserver_connections_active", "Connections currently open.", getActiveConnections());
+        writeCounter(output, "jwebserver_keep_alive_timeouts_total", "Idle connections closed by the keep-alive timeout.", getKeepAliveTimeouts());
+        output.append("# HELP jwebserver_request_timeouts_total Requests answered with 408, by what was too slow.\n")
+                .append("# TYPE jwebserver_request_timeouts_total counter\n");
+        for (HttpRequestTimeoutException.Reason reason : HttpRequestTimeoutException.Reason.values()) {
+            output.append("jwebserver_request_timeouts_total{reason=\"").append(reason.name().toLowerCase())
+                    .append("\"} ").append(this.requestTimeouts[reason.ordinal()].sum()).append('\n');
+        }
+        output.append("# HELP jwebserver_limit_rejections_total Requests and connections refused, by the limit they went over.\n")
+                .append("# TYPE jwebserver_limit_rejections_total counter\n");
+        for (Limit limit : Limit.values()) {
+            output.append("jwebserver_limit_rejections_total{limit=\"").append(limit.name().toLowerCase())
+                    .append("\"} ").append(this.limitRejections[limit.ordinal()].sum()).append('\n');
+        }
+        writeGauge(output, "jwebserver_rate_limit_clients", "Clients tracked by the per-client rate limit.", RateLimiter.getInstance().getTrackedClients());
+        writeCounter(output, "jwebserver_requests_total", "Requests served.", getRequestsServed());
+        writeCounter(output, "jwebserver_requests_reused_connection_total", "Requests served on a reused connection.", getRequestsOnReusedConnections());
+        output.append("# HELP jwebserver_responses_total Responses by request method and status.\n")
+                .append("# TYPE jwebserver_responses_total counter\n");
+        HttpResponseStatus[] statuses = HttpResponseStatus.values();
+        for (int method = 0; method < METHODS.size(); method++) {
+            for (HttpResponseStatus status : statuses) {
+                long count = this.responses[method][status.ordinal()].sum();
+                if (count > 0) {
+                    output.append("jwebserver_responses_total{method=\"").append(METHODS.get(method))
+                            .append("\",status=\"").append(status.getStatus()).append("\"} ").append(count).append('\n');
+                }
+            }
+        }
+        this.parseTime.writePrometheus(output, "jwebserver_request_parse_seconds", "Time to receive and parse request heads.");
+        this.handlerTime.writePrometheus(output, "jwebserver_request_handler_seconds", "Time to handle parsed requests.");
+        writeCounter(output, "jwebserver_received_bytes_total", "Bytes received from clients.", getBytesReceived());
+        writeCounter(output, "jwebserver_sent_bytes_total", "Bytes sent to clients.", getBytesSent());
+        writeCounter(output, "jwebserver_static_cache_hits_total", "Static response cache hits.", responseCache.getHits());
+        writeCounter(output, "jwebserver_static_cache_misses_total", "Static response cache misses.", responseCache.getMisses());
+        writeCounter(output, "jwebserver_static_cache_evictions_total", "Static response cache evictions.", responseCache.getEvictions());
+        writeGauge(output, "jwebserver_static_cache_bytes", "Bytes held by the static response cache.", responseCache.getSizeInBytes());
+        writeGauge(output, "jwebserver_static_cache_entries", "Resources held by the static response cache.", responseCache.getEntryCount());
+        if (accessLog != null) {
+            writeCounter(output, "jwebserver_access_log_dropped_total", "Access log entries dropped with the buffer full.", accessLog.getDroppedEntries());
+        }
+        return output.toString();
+    }
+
+    private static void writeByAcceptor(StringBuilder output, String name, String help, LongAdder[] counters) {
+        output.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" counter\n");
+        for (int i = 0; i < counters.length; i++) {
+            output.append(name).append("{acceptor=\"").append(i).append("\"} ").append(counters[i].sum()).append('\n');
+        }
+    }
+
+    private static void writeCounter(StringBuilder output, String name, String help, long value) {
+        writeSample(output, name, help, "counter", value);
+    }
+
+    private static void writeGauge(StringBuilder output, String name, String help, long value) {
+        writeSample(output, name, help, "gauge", value);
+    }
+
+    private static void writeSample(StringBuilder output, String name, String help, String type, long value) {
+        output.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(' ').append(type).append('\n')
+                .append(name).append(' ').append(value).append('\n');
+    }
+}
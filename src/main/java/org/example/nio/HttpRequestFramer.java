@@ -0,0 +1,239 @@
+package org.example.nio;
+
+import org.example.http.errors.HttpHeaderFieldsTooLargeException;
+import org.example.http.errors.HttpPayloadTooLargeException;
+import org.example.http.errors.HttpTransferCodingNotImplementedException;
+import org.example.http.errors.InvalidHttpBodyException;
+import org.example.http.errors.InvalidHttpHeaderException;
+import org.example.http.errors.InvalidHttpRequestException;
+import java.nio.charset.StandardCharsets;
+import static org.example.http.HttpConfiguration.MAX_REQUEST_BODY_SIZE;
+import static org.example.http.HttpConfiguration.MAX_REQUEST_HEAD_SIZE;
+import static org.example.http.HttpConfiguration.NIO_MAX_REQUEST_BODY_SIZE;
+
+// Finds where the first request in a partially received buffer ends, keeping its progress between reads
+// so bytes already scanned are not scanned again. Framing follows HttpRequestParser: a content-length or a
+// chunked transfer-encoding, never both. Offsets are relative to the start of the current request.
+class HttpRequestFramer {
+    // bodies are buffered whole, in memory
+    static final long MAX_BODY_SIZE = Math.min(MAX_REQUEST_BODY_SIZE, NIO_MAX_REQUEST_BODY_SIZE);
+    private enum State { HEAD, FIXED_BODY, CHUNK_SIZE, CHUNK_DATA, TRAILER }
+
+    private State state;
+    private int position;
+    private int headStart;
+    private int headLength;
+    private long contentLength;
+    private long chunkSize;
+    private long bodyLength;
+    private int trailerLength;
+
+    HttpRequestFramer() {
+        reset();
+    }
+
+    void reset() {
+        this.state = State.HEAD;
+        this.position = 0;
+        this.headStart = 0;
+        this.headLength = 0;
+        this.contentLength = 0;
+        this.chunkSize = 0;
+        this.bodyLength = 0;
+        this.trailerLength = 0;
+    }
+
+    // whether the head of the current request is complete, the bytes still expected are its body
+    boolean isReadingBody() {
+        return this.state != State.HEAD;
+    }
+
+    // returns the length of the complete request starting at start, or -1 if more bytes are needed
+    int frame(byte[] buffer, int start, int end) throws InvalidHttpRequestException {
+        int length = end - start;
+        while (true) {
+            switch (this.state) {
+                case HEAD -> {
+                    if (this.position == this.headStart) {
+                        // empty lines before the request line belong to this request, the parser skips them
+                        while (this.headStart + 1 < length && buffer[start + this.headStart] == '\r'
+                                && buffer[start + this.headStart + 1] == '\n') {
+                            this.headStart += 2;
+                        }
+                        this.position = this.headStart;
+                    }
+                    int headEnd = indexOfHeadEnd(buffer, start + this.position, end);
+                    if (headEnd < 0) {
+                        if (length > MAX_REQUEST_HEAD_SIZE) {
+                            throw new HttpHeaderFieldsTooLargeException("Request head too large.");
+                        }
+                        // the terminator may straddle two reads
+                        this.position = Math.max(this.headStart, length - 3);
+                        return -1;
+                    }
+                    this.headLength = headEnd - start;
+                    this.position = this.headLength;
+                    readFraming(buffer, start + this.headStart, headEnd);
+                }
+                case FIXED_BODY -> {
+                    if (length - this.headLength < this.contentLength) {
+                        return -1;
+                    }
+                    return this.headLength + (int) this.contentLength;
+                }
+                case CHUNK_SIZE -> {
+                    int lineEnd = indexOfCrlf(buffer, start + this.position, end);
+                    if (lineEnd < 0) {
+                        // bounded like the blocking parser's lines, an endless chunk extension is not buffered
+                        if (length - this.position > MAX_REQUEST_HEAD_SIZE) {
+                            throw new InvalidHttpBodyException("Chunked body line too large.");
+                        }
+                        return -1;
+                    }
+                    this.chunkSize = parseChunkSize(buffer, start + this.position, lineEnd);
+                    this.bodyLength += this.chunkSize;
+                    checkBodyLength(this.bodyLength);
+                    this.position = lineEnd + 2 - start;
+                    this.state = this.chunkSize == 0 ? State.TRAILER : State.CHUNK_DATA;
+                }
+                case CHUNK_DATA -> {
+                    if (length - this.position < this.chunkSize + 2) {
+                        return -1;
+                    }
+                    this.position += (int) this.chunkSize;
+                    // the data is followed by CRLF, anything else means the chunk-size was wrong
+                    if (buffer[start + this.position] != '\r' || buffer[start + this.position + 1] != '\n') {
+                        throw new InvalidHttpBodyException("Chunk data not terminated by CRLF.");
+                    }
+                    this.position += 2;
+                    this.state = State.CHUNK_SIZE;
+                }
+                case TRAILER -> {
+                    int lineEnd = indexOfCrlf(buffer, start + this.position, end);
+                    if (this.trailerLength + (lineEnd < 0 ? end : lineEnd) - (start + this.position) > MAX_REQUEST_HEAD_SIZE) {
+                        throw new InvalidHttpBodyException("Chunked body trailer too large.");
+                    }
+                    if (lineEnd < 0) {
+                        return -1;
+                    }
+                    boolean emptyLine = lineEnd == start + this.position;
+                    this.trailerLength += lineEnd + 2 - (start + this.position);
+                    this.position = lineEnd + 2 - start;
+                    if (emptyLine) {
+                        return this.position;
+                    }
+                }
+            }
+        }
+    }
+
+    private void readFraming(byte[] buffer, int start, int headEnd) throws InvalidHttpRequestException {
+        String contentLengthValue = null;
+        String transferEncodingValue = null;
+        int lineStart = indexOfCrlf(buffer, start, headEnd) + 2;
+        while (lineStart < headEnd - 2) {
+            int lineEnd = indexOfCrlf(buffer, lineStart, headEnd);
+            if (headerNameEquals(buffer, lineStart, lineEnd, "content-length")) {
+                String value = headerValue(buffer, lineStart, lineEnd).trim();
+                // as in HttpRequestParser: repeated content-lengths must agree
+                if (contentLengthValue != null && !contentLengthValue.equals(value)) {
+                    throw new InvalidHttpHeaderException("Conflicting content-length headers.");
+                }
+                contentLengthValue = value;
+            } else if (headerNameEquals(buffer, lineStart, lineEnd, "transfer-encoding")) {
+                String value = headerValue(buffer, lineStart, lineEnd).trim();
+                transferEncodingValue = transferEncodingValue == null ? value : transferEncodingValue + ", " + value;
+            }
+            lineStart = lineEnd + 2;
+        }
+        // as in HttpRequestParser: either framing header can be read differently by a proxy when both are sent
+        if (transferEncodingValue != null) {
+            if (contentLengthValue != null) {
+                throw new InvalidHttpHeaderException("Both content-length and transfer-encoding.");
+            }
+            if (!transferEncodingValue.equalsIgnoreCase("chunked")) {
+                throw new HttpTransferCodingNotImplementedException("Unsupported transfer-encoding: " + transferEncodingValue);
+            }
+        }
+        if (contentLengthValue != null) {
+            try {
+                this.contentLength = Long.parseLong(contentLengthValue);
+            } catch (NumberFormatException e) {
+                throw new InvalidHttpHeaderException("Invalid content-length.");
+            }
+            if (this.contentLength < 0 || this.contentLength > Integer.MAX_VALUE - this.headLength) {
+                throw new InvalidHttpHeaderException("Invalid content-length.");
+            }
+            checkBodyLength(this.contentLength);
+            this.state = State.FIXED_BODY;
+        } else if (transferEncodingValue != null) {
+            this.state = State.CHUNK_SIZE;
+        } else {
+            this.contentLength = 0;
+            this.state = State.FIXED_BODY;
+        }
+    }
+
+    // requests are buffered whole before being handled, their size is refused before it is received
+    private static void checkBodyLength(long bodyLength) throws HttpPayloadTooLargeException {
+        if (bodyLength > MAX_BODY_SIZE) {
+            throw new HttpPayloadTooLargeException("Request body larger than " + MAX_BODY_SIZE + " bytes.");
+        }
+    }
+
+    private static long parseChunkSize(byte[] buffer, int from, int to) throws InvalidHttpBodyException {
+        long size = 0;
+        int digits = 0;
+        for (int i = from; i < to && buffer[i] != ';'; i++) {
+            int digit = Character.digit(buffer[i], 16);
+            if (digit < 0 || ++digits > 15) {
+                throw new InvalidHttpBodyException("Invalid chunk-size.");
+            }
+            size = (size << 4) | digit;
+        }
+        if (digits == 0) {
+            throw new InvalidHttpBodyException("Invalid chunk-size.");
+        }
+        return size;
+    }
+
+    private static boolean headerNameEquals(byte[] buffer, int lineStart, int lineEnd, String name) {
+        int nameLength = name.length();
+        if (lineEnd - lineStart <= nameLength || buffer[lineStart + nameLength] != ':') {
+            return false;
+        }
+        for (int i = 0; i < nameLength; i++) {
+            if (Character.toLowerCase(buffer[lineStart + i]) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String headerValue(byte[] buffer, int lineStart, int lineEnd) {
+        int colon = lineStart;
+        while (buffer[colon] != ':') {
+            colon++;
+        }
+        return new String(buffer, colon + 1, lineEnd - colon - 1, StandardCharsets.US_ASCII);
+    }
+
+    private static int indexOfCrlf(byte[] buffer, int from, int to) {
+        for (int i = from; i < to - 1; i++) {
+            if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // index right after the empty line that ends the request head
+    private static int indexOfHeadEnd(byte[] buffer, int from, int to) {
+        for (int i = from; i < to - 3; i++) {
+            if (buffer[i] == '\r' && buffer[i + 1] == '\n' && buffer[i + 2] == '\r' && buffer[i + 3] == '\n') {
+                return i + 4;
+            }
+        }
+        return -1;
+    }
+}
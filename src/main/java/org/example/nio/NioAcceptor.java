@@ -0,0 +1,99 @@
+package org.example.nio;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.ConnectionExecutor;
+import org.example.http.limit.ConnectionLimiter;
+import org.example.http.limit.Limit;
+import org.example.metrics.ServerMetrics;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+// accepts pending connections and spreads them round-robin over the event loops, starting from its own
+class NioAcceptor implements NioSelectable {
+    private static final Logger logger = LogManager.getLogger(NioAcceptor.class);
+    private static final ConnectionLimiter connectionLimiter = ConnectionLimiter.getInstance();
+    private final ServerSocketChannel serverSocketChannel;
+    private final NioEventLoop[] eventLoops;
+    private final int index;
+    private int nextEventLoop;
+
+    NioAcceptor(ServerSocketChannel serverSocketChannel, NioEventLoop[] eventLoops, int index) {
+        this.serverSocketChannel = serverSocketChannel;
+        this.eventLoops = eventLoops;
+        this.index = index;
+        this.nextEventLoop = index % eventLoops.length;
+    }
+
+    @Override
+    public void onSelected(SelectionKey selectionKey) throws IOException {
+        SocketChannel socketChannel;
+        // acceptors sharing a channel are all woken up, those that lose the race get null right away
+        while ((socketChannel = accept()) != null) {
+            ServerMetrics.get().connectionAccepted(this.index);
+            // refused while the channel is still blocking, the answer is a single small write
+            InetAddress client = socketChannel.socket().getInetAddress();
+            Limit refusedBy = connectionLimiter.open(client);
+            if (refusedBy != null) {
+                ServerMetrics.get().limitExceeded(refusedBy);
+                ConnectionExecutor.reject(socketChannel.socket(), refusedBy.getStatus());
+                continue;
+            }
+            try {
+                ServerChannels.configure(socketChannel);
+                socketChannel.configureBlocking(false);
+            } catch (IOException e) {
+                logger.error("Error configuring connection: {}", e.getMessage());
+                connectionLimiter.close(client);
+                socketChannel.close();
+                continue;
+            }
+            NioEventLoop eventLoop = this.eventLoops[this.nextEventLoop];
+            this.nextEventLoop = (this.nextEventLoop + 1) % this.eventLoops.length;
+            SocketChannel acceptedChannel = socketChannel;
+            eventLoop.execute(() -> register(eventLoop, acceptedChannel, client));
+        }
+    }
+
+    // failures other than a closed channel (out of file descriptors...) are counted and retried on the next wakeup
+    private SocketChannel accept() throws IOException {
+        try {
+            return this.serverSocketChannel.accept();
+        } catch (ClosedChannelException e) {
+            throw e;
+        } catch (IOException e) {
+            ServerMetrics.get().acceptFailed(this.index);
+            logger.error("Error accepting connection: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // the connection is counted by ConnectionLimiter until NioConnection closes it
+    private static void register(NioEventLoop eventLoop, SocketChannel socketChannel, InetAddress client) {
+        try {
+            SelectionKey selectionKey = socketChannel.register(eventLoop.getSelector(), SelectionKey.OP_READ);
+            NioConnection connection = new NioConnection(socketChannel, selectionKey, eventLoop);
+            selectionKey.attach(connection);
+            // accepted just before the server stopped
+            if (eventLoop.isDraining()) {
+                connection.drain();
+            }
+        } catch (ClosedChannelException e) {
+            logger.error("Error registering connection: {}", e.getMessage());
+            connectionLimiter.close(client);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.serverSocketChannel.close();
+        } catch (IOException e) {
+            logger.error("Error closing the server channel: {}", e.getMessage());
+        }
+    }
+}
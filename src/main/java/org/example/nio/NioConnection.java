@@ -0,0 +1,309 @@
+package org.example.nio;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.http.HttpRequestHandler;
+import org.example.http.HttpRequestParser;
+import org.example.http.HttpResponseStatus;
+import org.example.http.errors.HttpHeaderFieldsTooLargeException;
+import org.example.http.errors.HttpPayloadTooLargeException;
+import org.example.http.errors.HttpRequestTimeoutException;
+import org.example.http.errors.HttpTransferCodingNotImplementedException;
+import org.example.http.errors.InvalidHttpRequestException;
+import org.example.http.limit.ConnectionLimiter;
+import org.example.http.util.HttpResponseBuilder;
+import org.example.metrics.ServerMetrics;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.RejectedExecutionException;
+import static org.example.http.HttpConfiguration.DEFAULT_HTTP_VERSION;
+import static org.example.http.HttpConfiguration.INPUT_BUFFER_SIZE;
+import static org.example.http.HttpConfiguration.KEEP_ALIVE_TIMEOUT_MILLIS;
+import static org.example.http.HttpConfiguration.MAX_KEEP_ALIVE_REQUESTS;
+import static org.example.http.HttpConfiguration.MAX_REQUEST_HEAD_SIZE;
+import static org.example.http.HttpConfiguration.MIN_REQUEST_BODY_BYTES_PER_SECOND;
+import static org.example.http.HttpConfiguration.REQUEST_BODY_RATE_GRACE_MILLIS;
+import static org.example.http.HttpConfiguration.REQUEST_BODY_TIMEOUT_MILLIS;
+import static org.example.http.HttpConfiguration.REQUEST_HEAD_TIMEOUT_MILLIS;
+
+// Per-connection state of the NIO engine. Bytes are accumulated until HttpRequestFramer reports a complete
+// request, which is then run through the same HttpRequestParser/HttpRequestHandler as the blocking engine on one
+// of the server's workers. While a request is handled nothing more is read, pipelined requests wait in the read
+// buffer, and the response comes back to the event loop to be written.
+// A request still being received is bounded like on the blocking engine: a deadline for its head, and for
+// its body the longest silence and a minimum average rate, checked by the event loop's periodic sweep.
+class NioConnection implements NioSelectable {
+    private static final Logger logger = LogManager.getLogger(NioConnection.class);
+    private static final ServerMetrics metrics = ServerMetrics.get();
+    // a request's head and body, the read buffer never grows past it. chunked framing beyond that is refused
+    private static final int MAX_READ_BUFFER_SIZE = (int) Math.min(Integer.MAX_VALUE - 8, MAX_REQUEST_HEAD_SIZE + HttpRequestFramer.MAX_BODY_SIZE);
+    private final SocketChannel socketChannel;
+    private final SelectionKey selectionKey;
+    private final NioEventLoop eventLoop;
+    private final InetAddress remoteAddress;
+    private final HttpRequestFramer httpRequestFramer;
+    private final NioOutputQueue outputQueue;
+    private ByteBuffer readBuffer;
+    private boolean closeAfterWrite;
+    // a request was handed to a worker and its response has not come back yet
+    private boolean handling;
+    // the server is stopping, the response being prepared is the last one. read by the workers
+    private volatile boolean draining;
+    private int requestsServed;
+    private long lastActivityMillis;
+    // first byte of the request being received, 0 when there is none
+    private long requestStartMillis;
+    // first read of its body after the head, 0 while the head is not complete
+    private long bodyStartMillis;
+    private long bodyBytesReceived;
+
+    NioConnection(SocketChannel socketChannel, SelectionKey selectionKey, NioEventLoop eventLoop) {
+        this.socketChannel = socketChannel;
+        this.selectionKey = selectionKey;
+        this.eventLoop = eventLoop;
+        this.remoteAddress = socketChannel.socket().getInetAddress();
+        this.httpRequestFramer = new HttpRequestFramer();
+        this.outputQueue = new NioOutputQueue();
+        this.readBuffer = ByteBuffer.allocate(INPUT_BUFFER_SIZE);
+        this.lastActivityMillis = System.currentTimeMillis();
+        metrics.connectionOpened();
+    }
+
+    // closes the connection when idle (nothing to write or being received) past the keep-alive timeout,
+    // answers 408 and closes it when the request being received is too slow
+    void checkTimeouts(long nowMillis) throws IOException {
+        if (this.handling || this.closeAfterWrite || !this.outputQueue.getPendingWrites().isEmpty()) {
+            return;
+        }
+        if (this.requestStartMillis == 0) {
+            if (nowMillis - this.lastActivityMillis > KEEP_ALIVE_TIMEOUT_MILLIS) {
+                metrics.keepAliveTimedOut();
+                close();
+            }
+            return;
+        }
+        HttpRequestTimeoutException.Reason reason = null;
+        if (this.bodyStartMillis == 0) {
+            if (nowMillis - this.requestStartMillis > REQUEST_HEAD_TIMEOUT_MILLIS) {
+                reason = HttpRequestTimeoutException.Reason.HEAD;
+            }
+        } else if (nowMillis - this.lastActivityMillis > REQUEST_BODY_TIMEOUT_MILLIS) {
+            reason = HttpRequestTimeoutException.Reason.BODY;
+        } else if (MIN_REQUEST_BODY_BYTES_PER_SECOND > 0 && nowMillis - this.bodyStartMillis > REQUEST_BODY_RATE_GRACE_MILLIS
+                && this.bodyBytesReceived * 1000 < (long) MIN_REQUEST_BODY_BYTES_PER_SECOND * (nowMillis - this.bodyStartMillis)) {
+            reason = HttpRequestTimeoutException.Reason.BODY_RATE;
+        }
+        if (reason != null) {
+            logger.debug("Request timed out: {}", reason);
+            metrics.requestTimedOut(reason);
+            respondAndClose(HttpResponseStatus.REQUEST_TIMEOUT);
+            flushPendingWrites();
+        }
+    }
+
+    // closes the connection if it is idle after a response (once written). New connections still get to send
+    // their first request, and a request being received or handled is answered with Connection: close
+    void drain() {
+        this.draining = true;
+        if (this.requestsServed > 0 && this.requestStartMillis == 0 && !this.handling) {
+            if (this.outputQueue.getPendingWrites().isEmpty()) {
+                close();
+            } else {
+                this.closeAfterWrite = true;
+            }
+        }
+    }
+
+    @Override
+    public void onSelected(SelectionKey selectionKey) throws IOException {
+        this.lastActivityMillis = System.currentTimeMillis();
+        if (selectionKey.isReadable()) {
+            read();
+        }
+        if (selectionKey.isValid() && selectionKey.isWritable()) {
+            flushPendingWrites();
+        }
+    }
+
+    private void read() throws IOException {
+        if (!this.readBuffer.hasRemaining()) {
+            if (this.readBuffer.capacity() >= MAX_READ_BUFFER_SIZE) {
+                logger.error("Error framing http request: request larger than {} bytes", MAX_READ_BUFFER_SIZE);
+                respondAndClose(HttpResponseStatus.PAYLOAD_TOO_LARGE);
+                flushPendingWrites();
+                return;
+            }
+            ByteBuffer grownBuffer = ByteBuffer.allocate((int) Math.min((long) this.readBuffer.capacity() * 2, MAX_READ_BUFFER_SIZE));
+            grownBuffer.put(this.readBuffer.flip());
+            this.readBuffer = grownBuffer;
+        }
+        int read = this.socketChannel.read(this.readBuffer);
+        if (read < 0) {
+            close();
+            return;
+        }
+        metrics.bytesReceived(read);
+        handleCompleteRequests(read);
+        flushPendingWrites();
+    }
+
+    private void handleCompleteRequests(int read) throws IOException {
+        byte[] buffer = this.readBuffer.array();
+        int start = 0;
+        int end = this.readBuffer.position();
+        while (!this.closeAfterWrite && !this.handling) {
+            int requestLength;
+            try {
+                requestLength = this.httpRequestFramer.frame(buffer, start, end);
+            } catch (InvalidHttpRequestException e) {
+                logger.error("Error framing http request: {}", e.getMessage());
+                HttpResponseStatus status;
+                if (e instanceof HttpPayloadTooLargeException) {
+                    status = HttpResponseStatus.PAYLOAD_TOO_LARGE;
+                } else if (e instanceof HttpHeaderFieldsTooLargeException) {
+                    status = HttpResponseStatus.REQUEST_HEADER_FIELDS_TOO_LARGE;
+                } else if (e instanceof HttpTransferCodingNotImplementedException) {
+                    status = HttpResponseStatus.NOT_IMPLEMENTED;
+                } else {
+                    status = HttpResponseStatus.BAD_REQUEST;
+                }
+                respondAndClose(status);
+                break;
+            }
+            if (requestLength < 0) {
+                break;
+            }
+            handOff(Arrays.copyOfRange(buffer, start, start + requestLength));
+            this.httpRequestFramer.reset();
+            start += requestLength;
+        }
+        trackPendingRequest(read, start > 0, end - start);
+        // keep only the bytes of the request still being received
+        this.readBuffer.flip().position(start);
+        this.readBuffer.compact();
+    }
+
+    // requestsCompleted: the read completed at least one request, pending: bytes left of the next one
+    private void trackPendingRequest(int read, boolean requestsCompleted, int pending) {
+        if (pending == 0) {
+            this.requestStartMillis = 0;
+            this.bodyStartMillis = 0;
+            return;
+        }
+        if (requestsCompleted || this.requestStartMillis == 0) {
+            this.requestStartMillis = this.lastActivityMillis;
+            this.bodyStartMillis = 0;
+        }
+        if (!this.httpRequestFramer.isReadingBody()) {
+            return;
+        }
+        // body bytes received along with the end of the head are not counted
+        if (this.bodyStartMillis == 0) {
+            this.bodyStartMillis = this.lastActivityMillis;
+            this.bodyBytesReceived = 0;
+        } else {
+            this.bodyBytesReceived += read;
+        }
+    }
+
+    // for a request refused before it is handled: nothing more is read from the connection
+    private void respondAndClose(HttpResponseStatus status) throws IOException {
+        HttpResponseBuilder.generateHttpErrorResponse(DEFAULT_HTTP_VERSION, status).writeTo(this.outputQueue);
+        this.closeAfterWrite = true;
+    }
+
+    // request: a copy, the read buffer keeps being used by the event loop
+    private void handOff(byte[] request) throws IOException {
+        this.requestsServed++;
+        boolean underLimit = this.requestsServed < MAX_KEEP_ALIVE_REQUESTS;
+        try {
+            this.eventLoop.getWorkers().execute(() -> handleRequest(request, underLimit));
+            this.handling = true;
+        } catch (RejectedExecutionException e) {
+            // the server stopped
+            respondAndClose(HttpResponseStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    // on a worker: the response is prepared in its own queue, then handed back to the event loop
+    private void handleRequest(byte[] request, boolean underLimit) {
+        NioOutputQueue responseQueue = new NioOutputQueue();
+        boolean keepAlive = false;
+        try {
+            keepAlive = new HttpRequestHandler(new HttpRequestParser(new ByteArrayInputStream(request)), this.remoteAddress)
+                    .writeHttpResponse(responseQueue, () -> underLimit && !this.draining);
+            responseQueue.flush();
+        } catch (IOException e) {
+            // nothing of a failed response is sent, the connection is closed
+            logger.error("Error handling http request: {}", e.getMessage());
+            responseQueue.getPendingWrites().clear();
+        } finally {
+            boolean reusable = keepAlive;
+            this.eventLoop.execute(() -> onResponse(responseQueue, reusable));
+        }
+    }
+
+    private void onResponse(NioOutputQueue responseQueue, boolean keepAlive) {
+        // closed meanwhile by stopNow
+        if (!this.socketChannel.isOpen()) {
+            return;
+        }
+        this.handling = false;
+        metrics.requestServed(this.requestsServed > 1);
+        this.outputQueue.getPendingWrites().addAll(responseQueue.getPendingWrites());
+        // a drain that started while the request was handled did not close this connection
+        this.closeAfterWrite = !keepAlive || this.draining;
+        this.lastActivityMillis = System.currentTimeMillis();
+        // the next request's deadlines start now, not while this one was handled
+        this.requestStartMillis = 0;
+        try {
+            // pipelined requests already received
+            handleCompleteRequests(0);
+            flushPendingWrites();
+        } catch (IOException e) {
+            logger.error("Error in channel: {}", e.getMessage());
+            close();
+        }
+    }
+
+    private void flushPendingWrites() throws IOException {
+        this.outputQueue.flush();
+        Deque<ByteBuffer> pendingWrites = this.outputQueue.getPendingWrites();
+        if (!pendingWrites.isEmpty()) {
+            // gather write of every response produced so far
+            metrics.bytesSent(this.socketChannel.write(pendingWrites.toArray(new ByteBuffer[0])));
+            while (!pendingWrites.isEmpty() && !pendingWrites.peek().hasRemaining()) {
+                pendingWrites.poll();
+            }
+        }
+        if (!pendingWrites.isEmpty()) {
+            this.selectionKey.interestOps(SelectionKey.OP_WRITE);
+        } else if (this.closeAfterWrite) {
+            close();
+        } else {
+            // nothing is read while a request is handled
+            this.selectionKey.interestOps(this.handling ? 0 : SelectionKey.OP_READ);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!this.socketChannel.isOpen()) {
+            return;
+        }
+        metrics.connectionClosed();
+        ConnectionLimiter.getInstance().close(this.remoteAddress);
+        this.selectionKey.cancel();
+        try {
+            this.socketChannel.close();
+        } catch (IOException e) {
+            logger.error("Error closing connection: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.nio;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+// single thread owning a selector; every channel registered here is only touched by this thread
+class NioEventLoop implements Runnable {
+    private static final Logger logger = LogManager.getLogger(NioEventLoop.class);
+    private static final long IDLE_SWEEP_INTERVAL_MILLIS = 1_000;
+    private final Selector selector;
+    private final Queue<Runnable> pendingTasks;
+    // shared by the server's event loops, complete requests are handled there
+    private final Executor workers;
+    private final Thread thread;
+    private long lastIdleSweepMillis;
+    // only touched on the loop thread
+    private boolean draining;
+    private volatile boolean stopped;
+
+    NioEventLoop(String name, Executor workers) throws IOException {
+        this.selector = Selector.open();
+        this.pendingTasks = new ConcurrentLinkedQueue<>();
+        this.workers = workers;
+        this.thread = new Thread(this, name);
+    }
+
+    void start() {
+        this.thread.start();
+    }
+
+    Selector getSelector() {
+        return this.selector;
+    }
+
+    Executor getWorkers() {
+        return this.workers;
+    }
+
+    boolean isDraining() {
+        return this.draining;
+    }
+
+    // stops accepting and drains the connections, the loop ends once the last one is closed
+    void shutdown() {
+        execute(() -> {
+            this.draining = true;
+            for (SelectionKey selectionKey : this.selector.keys()) {
+                if (!selectionKey.isValid()) {
+                    continue;
+                }
+                if (selectionKey.attachment() instanceof NioConnection connection) {
+                    connection.drain();
+                } else {
+                    ((NioSelectable) selectionKey.attachment()).close();
+                }
+            }
+        });
+    }
+
+    // ends the loop, closing the connections still open
+    void shutdownNow() {
+        this.stopped = true;
+        this.selector.wakeup();
+    }
+
+    boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        this.thread.join(Math.max(1, timeoutMillis));
+        return !this.thread.isAlive();
+    }
+
+    // runs the task on the event loop thread, e.g. to register a channel accepted by another loop or to write a
+    // response prepared by a worker
+    void execute(Runnable task) {
+        this.pendingTasks.add(task);
+        this.selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            loop();
+        } finally {
+            for (SelectionKey selectionKey : this.selector.keys()) {
+                ((NioSelectable) selectionKey.attachment()).close();
+            }
+            try {
+                this.selector.close();
+            } catch (IOException e) {
+                logger.error("Error closing the selector: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void loop() {
+        while (!this.stopped && !Thread.currentThread().isInterrupted()) {
+            try {
+                this.selector.select(IDLE_SWEEP_INTERVAL_MILLIS);
+            } catch (IOException e) {
+                logger.error("Error selecting ready channels: {}", e.getMessage());
+                break;
+            }
+            runPendingTasks();
+            Iterator<SelectionKey> selectedKeys = this.selector.selectedKeys().iterator();
+            while (selectedKeys.hasNext()) {
+                SelectionKey selectionKey = selectedKeys.next();
+                selectedKeys.remove();
+                NioSelectable selectable = (NioSelectable) selectionKey.attachment();
+                try {
+                    if (selectionKey.isValid()) {
+                        selectable.onSelected(selectionKey);
+                    }
+                } catch (IOException e) {
+                    logger.error("Error in channel: {}", e.getMessage());
+                    selectable.close();
+                }
+            }
+            checkConnectionTimeouts();
+            if (this.draining && this.selector.keys().stream().noneMatch(SelectionKey::isValid)) {
+                break;
+            }
+        }
+    }
+
+    private void checkConnectionTimeouts() {
+        long nowMillis = System.currentTimeMillis();
+        if (nowMillis - this.lastIdleSweepMillis < IDLE_SWEEP_INTERVAL_MILLIS) {
+            return;
+        }
+        this.lastIdleSweepMillis = nowMillis;
+        for (SelectionKey selectionKey : this.selector.keys()) {
+            if (selectionKey.isValid() && selectionKey.attachment() instanceof NioConnection connection) {
+                try {
+                    connection.checkTimeouts(nowMillis);
+                } catch (IOException e) {
+                    logger.error("Error in channel: {}", e.getMessage());
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    private void runPendingTasks() {
+        Runnable task;
+        while ((task = this.pendingTasks.poll()) != null) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.nio;
+
+import org.example.ServerLifecycle;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.example.http.HttpConfiguration.ACCEPTORS;
+import static org.example.http.HttpConfiguration.NIO_WORKER_THREADS;
+
+// Non-blocking engine: one or more event loops multiplex all connections, the first ACCEPTORS of them also accept
+// (with SO_REUSEPORT each on its own listening channel). Complete requests are handled by a pool of
+// NIO_WORKER_THREADS workers, the event loops only read, frame and write.
+public class NioHttpServer implements ServerLifecycle {
+    private final int port;
+    private final NioEventLoop[] eventLoops;
+    // a connection has at most one request handed over at a time, the queue is bounded by the open connections
+    private final ThreadPoolExecutor workers;
+    private ServerSocketChannel serverSocketChannel;
+
+    public NioHttpServer(int port, int eventLoops) throws IOException {
+        this.port = port;
+        AtomicInteger workerNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(
+                NIO_WORKER_THREADS,
+                NIO_WORKER_THREADS,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    // the event loops keep the JVM alive, the workers only serve their connections
+                    Thread thread = new Thread(runnable, "nio-worker-" + workerNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        this.eventLoops = new NioEventLoop[Math.max(1, eventLoops)];
+        for (int i = 0; i < this.eventLoops.length; i++) {
+            this.eventLoops[i] = new NioEventLoop("nio-event-loop-" + (i + 1), this.workers);
+        }
+    }
+
+    @Override
+    public void start() throws IOException {
+        List<ServerSocketChannel> serverSocketChannels = ServerChannels.open(this.port, ACCEPTORS);
+        this.serverSocketChannel = serverSocketChannels.get(0);
+        for (ServerSocketChannel serverSocketChannel : serverSocketChannels) {
+            serverSocketChannel.configureBlocking(false);
+        }
+        // every SO_REUSEPORT channel gets connections from the kernel and must be registered, a shared channel is
+        // registered at most once per event loop
+        int acceptors = Math.max(serverSocketChannels.size(), Math.min(ACCEPTORS, this.eventLoops.length));
+        for (int i = 0; i < acceptors; i++) {
+            ServerSocketChannel serverSocketChannel = serverSocketChannels.get(i % serverSocketChannels.size());
+            serverSocketChannel.register(
+                    this.eventLoops[i % this.eventLoops.length].getSelector(),
+                    SelectionKey.OP_ACCEPT,
+                    new NioAcceptor(serverSocketChannel, this.eventLoops, i)
+            );
+        }
+        for (NioEventLoop eventLoop : this.eventLoops) {
+            eventLoop.start();
+        }
+    }
+
+    // each event loop closes its acceptors and drains its connections, then ends once they are all closed. Requests
+    // already handed to the workers are answered with Connection: close
+    @Override
+    public void stop() {
+        for (NioEventLoop eventLoop : this.eventLoops) {
+            eventLoop.shutdown();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean terminated = true;
+        for (NioEventLoop eventLoop : this.eventLoops) {
+            terminated &= eventLoop.awaitTermination(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        }
+        if (terminated) {
+            this.workers.shutdown();
+        }
+        return terminated;
+    }
+
+    @Override
+    public void stopNow() {
+        for (NioEventLoop eventLoop : this.eventLoops) {
+            eventLoop.shutdownNow();
+        }
+        this.workers.shutdownNow();
+    }
+
+    @Override
+    public int getLocalPort() throws IOException {
+        return ((InetSocketAddress) this.serverSocketChannel.getLocalAddress()).getPort();
+    }
+}
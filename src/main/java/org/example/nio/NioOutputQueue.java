@@ -0,0 +1,57 @@
+package org.example.nio;
+
+import org.example.http.HttpOutputBuffer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+// HttpOutputBuffer of a non-blocking connection: instead of writing, responses are queued as buffers
+// that NioConnection gather-writes whenever the socket accepts more bytes. Large file bodies are queued
+// as memory-mapped regions, which stay valid after the handler closed the file and are never copied to the heap.
+class NioOutputQueue extends HttpOutputBuffer {
+    // regions are mapped in pieces, a single mapping cannot exceed 2 GB
+    private static final long MAX_MAPPED_REGION = 1L << 30;
+    private final Deque<ByteBuffer> pendingWrites;
+
+    NioOutputQueue() {
+        this.pendingWrites = new ArrayDeque<>();
+    }
+
+    Deque<ByteBuffer> getPendingWrites() {
+        return this.pendingWrites;
+    }
+
+    @Override
+    protected void writeOut(byte[] bytes, int offset, int length) {
+        this.pendingWrites.add(ByteBuffer.wrap(Arrays.copyOfRange(bytes, offset, offset + length)));
+    }
+
+    @Override
+    public void writeShared(byte[] bytes, int offset, int length) throws IOException {
+        flushBuffer();
+        addBytesWritten(length);
+        this.pendingWrites.add(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    @Override
+    protected void transferOut(FileChannel fileChannel, long position, long count) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long regionSize = Math.min(end - position, MAX_MAPPED_REGION);
+            this.pendingWrites.add(fileChannel.map(FileChannel.MapMode.READ_ONLY, position, regionSize));
+            position += regionSize;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    @Override
+    public void close() {
+    }
+}
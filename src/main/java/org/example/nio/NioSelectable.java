@@ -0,0 +1,11 @@
+package org.example.nio;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+
+// attachment of every key registered on a NioEventLoop selector
+interface NioSelectable {
+    void onSelected(SelectionKey selectionKey) throws IOException;
+
+    void close();
+}
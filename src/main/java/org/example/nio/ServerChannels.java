@@ -0,0 +1,64 @@
+package org.example.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import static org.example.http.HttpConfiguration.ACCEPT_BACKLOG;
+import static org.example.http.HttpConfiguration.REUSE_PORT;
+import static org.example.http.HttpConfiguration.SOCKET_RECEIVE_BUFFER_SIZE;
+import static org.example.http.HttpConfiguration.SOCKET_SEND_BUFFER_SIZE;
+import static org.example.http.HttpConfiguration.TCP_NO_DELAY;
+
+// Listening and accepted sockets of both engines, set up from the socket settings of HttpConfiguration
+public final class ServerChannels {
+    private ServerChannels() {}
+
+    // the listening channels for the given number of acceptors: one each with SO_REUSEPORT, a single shared one
+    // otherwise. Port 0 binds them all to the same ephemeral port
+    public static List<ServerSocketChannel> open(int port, int acceptors) throws IOException {
+        List<ServerSocketChannel> serverSocketChannels = new ArrayList<>();
+        try {
+            serverSocketChannels.add(open(port));
+            int boundPort = ((InetSocketAddress) serverSocketChannels.get(0).getLocalAddress()).getPort();
+            for (int i = 1; REUSE_PORT && i < acceptors; i++) {
+                serverSocketChannels.add(open(boundPort));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (ServerSocketChannel serverSocketChannel : serverSocketChannels) {
+                serverSocketChannel.close();
+            }
+            throw e;
+        }
+        return serverSocketChannels;
+    }
+
+    private static ServerSocketChannel open(int port) throws IOException {
+        ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+        try {
+            if (REUSE_PORT) {
+                // UnsupportedOperationException on platforms without it
+                serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            // accepted sockets inherit it, and windows over 64 KB must be negotiated before the connection exists
+            if (SOCKET_RECEIVE_BUFFER_SIZE > 0) {
+                serverSocketChannel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_RECEIVE_BUFFER_SIZE);
+            }
+            serverSocketChannel.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+        } catch (IOException | RuntimeException e) {
+            serverSocketChannel.close();
+            throw e;
+        }
+        return serverSocketChannel;
+    }
+
+    public static void configure(SocketChannel socketChannel) throws IOException {
+        socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, TCP_NO_DELAY);
+        if (SOCKET_SEND_BUFFER_SIZE > 0) {
+            socketChannel.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_SEND_BUFFER_SIZE);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+import org.example.BlockingHttpServer;
+import org.example.ExecutionMode;
+import org.example.HttpServer;
+import org.example.ServerLifecycle;
+import org.example.http.util.AccessLog;
+import org.junit.jupiter.api.*;
+import java.io.*;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccessLogTest {
+    // holds every write until released, standing in for a slow disk
+    private static class BlockedOutputStream extends ByteArrayOutputStream {
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            try {
+                this.released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.write(bytes, offset, length);
+        }
+    }
+
+    private static void logRequest(AccessLog accessLog, String target) throws IOException {
+        accessLog.log(System.currentTimeMillis(), InetAddress.getByName("127.0.0.1"), "GET", target, "HTTP/1.1",
+                200, 512, null, null);
+    }
+
+    private static String[] lines(ByteArrayOutputStream outputStream) {
+        String output = outputStream.toString(StandardCharsets.UTF_8);
+        return output.isEmpty() ? new String[0] : output.split("\n");
+    }
+
+    @Test
+    public void testWritesEntriesInCombinedLogFormat() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        AccessLog accessLog = new AccessLog(outputStream, 16, AccessLog.OverflowPolicy.DROP);
+        accessLog.log(System.currentTimeMillis(), InetAddress.getByName("127.0.0.1"), "GET", "/index.html?v=2", "HTTP/1.1",
+                200, 1043, "http://localhost/", "curl/8.0");
+        accessLog.log(System.currentTimeMillis(), null, null, null, null, 400, 0, null, null);
+        accessLog.close();
+
+        String[] lines = lines(outputStream);
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].matches(
+                "127\\.0\\.0\\.1 - - \\[\\d{2}/\\w{3}/\\d{4}:\\d{2}:\\d{2}:\\d{2} [+-]\\d{4}] "
+                        + "\"GET /index\\.html\\?v=2 HTTP/1\\.1\" 200 1043 \"http://localhost/\" \"curl/8\\.0\""), lines[0]);
+        assertTrue(lines[1].matches("- - - \\[.+] \"-\" 400 - \"-\" \"-\""), lines[1]);
+    }
+
+    @Test
+    public void testEscapesClientValues() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        AccessLog accessLog = new AccessLog(outputStream, 16, AccessLog.OverflowPolicy.DROP);
+        accessLog.log(System.currentTimeMillis(), null, "GET", "/", "HTTP/1.1", 200, 10, null, "evil\"\n1.2.3.4 \\");
+        accessLog.close();
+
+        String[] lines = lines(outputStream);
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].endsWith(" \"-\" \"evil\\\"\\x0a1.2.3.4 \\\\\""), lines[0]);
+    }
+
+    @Test
+    public void testDropsAndCountsEntriesWhenBufferIsFull() throws Exception {
+        BlockedOutputStream outputStream = new BlockedOutputStream();
+        AccessLog accessLog = new AccessLog(outputStream, 2, AccessLog.OverflowPolicy.DROP);
+        for (int i = 0; i < 10; i++) {
+            logRequest(accessLog, "/" + i);
+        }
+        // the writer holds one batch at most, the buffer two entries
+        assertTrue(accessLog.getDroppedEntries() >= 10 - 2 - 2);
+        outputStream.released.countDown();
+        accessLog.close();
+
+        assertEquals(10, lines(outputStream).length + accessLog.getDroppedEntries());
+    }
+
+    @Test
+    public void testBlocksUntilEntriesAreWrittenWhenBufferIsFull() throws Exception {
+        BlockedOutputStream outputStream = new BlockedOutputStream();
+        AccessLog accessLog = new AccessLog(outputStream, 2, AccessLog.OverflowPolicy.BLOCK);
+        Thread requests = new Thread(() -> {
+            try {
+                for (int i = 0; i < 10; i++) {
+                    logRequest(accessLog, "/" + i);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        requests.start();
+        requests.join(200);
+        assertTrue(requests.isAlive());
+        outputStream.released.countDown();
+        requests.join();
+        accessLog.close();
+
+        assertEquals(0, accessLog.getDroppedEntries());
+        assertEquals(10, lines(outputStream).length);
+    }
+
+    @Test
+    public void testKeepsInterruptWhenCloseIsInterrupted() throws IOException, InterruptedException {
+        BlockedOutputStream outputStream = new BlockedOutputStream();
+        AccessLog accessLog = new AccessLog(outputStream, 16, AccessLog.OverflowPolicy.DROP);
+        logRequest(accessLog, "/interrupted");
+        Thread.currentThread().interrupt();
+        accessLog.close();
+        assertTrue(Thread.interrupted());
+
+        // the writer was not stopped, a second close still writes the entry out
+        outputStream.released.countDown();
+        accessLog.close();
+        assertEquals(1, lines(outputStream).length);
+    }
+
+    @Test
+    public void testWritesBufferedEntriesWhenServerStops() throws Exception {
+        Path file = Files.createTempFile("access-log-test", ".log");
+        try {
+            // a slow disk: the entries are still buffered when the server is stopped
+            OutputStream outputStream = new FilterOutputStream(new FileOutputStream(file.toFile())) {
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    this.out.write(bytes, offset, length);
+                }
+            };
+            AccessLog accessLog = new AccessLog(outputStream, 64, AccessLog.OverflowPolicy.BLOCK);
+            ServerLifecycle server = new BlockingHttpServer(0, ExecutionMode.BOUNDED_POOL);
+            server.start();
+            for (int i = 0; i < 20; i++) {
+                logRequest(accessLog, "/" + i);
+            }
+            HttpServer.stop(server, accessLog);
+
+            assertEquals(20, Files.readAllLines(file).size());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
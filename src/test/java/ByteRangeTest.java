@@ -0,0 +1,60 @@
+import org.example.http.util.ByteRange;
+import org.junit.jupiter.api.*;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteRangeTest {
+    private static final String ENTITY_TAG = "\"abc\"";
+    private static final String LAST_MODIFIED = "Sat, 28 Dec 2024 10:15:30 GMT";
+
+    private static List<ByteRange> evaluate(String range, String ifRange) {
+        return ByteRange.evaluate(range, ifRange, 1000, ENTITY_TAG, LAST_MODIFIED);
+    }
+
+    @Test
+    public void testParsesClosedOpenAndSuffixRanges() {
+        assertEquals(List.of(new ByteRange(0, 99)), evaluate("bytes=0-99", null));
+        assertEquals(List.of(new ByteRange(500, 999)), evaluate("bytes=500-", null));
+        assertEquals(List.of(new ByteRange(900, 999)), evaluate("bytes=-100", null));
+        assertEquals(List.of(new ByteRange(0, 999)), evaluate("bytes=-5000", null));
+        assertEquals(List.of(new ByteRange(990, 999)), evaluate("bytes=990-5000", null));
+        assertEquals(List.of(new ByteRange(0, 0), new ByteRange(10, 19)), evaluate("bytes=0-0, 10-19", null));
+        assertEquals("bytes 10-19/1000", new ByteRange(10, 19).contentRange(1000));
+    }
+
+    @Test
+    public void testReportsUnsatisfiableRanges() {
+        assertEquals(List.of(), evaluate("bytes=1000-", null));
+        assertEquals(List.of(), evaluate("bytes=-0", null));
+        assertEquals(List.of(new ByteRange(0, 9)), evaluate("bytes=2000-2999,0-9", null));
+    }
+
+    @Test
+    public void testIgnoresInvalidOrExcessiveRanges() {
+        assertNull(evaluate(null, null));
+        assertNull(evaluate("items=0-9", null));
+        assertNull(evaluate("bytes=9-0", null));
+        assertNull(evaluate("bytes=a-b", null));
+        assertNull(evaluate("bytes=0-1" + ",2-3".repeat(16), null));
+    }
+
+    @Test
+    public void testCoalescesOverlappingAndAdjacentRanges() {
+        assertEquals(List.of(new ByteRange(0, 14)), evaluate("bytes=5-14,0-9", null));
+        assertEquals(List.of(new ByteRange(0, 19)), evaluate("bytes=10-19,0-9", null));
+        assertEquals(List.of(new ByteRange(0, 9), new ByteRange(20, 29), new ByteRange(900, 999)),
+                evaluate("bytes=-100,20-29,0-9,0-9", null));
+        // repeated ranges would send the whole representation several times over
+        assertNull(evaluate("bytes=0-" + ",0-".repeat(15), null));
+        assertNull(evaluate("bytes=0-599,400-999", null));
+    }
+
+    @Test
+    public void testAppliesRangeOnlyIfRepresentationIsUnchanged() {
+        assertNotNull(evaluate("bytes=0-9", ENTITY_TAG));
+        assertNotNull(evaluate("bytes=0-9", LAST_MODIFIED));
+        assertNull(evaluate("bytes=0-9", "\"abd\""));
+        assertNull(evaluate("bytes=0-9", "W/\"abc\""));
+        assertNull(evaluate("bytes=0-9", "Fri, 27 Dec 2024 10:15:30 GMT"));
+    }
+}
@@ -0,0 +1,49 @@
+import org.example.http.ContentEncoding;
+import org.example.http.util.ConditionalRequest;
+import org.junit.jupiter.api.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConditionalRequestTest {
+    private static final FileTime LAST_MODIFIED = FileTime.from(Instant.parse("2024-12-28T10:15:30.250Z"));
+    private static final String LAST_MODIFIED_DATE = ConditionalRequest.formatHttpDate(LAST_MODIFIED);
+
+    @Test
+    public void testFormatsImfFixdate() {
+        assertEquals("Sat, 28 Dec 2024 10:15:30 GMT", LAST_MODIFIED_DATE);
+        assertEquals("Mon, 01 Jan 2024 00:00:00 GMT",
+                ConditionalRequest.formatHttpDate(FileTime.from(Instant.parse("2024-01-01T00:00:00Z"))));
+    }
+
+    @Test
+    public void testMatchesEntityTagsWeakly() {
+        assertTrue(isNotModified("\"abc\"", null));
+        assertTrue(isNotModified("\"x\", W/\"abc\"", null));
+        assertTrue(isNotModified("*", null));
+        assertFalse(isNotModified("\"abd\"", null));
+        // If-Modified-Since is ignored once an entity tag is sent
+        assertFalse(isNotModified("\"abd\"", LAST_MODIFIED_DATE));
+    }
+
+    @Test
+    public void testComparesModificationDateToTheSecond() {
+        assertTrue(isNotModified(null, LAST_MODIFIED_DATE));
+        assertTrue(isNotModified(null, "Sat, 28 Dec 2024 10:15:31 GMT"));
+        assertTrue(isNotModified(null, "Sun, 29 Dec 2024 00:00:00 GMT"));
+        assertFalse(isNotModified(null, "Sat, 28 Dec 2024 10:15:29 GMT"));
+        assertFalse(isNotModified(null, "yesterday"));
+        assertFalse(isNotModified(null, null));
+    }
+
+    @Test
+    public void testGivesEachEncodingItsOwnEntityTag() {
+        assertEquals("\"abc\"", ConditionalRequest.variantEntityTag("\"abc\"", ContentEncoding.IDENTITY));
+        assertEquals("\"abc-gzip\"", ConditionalRequest.variantEntityTag("\"abc\"", ContentEncoding.GZIP));
+        assertEquals("\"abc-br\"", ConditionalRequest.variantEntityTag("\"abc\"", ContentEncoding.BROTLI));
+    }
+
+    private static boolean isNotModified(String ifNoneMatch, String ifModifiedSince) {
+        return ConditionalRequest.isNotModified(ifNoneMatch, ifModifiedSince, "\"abc\"", LAST_MODIFIED, LAST_MODIFIED_DATE);
+    }
+}
@@ -0,0 +1,68 @@
+import org.example.ExecutionMode;
+import org.example.http.ConfigurationSource;
+import org.junit.jupiter.api.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConfigurationSourceTest {
+    private static Properties properties(String... keyValues) {
+        Properties properties = new Properties();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            properties.setProperty(keyValues[i], keyValues[i + 1]);
+        }
+        return properties;
+    }
+
+    @Test
+    public void testSystemPropertiesOverrideEnvironmentWhichOverridesTheFile() throws IOException {
+        Path file = Files.createTempFile("jwebserver", ".properties");
+        try {
+            Files.writeString(file, "jwebserver.workerThreads=8\njwebserver.port=8080\njwebserver.maxRequestHeaders=50\n");
+            ConfigurationSource source = new ConfigurationSource(
+                    properties("jwebserver.configFile", file.toString(), "jwebserver.workerThreads", "16"),
+                    Map.of("JWEBSERVER_WORKER_THREADS", "32", "JWEBSERVER_PORT", "9090"));
+            assertEquals(16, source.getInt("workerThreads", 1, 1));
+            assertEquals(9090, source.getInt("port", 80, 0, 65_535));
+            assertEquals(50, source.getInt("maxRequestHeaders", 100, 1));
+            assertEquals(1024, source.getInt("workerQueueCapacity", 1024, 1));
+            assertTrue(source.getErrors().isEmpty());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testParsesTypedValues() {
+        ConfigurationSource source = new ConfigurationSource(properties(
+                "jwebserver.executionMode", "virtual_thread",
+                "jwebserver.allowedHosts", "example.com, localhost",
+                "jwebserver.contentTypes", "json=application/json, css=text/css",
+                "jwebserver.staticCacheMaxBytes", "16_777_216"), Map.of());
+        assertEquals(ExecutionMode.VIRTUAL_THREAD, source.getEnum("executionMode", ExecutionMode.class, ExecutionMode.BOUNDED_POOL));
+        assertEquals(List.of("example.com", "localhost"), source.getList("allowedHosts", List.of()));
+        assertEquals(Map.of("json", "application/json", "css", "text/css"), source.getMap("contentTypes", Map.of()));
+        assertEquals(16L * 1024 * 1024, source.getLong("staticCacheMaxBytes", 0, 0));
+        source.validate();
+    }
+
+    @Test
+    public void testReportsEveryInvalidValue() {
+        ConfigurationSource source = new ConfigurationSource(properties(
+                "jwebserver.workerThreads", "0",
+                "jwebserver.port", "http",
+                "jwebserver.executionMode", "FORK_JOIN",
+                "jwebserver.configFile", "missing.properties"), Map.of());
+        assertEquals(4, source.getInt("workerThreads", 4, 1));
+        assertEquals(80, source.getInt("port", 80, 0, 65_535));
+        assertEquals(ExecutionMode.BOUNDED_POOL, source.getEnum("executionMode", ExecutionMode.class, ExecutionMode.BOUNDED_POOL));
+        IllegalStateException exception = assertThrows(IllegalStateException.class, source::validate);
+        for (String setting : List.of("configFile", "workerThreads=0", "port=http", "executionMode=FORK_JOIN")) {
+            assertTrue(exception.getMessage().contains("jwebserver." + setting), exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import org.example.BoundedPoolConnectionExecutor;
+import org.example.ConnectionExecutor;
+import org.example.http.cache.StaticResponseCache;
+import org.example.http.limit.ConnectionLimiter;
+import org.example.metrics.ServerMetrics;
+import org.junit.jupiter.api.*;
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionExecutorTest {
+    private ServerSocket serverSocket;
+    private final List<Socket> clients = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        serverSocket = new ServerSocket(0);
+    }
+
+    @Test
+    public void testBoundedPoolRejectsWith503WhenQueueIsFull() throws IOException {
+        ConnectionExecutor connectionExecutor = new BoundedPoolConnectionExecutor(1, 1);
+        long executorRejectionsBefore = ServerMetrics.get().getExecutorRejections();
+        try {
+            // the first connection occupies the only worker, the second one waits in the queue
+            assertTrue(connectionExecutor.execute(acceptIdleClient()));
+            assertTrue(connectionExecutor.execute(acceptIdleClient()));
+            Socket rejected = acceptIdleClient();
+            assertFalse(connectionExecutor.execute(rejected));
+            ConnectionLimiter.getInstance().close(rejected.getInetAddress());
+
+            BufferedReader rejectedClient = new BufferedReader(
+                    new InputStreamReader(clients.get(2).getInputStream(), StandardCharsets.US_ASCII));
+            assertEquals("HTTP/1.1 503 Service Unavailable", rejectedClient.readLine());
+            assertEquals(1, connectionExecutor.getRejectedConnections());
+            assertEquals(executorRejectionsBefore + 1, ServerMetrics.get().getExecutorRejections());
+            // the worker is still blocked on the first connection
+            assertEquals(1, connectionExecutor.getQueueDepth());
+            ServerMetrics.get().connectionExecutorStarted(connectionExecutor);
+            assertTrue(ServerMetrics.get().toPrometheusText(StaticResponseCache.getInstance(), null)
+                    .contains("\njwebserver_worker_queue_depth 1\n"));        } finally {
+            ServerMetrics.get().connectionExecutorStopped(connectionExecutor);
+            connectionExecutor.shutdown();
+        }
+    }
+
+    // counted like the accept loop does, the handlers release the count once they close
+    private Socket acceptIdleClient() throws IOException {
+        clients.add(new Socket("localhost", serverSocket.getLocalPort()));
+        Socket socket = serverSocket.accept();
+        assertNull(ConnectionLimiter.getInstance().open(socket.getInetAddress()));
+        return socket;
+    }
+
+    @AfterEach
+    public void clean() throws IOException {
+        for (Socket client : clients) {
+            client.close();
+        }
+        serverSocket.close();
+    }
+}
@@ -0,0 +1,47 @@
+import org.example.http.ContentEncoding;
+import org.junit.jupiter.api.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContentEncodingTest {
+    private static final Set<ContentEncoding> ALL = EnumSet.allOf(ContentEncoding.class);
+    private static final Set<ContentEncoding> ENCODABLE = EnumSet.of(ContentEncoding.GZIP, ContentEncoding.DEFLATE, ContentEncoding.IDENTITY);
+
+    @Test
+    public void testPrefersCompressedEncodingsOnEqualWeights() {
+        assertEquals(ContentEncoding.BROTLI, ContentEncoding.negotiate("gzip, deflate, br", ALL));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("gzip, deflate, br", ENCODABLE));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("X-GZIP", ENCODABLE));
+    }
+
+    @Test
+    public void testHonoursQualityValues() {
+        assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("gzip;q=0.5, deflate", ENCODABLE));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("br;q=0, *;q=0.1", ALL));
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("gzip;q=0, deflate;q=0", ENCODABLE));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("gzip;q=0.2, identity;q=0", ENCODABLE));
+    }
+
+    @Test
+    public void testFallsBackToIdentity() {
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate(null, ALL));
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("", ALL));
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("compress", ALL));
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("br", EnumSet.of(ContentEncoding.IDENTITY)));
+    }
+
+    @Test
+    public void testEncodesGzipAndZlib() throws IOException {
+        byte[] content = "compressible ".repeat(100).getBytes(StandardCharsets.US_ASCII);
+        byte[] gzip = ContentEncoding.GZIP.encode(content);
+        byte[] deflate = ContentEncoding.DEFLATE.encode(content);
+        assertArrayEquals(content, new GZIPInputStream(new ByteArrayInputStream(gzip)).readAllBytes());
+        assertArrayEquals(content, new InflaterInputStream(new ByteArrayInputStream(deflate)).readAllBytes());
+        assertThrows(UnsupportedOperationException.class, () -> ContentEncoding.BROTLI.encode(content));
+    }
+}
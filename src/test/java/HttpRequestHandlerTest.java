@@ -2,6 +2,9 @@ import org.example.http.HttpRequestHandler;
 import org.example.http.HttpRequestLine;
 import org.example.http.HttpRequestParser;
 import org.example.http.errors.InvalidHttpRequestException;
+import org.example.http.util.ConditionalRequest;
+import org.example.http.util.ResourceManager;
+import org.example.http.util.StaticResource;
 import org.junit.jupiter.api.*;
 import org.mockito.Mockito;
 import java.io.*;
@@ -36,18 +39,13 @@ public class HttpRequestHandlerTest {
 
     @Nested
     public class TestGetHttpRequest {
+        // files are served byte for byte
         private StringBuilder getTestResource() throws IOException {
-            StringBuilder testResource = new StringBuilder();
             ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-            InputStream inputStream = classLoader.getResourceAsStream("www/index.html");
-            assert inputStream != null;
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
-            BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
-            String line;
-            while((line = bufferedReader.readLine()) != null) {
-                testResource.append(line).append("\n");
+            try (InputStream inputStream = classLoader.getResourceAsStream("www/index.html")) {
+                assert inputStream != null;
+                return new StringBuilder(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
             }
-            return testResource;
         }
 
 
@@ -64,12 +62,32 @@ public class HttpRequestHandlerTest {
                         .append("\r\n")
                         .append("Host: localhost")
                         .append("\r\n\r\n");
+                StringBuilder testResource = getTestResource();
+                String entityTag;
+                String lastModified;
+                try (StaticResource staticResource = ResourceManager.getResourceContent("index.html")) {
+                    entityTag = staticResource.getEntityTag();
+                    lastModified = ConditionalRequest.formatHttpDate(staticResource.getLastModified());
+                }
                 outputResponseString
                         .append("HTTP/1.1 200 OK")
                         .append("\r\n")
                         .append("Content-type: text/html")
+                        .append("\r\n")
+                        .append("Content-Length: ")
+                        .append(testResource.toString().getBytes(StandardCharsets.UTF_8).length)
+                        .append("\r\n")
+                        .append("ETag: ")
+                        .append(entityTag)
+                        .append("\r\n")
+                        .append("Last-Modified: ")
+                        .append(lastModified)
+                        .append("\r\n")
+                        .append("Accept-Ranges: bytes")
+                        .append("\r\n")
+                        .append("Connection: close")
                         .append("\r\n\r\n")
-                        .append(getTestResource());
+                        .append(testResource);
                 mockedSocketOutputStream = new ByteArrayOutputStream();
                 mockedSocketInputStream = new ByteArrayInputStream(inputRequestString.toString().getBytes());
                 when(mockedSever.getOutputStream()).thenReturn(mockedSocketOutputStream);
@@ -86,7 +104,7 @@ public class HttpRequestHandlerTest {
                 testHttpRequestHandler.generateHttpResponse();
 
                 // assert
-                assertEquals(outputResponseString.toString(), mockedSocketOutputStream.toString());
+                assertEquals(outputResponseString.toString(), SocketHandlerTest.withoutCommonHeaders(mockedSocketOutputStream.toString()));
             } catch (IOException | InvalidHttpRequestException e) {
                 fail(e.getMessage());
             }
@@ -107,6 +125,10 @@ public class HttpRequestHandlerTest {
                         .append("\r\n\r\n");
                 outputResponseString
                         .append("HTTP/1.1 404 Not Found")
+                        .append("\r\n")
+                        .append("Content-Length: 0")
+                        .append("\r\n")
+                        .append("Connection: close")
                         .append("\r\n\r\n");
                 mockedSocketOutputStream = new ByteArrayOutputStream();
                 mockedSocketInputStream = new ByteArrayInputStream(inputRequestString.toString().getBytes());
@@ -125,7 +147,7 @@ public class HttpRequestHandlerTest {
                 testHttpRequestHandler.generateHttpResponse();
 
                 // assert
-                assertEquals(outputResponseString.toString(), mockedSocketOutputStream.toString());
+                assertEquals(outputResponseString.toString(), SocketHandlerTest.withoutCommonHeaders(mockedSocketOutputStream.toString()));
             } catch (IOException | InvalidHttpRequestException e) {
                 fail(e.getMessage());
             }
@@ -146,6 +168,10 @@ public class HttpRequestHandlerTest {
                         .append("\r\n\r\n");
                 outputResponseString
                         .append("HTTP/1.1 403 Forbidden")
+                        .append("\r\n")
+                        .append("Content-Length: 0")
+                        .append("\r\n")
+                        .append("Connection: close")
                         .append("\r\n\r\n");
                 mockedSocketOutputStream = new ByteArrayOutputStream();
                 mockedSocketInputStream = new ByteArrayInputStream(inputRequestString.toString().getBytes());
@@ -163,7 +189,7 @@ public class HttpRequestHandlerTest {
                 testHttpRequestHandler.generateHttpResponse();
 
                 // assert
-                assertEquals(outputResponseString.toString(), mockedSocketOutputStream.toString());
+                assertEquals(outputResponseString.toString(), SocketHandlerTest.withoutCommonHeaders(mockedSocketOutputStream.toString()));
             } catch (IOException | InvalidHttpRequestException e) {
                 fail(e.getMessage());
             }
@@ -184,7 +210,13 @@ public class HttpRequestHandlerTest {
                     .append("Host: localhost")
                     .append("\r\n\r\n");
             outputResponseString
-                    .append("HTTP/1.1 402 Method Not Allowed")
+                    .append("HTTP/1.1 405 Method Not Allowed")
+                    .append("\r\n")
+                    .append("Content-Length: 0")
+                    .append("\r\n")
+                    .append("Allow: GET, POST")
+                    .append("\r\n")
+                    .append("Connection: close")
                     .append("\r\n\r\n");
             mockedSocketOutputStream = new ByteArrayOutputStream();
             mockedSocketInputStream = new ByteArrayInputStream(inputRequestString.toString().getBytes());
@@ -202,7 +234,7 @@ public class HttpRequestHandlerTest {
             testHttpRequestHandler.generateHttpResponse();
 
             // assert
-            assertEquals(outputResponseString.toString(), mockedSocketOutputStream.toString());
+            assertEquals(outputResponseString.toString(), SocketHandlerTest.withoutCommonHeaders(mockedSocketOutputStream.toString()));
         } catch(IOException | InvalidHttpRequestException e) {
             fail(e.getMessage());
         }
@@ -221,6 +253,10 @@ public class HttpRequestHandlerTest {
                     .append("\r\n\r\n");
             outputResponseString
                     .append("HTTP/1.1 500 Internal Server Error")
+                    .append("\r\n")
+                    .append("Content-Length: 0")
+                    .append("\r\n")
+                    .append("Connection: close")
                     .append("\r\n\r\n");
             mockedSocketOutputStream = new ByteArrayOutputStream();
             mockedSocketInputStream = new ByteArrayInputStream(inputRequestString.toString().getBytes());
@@ -238,7 +274,7 @@ public class HttpRequestHandlerTest {
             testHttpRequestHandler.generateHttpResponse();
 
             // assert
-            assertEquals(outputResponseString.toString(), mockedSocketOutputStream.toString());
+            assertEquals(outputResponseString.toString(), SocketHandlerTest.withoutCommonHeaders(mockedSocketOutputStream.toString()));
         } catch(IOException | InvalidHttpRequestException e) {
             fail(e.getMessage());
         }
@@ -259,6 +295,10 @@ public class HttpRequestHandlerTest {
                     .append("\r\n\r\n");
             outputResponseString
                     .append("HTTP/1.1 500 Internal Server Error")
+                    .append("\r\n")
+                    .append("Content-Length: 0")
+                    .append("\r\n")
+                    .append("Connection: close")
                     .append("\r\n\r\n");
             mockedSocketOutputStream = new ByteArrayOutputStream();
             mockedSocketInputStream = new ByteArrayInputStream(inputRequestString.toString().getBytes());
@@ -276,7 +316,7 @@ public class HttpRequestHandlerTest {
             testHttpRequestHandler.generateHttpResponse();
 
             // assert
-            assertEquals(outputResponseString.toString(), mockedSocketOutputStream.toString());
+            assertEquals(outputResponseString.toString(), SocketHandlerTest.withoutCommonHeaders(mockedSocketOutputStream.toString()));
         } catch(IOException | InvalidHttpRequestException e) {
             fail(e.getMessage());
         }
@@ -297,6 +337,10 @@ public class HttpRequestHandlerTest {
                     .append("\r\n\r\n");
             outputResponseString
                     .append("HTTP/1.1 500 Internal Server Error")
+                    .append("\r\n")
+                    .append("Content-Length: 0")
+                    .append("\r\n")
+                    .append("Connection: close")
                     .append("\r\n\r\n");
             mockedSocketOutputStream = new ByteArrayOutputStream();
             mockedSocketInputStream = new ByteArrayInputStream(inputRequestString.toString().getBytes());
@@ -314,7 +358,7 @@ public class HttpRequestHandlerTest {
             testHttpRequestHandler.generateHttpResponse();
 
             // assert
-            assertEquals(outputResponseString.toString(), mockedSocketOutputStream.toString());
+            assertEquals(outputResponseString.toString(), SocketHandlerTest.withoutCommonHeaders(mockedSocketOutputStream.toString()));
         } catch(IOException | InvalidHttpRequestException e) {
             fail(e.getMessage());
         }
@@ -1,3 +1,293 @@
+import org.example.http.HttpHeaders;
+import org.example.http.HttpInputBuffer;
+import org.example.http.HttpRequestLine;
+import org.example.http.HttpConfiguration;
+import org.example.http.HttpRequestParser;
+import org.example.http.errors.HttpHeaderFieldsTooLargeException;
+import org.example.http.errors.HttpPayloadTooLargeException;
+import org.example.http.errors.HttpTransferCodingNotImplementedException;
+import org.example.http.errors.InvalidHttpBodyException;
+import org.example.http.errors.InvalidHttpHeaderException;
+import org.example.http.errors.InvalidHttpRequestException;
+import org.example.http.errors.InvalidHttpRequestLineException;
+import org.junit.jupiter.api.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 public class HttpRequestParserTest {
+    private static InputStream toInputStream(String request) {
+        return new HttpInputBuffer(new ByteArrayInputStream(request.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testParsesBackToBackRequestsFromOneStream() throws IOException, InvalidHttpRequestException {
+        InputStream inputStream = toInputStream(
+                "POST /a.json HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                        + "3\r\nabc\r\n0\r\nX-Trailer: 1\r\n\r\n"
+                        + "GET /b.html HTTP/1.1\r\nHost: localhost\r\n\r\n");
+
+        HttpRequestParser firstParser = new HttpRequestParser(inputStream);
+        assertEquals("/a.json", firstParser.parseHttpRequestLine().getUriPath());
+        firstParser.parseHttpRequestHeaders();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        assertEquals(3, firstParser.readHttpRequestBody(body));
+        assertEquals("abc", body.toString(StandardCharsets.UTF_8));
+
+        HttpRequestParser secondParser = new HttpRequestParser(inputStream);
+        HttpRequestLine secondRequestLine = secondParser.parseHttpRequestLine();
+        assertEquals("GET", secondRequestLine.getHttpMethod());
+        assertEquals("/b.html", secondRequestLine.getUriPath());
+        assertEquals(Map.of("host", "localhost"), secondParser.parseHttpRequestHeaders());
+        assertEquals(-1, inputStream.read());
+    }
+
+    @Test
+    public void testSplitsRequestTargetIntoDecodedPathAndQuery() throws IOException, InvalidHttpRequestException {
+        HttpRequestLine httpRequestLine = new HttpRequestParser(toInputStream(
+                "GET /caf%C3%A9/menu%20du%20jour.html?lang=fr&q=a+b HTTP/1.1\r\nHost: localhost\r\n\r\n")).parseHttpRequestLine();
+        assertEquals("/café/menu du jour.html", httpRequestLine.getUriPath());
+        assertEquals("lang=fr&q=a+b", httpRequestLine.getQueryString());
+        assertEquals("/caf%C3%A9/menu%20du%20jour.html?lang=fr&q=a+b", httpRequestLine.getRequestTarget());
+        assertEquals("a b", httpRequestLine.getQueryParameters().get("q"));
+
+        assertEquals(null, new HttpRequestParser(toInputStream("GET /a.html HTTP/1.1\r\n\r\n")).parseHttpRequestLine().getQueryString());
+        assertThrows(InvalidHttpRequestLineException.class, () -> new HttpRequestParser(toInputStream(
+                "GET /a%2.html HTTP/1.1\r\n\r\n")).parseHttpRequestLine());
+        assertThrows(InvalidHttpRequestLineException.class, () -> new HttpRequestParser(toInputStream(
+                "GET /a%zz.html HTTP/1.1\r\n\r\n")).parseHttpRequestLine());
+        // decoded control characters would reach file names
+        assertThrows(InvalidHttpRequestLineException.class, () -> new HttpRequestParser(toInputStream(
+                "GET /a%00.html HTTP/1.1\r\n\r\n")).parseHttpRequestLine());
+        assertThrows(InvalidHttpRequestLineException.class, () -> new HttpRequestParser(toInputStream(
+                "GET /a%0A.html HTTP/1.1\r\n\r\n")).parseHttpRequestLine());
+        assertEquals("/a%2Fb", new HttpRequestParser(toInputStream("GET /a%2Fb?c HTTP/1.1\r\n\r\n")).parseHttpRequestLine().getRawPath());
+    }
+
+    @Test
+    public void testKeepsRepeatedHeadersAndLooksUpNamesIgnoringCase() throws IOException, InvalidHttpRequestException {
+        HttpRequestParser httpRequestParser = new HttpRequestParser(toInputStream(
+                "GET / HTTP/1.1\r\nHost: localhost\r\nAccept: text/html\r\nX-Forwarded-For: 10.0.0.1\r\naccept: */*\r\n\r\n"));
+        httpRequestParser.parseHttpRequestLine();
+        HttpHeaders httpHeaders = (HttpHeaders) httpRequestParser.parseHttpRequestHeaders();
+        assertEquals("text/html", httpHeaders.get("accept"));
+        assertEquals("10.0.0.1", httpHeaders.get("X-FORWARDED-FOR"));
+        assertEquals(List.of("text/html", "*/*"), httpHeaders.getAll("Accept"));
+        assertEquals(List.of(), httpHeaders.getAll("range"));
+        assertEquals(4, httpHeaders.count());
+        assertEquals(Map.of("host", "localhost", "accept", "text/html", "x-forwarded-for", "10.0.0.1"), httpHeaders);
+    }
+
+    @Test
+    public void testHeadersOutliveTheBufferTheyWereParsedFrom() throws IOException, InvalidHttpRequestException {
+        String filler = "x".repeat(3000);
+        byte[] body = "b".repeat(20_000).getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        request.write(("POST /a.json HTTP/1.1\r\nHost: localhost\r\nX-First: " + filler + "\r\nX-Second: " + filler
+                + "\r\nX-Third: " + filler + "\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        request.write(body);
+        // the head does not fit the initial buffer, and the body goes through the same buffer afterwards
+        HttpRequestParser httpRequestParser = new HttpRequestParser(new HttpInputBuffer(new ByteArrayInputStream(request.toByteArray()) {
+            @Override
+            public synchronized int read(byte[] bytes, int offset, int length) {
+                return super.read(bytes, offset, Math.min(length, 1000));
+            }
+        }));
+        httpRequestParser.parseHttpRequestLine();
+        Map<String, String> httpHeaders = httpRequestParser.parseHttpRequestHeaders();
+        assertEquals(filler, httpHeaders.get("x-first"));
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        httpRequestParser.readHttpRequestBody(sink);
+        assertArrayEquals(body, sink.toByteArray());
+        assertEquals("localhost", httpHeaders.get("host"));
+        assertEquals(filler, httpHeaders.get("x-second"));
+        assertEquals(filler, httpHeaders.get("x-third"));
+        assertEquals(String.valueOf(body.length), httpHeaders.get("content-length"));
+    }
+
+    @Test
+    public void testParsesRequestLineAndHeadersSplitAcrossReads() throws IOException, InvalidHttpRequestException {
+        byte[] request = "GET /index.html HTTP/1.1\r\nHOST:  localhost \r\nX-Custom-Header:a:b\r\n\r\n"
+                .getBytes(StandardCharsets.US_ASCII);
+        // a stream handing out one byte per read, like a slow client
+        InputStream trickle = new ByteArrayInputStream(request) {
+            @Override
+            public synchronized int read(byte[] bytes, int offset, int length) {
+                return super.read(bytes, offset, Math.min(length, 1));
+            }
+        };
+        HttpRequestParser httpRequestParser = new HttpRequestParser(new HttpInputBuffer(trickle));
+        HttpRequestLine httpRequestLine = httpRequestParser.parseHttpRequestLine();
+        assertEquals("GET", httpRequestLine.getHttpMethod());
+        assertEquals("/index.html", httpRequestLine.getUriPath());
+        assertEquals("HTTP/1.1", httpRequestLine.getHttpVersion());
+        assertEquals(Map.of("host", "localhost", "x-custom-header", "a:b"), httpRequestParser.parseHttpRequestHeaders());
+    }
+
+    @Test
+    public void testRejectsMalformedRequestLines() {
+        for (String request : new String[]{"GET /\r\n\r\n", " GET / HTTP/1.1\r\n\r\n", "GET / HTTP/1.1 extra\r\n\r\n",
+                "GET / HTTP/1.1\n\r\n", "GET / HTTP/1.1\rX\r\n\r\n", ""}) {
+            HttpRequestParser httpRequestParser = new HttpRequestParser(toInputStream(request));
+            assertThrows(InvalidHttpRequestLineException.class, httpRequestParser::parseHttpRequestLine, request);
+        }
+    }
+
+    @Test
+    public void testRejectsHeaderWithoutColon() throws IOException, InvalidHttpRequestException {
+        HttpRequestParser httpRequestParser = new HttpRequestParser(toInputStream("GET / HTTP/1.1\r\nHost\r\n\r\n"));
+        httpRequestParser.parseHttpRequestLine();
+        assertThrows(InvalidHttpHeaderException.class, httpRequestParser::parseHttpRequestHeaders);
+    }
+
+    @Test
+    public void testRejectsConflictingContentLengths() throws IOException, InvalidHttpRequestException {
+        HttpRequestParser httpRequestParser = new HttpRequestParser(toInputStream(
+                "POST /a.json HTTP/1.1\r\nContent-Length: 3\r\ncontent-length:  3\r\n\r\nabc"));
+        httpRequestParser.parseHttpRequestLine();
+        assertEquals("3", httpRequestParser.parseHttpRequestHeaders().get("content-length"));
+
+        HttpRequestParser conflictingParser = new HttpRequestParser(toInputStream(
+                "POST /a.json HTTP/1.1\r\nContent-Length: 3\r\nContent-Length: 13\r\n\r\nabc"));
+        conflictingParser.parseHttpRequestLine();
+        assertThrows(InvalidHttpHeaderException.class, conflictingParser::parseHttpRequestHeaders);
+    }
+
+    @Test
+    public void testRejectsAmbiguousOrUnsupportedTransferEncoding() throws IOException, InvalidHttpRequestException {
+        HttpRequestParser httpRequestParser = new HttpRequestParser(toInputStream(
+                "POST /a.json HTTP/1.1\r\nTransfer-Encoding: Chunked\r\n\r\n3\r\nabc\r\n0\r\n\r\n"));
+        httpRequestParser.parseHttpRequestLine();
+        httpRequestParser.parseHttpRequestHeaders();
+        assertEquals(3, httpRequestParser.readHttpRequestBody(new ByteArrayOutputStream()));
+
+        for (String headers : new String[] {"Content-Length: 3\r\nTransfer-Encoding: chunked", "Transfer-Encoding: chunked\r\nContent-Length: 3"}) {
+            HttpRequestParser smugglingParser = new HttpRequestParser(toInputStream("POST /a.json HTTP/1.1\r\n" + headers + "\r\n\r\n"));
+            smugglingParser.parseHttpRequestLine();
+            assertThrows(InvalidHttpHeaderException.class, smugglingParser::parseHttpRequestHeaders);
+        }
+        for (String headers : new String[] {"Transfer-Encoding: gzip, chunked", "Transfer-Encoding: chunked\r\nTransfer-Encoding: chunked"}) {
+            HttpRequestParser unsupportedParser = new HttpRequestParser(toInputStream("POST /a.json HTTP/1.1\r\n" + headers + "\r\n\r\n"));
+            unsupportedParser.parseHttpRequestLine();
+            assertThrows(HttpTransferCodingNotImplementedException.class, unsupportedParser::parseHttpRequestHeaders);
+        }
+    }
+
+    @Test
+    public void testRejectsTooManyOrTooLargeHeaders() throws IOException, InvalidHttpRequestException {
+        StringBuilder manyHeaders = new StringBuilder("GET / HTTP/1.1\r\n");
+        for (int i = 0; i <= HttpConfiguration.MAX_REQUEST_HEADERS; i++) {
+            manyHeaders.append("X-Header-").append(i).append(": ").append(i).append("\r\n");
+        }
+        HttpRequestParser tooMany = new HttpRequestParser(toInputStream(manyHeaders.append("\r\n").toString()));
+        tooMany.parseHttpRequestLine();
+        assertThrows(HttpHeaderFieldsTooLargeException.class, tooMany::parseHttpRequestHeaders);
+
+        HttpRequestParser tooLarge = new HttpRequestParser(toInputStream(
+                "GET / HTTP/1.1\r\nCookie: " + "a".repeat(HttpConfiguration.MAX_REQUEST_HEAD_SIZE) + "\r\n\r\n"));
+        tooLarge.parseHttpRequestLine();
+        assertThrows(HttpHeaderFieldsTooLargeException.class, tooLarge::parseHttpRequestHeaders);
+    }
+
+    @Test
+    public void testIgnoresEmptyLinesBeforeRequestLine() throws IOException, InvalidHttpRequestException {
+        HttpRequestParser httpRequestParser = new HttpRequestParser(toInputStream("\r\n\r\nGET / HTTP/1.1\r\n\r\n"));
+        assertEquals("HTTP/1.1", httpRequestParser.parseHttpRequestLine().getHttpVersion());
+    }
+
+    @Test
+    public void testStreamsBinaryBodyWithContentLength() throws IOException, InvalidHttpRequestException {
+        byte[] content = new byte[100_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        request.write("POST /a.bin HTTP/1.1\r\nHost: localhost\r\nContent-Length: 100000\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        request.write(content);
+        HttpRequestParser httpRequestParser = new HttpRequestParser(new ByteArrayInputStream(request.toByteArray()));
+        httpRequestParser.parseHttpRequestLine();
+        httpRequestParser.parseHttpRequestHeaders();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        assertEquals(content.length, httpRequestParser.readHttpRequestBody(body));
+        assertArrayEquals(content, body.toByteArray());
+    }
+
+    @Test
+    public void testRejectsTruncatedOrOversizedBody() throws IOException, InvalidHttpRequestException {
+        HttpRequestParser truncated = new HttpRequestParser(toInputStream(
+                "POST /a.json HTTP/1.1\r\nHost: localhost\r\nContent-Length: 10\r\n\r\nabc"));
+        truncated.parseHttpRequestLine();
+        truncated.parseHttpRequestHeaders();
+        assertThrows(InvalidHttpBodyException.class, () -> truncated.readHttpRequestBody(new ByteArrayOutputStream()));
+
+        HttpRequestParser oversized = new HttpRequestParser(toInputStream(
+                "POST /a.json HTTP/1.1\r\nHost: localhost\r\nContent-Length: 99999999999999\r\n\r\nabc"));
+        oversized.parseHttpRequestLine();
+        oversized.parseHttpRequestHeaders();
+        assertThrows(HttpPayloadTooLargeException.class, () -> oversized.readHttpRequestBody(new ByteArrayOutputStream()));
+    }
+
+    private static ByteArrayOutputStream readChunkedBody(byte[] request) throws IOException, InvalidHttpRequestException {
+        HttpRequestParser httpRequestParser = new HttpRequestParser(new ByteArrayInputStream(request));
+        httpRequestParser.parseHttpRequestLine();
+        httpRequestParser.parseHttpRequestHeaders();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        httpRequestParser.readHttpRequestBody(body);
+        return body;
+    }
+
+    private static byte[] chunkedRequest(String chunks) {
+        return ("POST /a.json HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n" + chunks)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testDecodesChunksLargerThan64Kilobytes() throws IOException, InvalidHttpRequestException {
+        byte[] content = new byte[0x30000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        request.write(chunkedRequest("30000\r\n"));
+        request.write(content);
+        request.write("\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        assertArrayEquals(content, readChunkedBody(request.toByteArray()).toByteArray());
+    }
+
+    @Test
+    public void testKeepsMultibyteCharactersSplitAcrossChunks() throws IOException, InvalidHttpRequestException {
+        // "é" is 0xC3 0xA9, the chunk boundary falls in between
+        byte[] request = chunkedRequest("2\r\n\"\u00c3\r\n2\r\n\u00a9\"\r\n0\r\n\r\n");
+        byte[] latin1Request = new String(request, StandardCharsets.UTF_8).getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals("\"\u00e9\"", readChunkedBody(latin1Request).toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testIgnoresChunkExtensionsAndTrailers() throws IOException, InvalidHttpRequestException {
+        InputStream inputStream = toInputStream(
+                "POST /a.json HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                        + "3;name=value\r\nabc\r\nA ; a=1;b\r\n0123456789\r\n0;last\r\nX-Checksum: 1\r\nX-Other: 2\r\n\r\n"
+                        + "GET /b.html HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        HttpRequestParser firstParser = new HttpRequestParser(inputStream);
+        firstParser.parseHttpRequestLine();
+        firstParser.parseHttpRequestHeaders();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        assertEquals(13, firstParser.readHttpRequestBody(body));
+        assertEquals("abc0123456789", body.toString(StandardCharsets.UTF_8));
+        assertEquals("/b.html", new HttpRequestParser(inputStream).parseHttpRequestLine().getUriPath());
+    }
 
+    @Test
+    public void testRejectsMalformedChunkedBodies() {
+        assertThrows(InvalidHttpBodyException.class, () -> readChunkedBody(chunkedRequest("x\r\nabc\r\n0\r\n\r\n")));
+        assertThrows(InvalidHttpBodyException.class, () -> readChunkedBody(chunkedRequest("3 x\r\nabc\r\n0\r\n\r\n")));
+        assertThrows(InvalidHttpBodyException.class, () -> readChunkedBody(chunkedRequest("2\r\nabc\r\n0\r\n\r\n")));
+        assertThrows(InvalidHttpBodyException.class, () -> readChunkedBody(chunkedRequest("1000000000000000\r\n")));
+        assertThrows(InvalidHttpBodyException.class, () -> readChunkedBody(chunkedRequest("3\r\nabc\r\n0\r\n")));
+        assertThrows(HttpPayloadTooLargeException.class, () -> readChunkedBody(chunkedRequest("fffffffffffff\r\n")));
+    }
 }
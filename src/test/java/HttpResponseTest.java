@@ -0,0 +1,54 @@
+import org.example.http.HttpResponse;
+import org.example.http.HttpResponseStatus;
+import org.junit.jupiter.api.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpResponseTest {
+    private static String render(HttpResponse httpResponse) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        httpResponse.writeTo(outputStream);
+        return outputStream.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void testWritesStatusLineCommonHeadersAndHeadersInOrder() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("ETag", "\"1\"");
+        headers.put("Accept-Ranges", "bytes");
+        String response = render(new HttpResponse("HTTP/1.1", HttpResponseStatus.OK)
+                .contentType("text/html")
+                .contentLength(5)
+                .headers(headers)
+                .keepAlive(false));
+        assertTrue(response.matches("HTTP/1\\.1 200 OK\r\nDate: \\w{3}, \\d{2} \\w{3} \\d{4} \\d{2}:\\d{2}:\\d{2} GMT\r\n"
+                + "Server: jwebserver\r\n(?s).*"));
+        assertEquals("HTTP/1.1 200 OK\r\nContent-type: text/html\r\nContent-Length: 5\r\nETag: \"1\"\r\n"
+                + "Accept-Ranges: bytes\r\nConnection: close\r\n\r\n", SocketHandlerTest.withoutCommonHeaders(response));
+    }
+
+    @Test
+    public void testFallsBackToDefaultVersionAndPicksConnectionHeader() throws IOException {
+        assertEquals("HTTP/1.1 404 Not Found\r\n\r\n",
+                SocketHandlerTest.withoutCommonHeaders(render(new HttpResponse("HTTP/2", HttpResponseStatus.NOT_FOUND).keepAlive(true))));
+        assertEquals("HTTP/1.0 404 Not Found\r\nConnection: keep-alive\r\n\r\n",
+                SocketHandlerTest.withoutCommonHeaders(render(new HttpResponse("HTTP/1.0", HttpResponseStatus.NOT_FOUND).keepAlive(true))));
+        assertEquals("HTTP/1.0 404 Not Found\r\n\r\n",
+                SocketHandlerTest.withoutCommonHeaders(render(new HttpResponse("HTTP/1.0", HttpResponseStatus.NOT_FOUND))));
+    }
+
+    @Test
+    public void testSharesPreEncodedStatusLines() {
+        assertSame(HttpResponseStatus.OK.getStatusLine("HTTP/1.1"), HttpResponseStatus.OK.getStatusLine("HTTP/1.1"));
+        assertArrayEquals("HTTP/1.0 200 OK\r\n".getBytes(StandardCharsets.US_ASCII), HttpResponseStatus.OK.getStatusLine("HTTP/1.0"));
+    }
+
+    @Test
+    public void testEncodesHeaderValuesAsLatin1() {
+        byte[] headers = new HttpResponse("HTTP/1.1", HttpResponseStatus.OK).header("X-Name", "café €").getHeaderBytes();
+        assertArrayEquals("X-Name: café ?\r\n".getBytes(StandardCharsets.ISO_8859_1), headers);
+    }
+}
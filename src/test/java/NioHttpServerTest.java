@@ -0,0 +1,258 @@
+import org.example.http.HttpConfiguration;
+import org.example.http.HttpResponseStatus;
+import org.example.http.StreamingResponse;
+import org.example.http.routing.Router;
+import org.example.metrics.ServerMetrics;
+import org.example.nio.NioHttpServer;
+import org.junit.jupiter.api.*;
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NioHttpServerTest {
+    private static NioHttpServer nioHttpServer;
+
+    @BeforeAll
+    public static void setUp() throws IOException {
+        nioHttpServer = new NioHttpServer(0, 2);
+        nioHttpServer.start();
+    }
+
+    @Test
+    public void testServesRequestSentInSeveralPieces() throws IOException, InterruptedException {
+        try (Socket client = new Socket("localhost", nioHttpServer.getLocalPort())) {
+            OutputStream outputStream = client.getOutputStream();
+            for (String piece : new String[]{"GET / HT", "TP/1.1\r\nHo", "st: localhost\r", "\nConnection: close\r\n\r\n"}) {
+                outputStream.write(piece.getBytes(StandardCharsets.US_ASCII));
+                outputStream.flush();
+                Thread.sleep(20);
+            }
+            String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"));
+            assertTrue(response.contains("<h1>Test Web Page</h1>"));
+        }
+    }
+
+    @Test
+    public void testServesOtherConnectionsWhileHandlerBlocks() throws IOException, InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Router.getInstance().add("GET", "/nio-test/blocking", request -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] content = Thread.currentThread().getName().getBytes(StandardCharsets.US_ASCII);
+            return new StreamingResponse(request.getHttpRequestLine().getHttpVersion(), HttpResponseStatus.OK,
+                    "text/plain", Map.of(), content.length, body -> body.write(content));
+        });
+        // a single event loop owns both connections
+        NioHttpServer server = new NioHttpServer(0, 1);
+        server.start();
+        try (Socket blocked = new Socket("localhost", server.getLocalPort());
+             Socket other = new Socket("localhost", server.getLocalPort())) {
+            blocked.setSoTimeout(5_000);
+            other.setSoTimeout(5_000);
+            blocked.getOutputStream().write("GET /nio-test/blocking HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            other.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            assertTrue(new String(other.getInputStream().readAllBytes(), StandardCharsets.UTF_8).startsWith("HTTP/1.1 200 OK\r\n"));
+
+            release.countDown();
+            String response = new String(blocked.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"));
+            assertTrue(response.contains("\r\n\r\nnio-worker-"), response);
+        } finally {
+            release.countDown();
+            Router.getInstance().remove("GET", "/nio-test/blocking");
+            server.stopGracefully(5_000);
+        }
+    }
+
+    @Test
+    public void testCountsConnectionsByAcceptor() throws IOException {
+        long accepted = ServerMetrics.get().getConnectionsAccepted(0);
+        try (Socket client = new Socket("localhost", nioHttpServer.getLocalPort())) {
+            client.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            client.getInputStream().readAllBytes();
+        }
+        assertTrue(ServerMetrics.get().getConnectionsAccepted(0) > accepted);
+    }
+
+    @Test
+    public void testKeepsConnectionOpenBetweenRequests() throws IOException {
+        try (Socket client = new Socket("localhost", nioHttpServer.getLocalPort())) {
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+            for (int i = 0; i < 3; i++) {
+                client.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                assertTrue(SocketHandlerTest.readResponse(inputStream).startsWith("HTTP/1.1 200 OK\r\n"));
+            }
+        }
+    }
+
+    @Test
+    public void testAnswersPipelinedRequestsInOrder() throws IOException {
+        try (Socket client = new Socket("localhost", nioHttpServer.getLocalPort())) {
+            client.getOutputStream().write((
+                    "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                            + "GET /missing.html HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+            ).getBytes(StandardCharsets.US_ASCII));
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+            assertTrue(SocketHandlerTest.readResponse(inputStream).startsWith("HTTP/1.1 200 OK\r\n"));
+            assertEquals("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n",
+                    SocketHandlerTest.withoutCommonHeaders(SocketHandlerTest.readResponse(inputStream)));
+        }
+    }
+
+    @Test
+    public void testServesBinaryFileByteForByte() throws IOException {
+        byte[] content = SocketHandlerTest.createBinaryResource("nio-test.bin", 3_000_000);
+        try (Socket client = new Socket("localhost", nioHttpServer.getLocalPort())) {
+            client.getOutputStream().write("GET /nio-test.bin HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+            String head = SocketHandlerTest.readHead(inputStream);
+            assertArrayEquals(content, inputStream.readNBytes(SocketHandlerTest.readContentLength(head)));
+        }
+    }
+
+    @Test
+    public void testServesRangeOfBinaryFile() throws IOException {
+        byte[] content = SocketHandlerTest.createBinaryResource("nio-test-range.bin", 2_000_000);
+        try (Socket client = new Socket("localhost", nioHttpServer.getLocalPort())) {
+            client.getOutputStream().write("GET /nio-test-range.bin HTTP/1.1\r\nHost: localhost\r\nRange: bytes=1500000-\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+            String head = SocketHandlerTest.readHead(inputStream);
+            assertTrue(head.startsWith("HTTP/1.1 206 Partial Content\r\n"));
+            assertTrue(head.contains("Content-Range: bytes 1500000-1999999/2000000\r\n"));
+            assertArrayEquals(Arrays.copyOfRange(content, 1_500_000, 2_000_000),
+                    inputStream.readNBytes(SocketHandlerTest.readContentLength(head)));
+        }
+    }
+
+    @Test
+    public void testReturns404OnMissingResource() throws IOException {
+        try (Socket client = new Socket("localhost", nioHttpServer.getLocalPort())) {
+            client.getOutputStream().write(
+                    "GET /missing_resource.html HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n", SocketHandlerTest.withoutCommonHeaders(response));
+        }
+    }
+
+    @Test
+    public void testRefusesBodyOverMaximumSizeBeforeReceivingIt() throws IOException {
+        try (Socket client = new Socket("localhost", nioHttpServer.getLocalPort())) {
+            client.getOutputStream().write(("POST /nio-test.json HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: " + (HttpConfiguration.MAX_REQUEST_BODY_SIZE + 1) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(response.startsWith("HTTP/1.1 413 Payload Too Large\r\n"));
+        }
+    }
+
+    @Test
+    public void testRefusesBodyTooBigToBufferInMemory() throws IOException {
+        try (Socket client = new Socket("localhost", nioHttpServer.getLocalPort())) {
+            // within maxRequestBodySize, which the blocking engine streams to disk
+            client.getOutputStream().write(("POST /nio-test.json HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: " + (HttpConfiguration.NIO_MAX_REQUEST_BODY_SIZE + 1) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(response.startsWith("HTTP/1.1 413 Payload Too Large\r\n"));
+        }
+    }
+
+    @Test
+    public void testRefusesConflictingContentLengths() throws IOException {
+        try (Socket client = new Socket("localhost", nioHttpServer.getLocalPort())) {
+            client.getOutputStream().write(("POST /conflicting-length-test.json HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: 2\r\nContent-Length: 12\r\n\r\n{}GET / HTTP/1.1\r\n").getBytes(StandardCharsets.US_ASCII));
+            String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\nConnection: close\r\n\r\n", SocketHandlerTest.withoutCommonHeaders(response));
+        }
+    }
+
+    @Test
+    public void testRefusesAmbiguousOrUnsupportedTransferEncoding() throws IOException {
+        String[] requests = {"POST /smuggling-test.json HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: 4\r\nTransfer-Encoding: chunked\r\n\r\n0\r\n\r\nGET /index.html HTTP/1.1\r\nHost: localhost\r\n\r\n",
+                "POST /smuggling-test.json HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Transfer-Encoding: gzip\r\n\r\n"};
+        String[] responses = {"HTTP/1.1 400 Bad Request", "HTTP/1.1 501 Not Implemented"};
+        for (int i = 0; i < requests.length; i++) {
+            try (Socket client = new Socket("localhost", nioHttpServer.getLocalPort())) {
+                client.getOutputStream().write(requests[i].getBytes(StandardCharsets.US_ASCII));
+                // the smuggled GET is not answered
+                String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+                assertEquals(responses[i] + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n", SocketHandlerTest.withoutCommonHeaders(response));
+            }
+        }
+    }
+
+    @Test
+    public void testRefusesOversizedRequestHead() throws IOException {
+        try (Socket client = new Socket("localhost", nioHttpServer.getLocalPort())) {
+            client.getOutputStream().write(("GET /index.html HTTP/1.1\r\nHost: localhost\r\nCookie: "
+                    + "a".repeat(HttpConfiguration.MAX_REQUEST_HEAD_SIZE) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(response.startsWith("HTTP/1.1 431 Request Header Fields Too Large\r\n"));
+        }
+    }
+
+    @Test
+    public void testReadsChunkedBodyBeforeHandlingPostRequest() throws IOException {
+        try (Socket client = new Socket("localhost", nioHttpServer.getLocalPort())) {
+            client.getOutputStream().write((
+                    "POST /nio-test.json HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\nConnection: close\r\n"
+                            + "Transfer-Encoding: chunked\r\n\r\n"
+                            + "4\r\n{\"a\"\r\n3\r\n:1}\r\n0\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals("HTTP/1.1 201 Created\r\nContent-Length: 0\r\nConnection: close\r\n\r\n", SocketHandlerTest.withoutCommonHeaders(response));
+            assertEquals("{\"a\":1}", Files.readString(Path.of("user-uploads/nio-test.json")));
+        } finally {
+            new File("user-uploads/nio-test.json").delete();
+        }
+    }
+
+    @Test
+    public void testRefusesChunkNotTerminatedByCrlf() throws IOException {
+        try (Socket client = new Socket("localhost", nioHttpServer.getLocalPort())) {
+            // the chunk is longer than its size says, its last two bytes are taken for the terminator
+            client.getOutputStream().write((
+                    "POST /nio-test.json HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                            + "Transfer-Encoding: chunked\r\n\r\n"
+                            + "4\r\n{\"a\":1}\r\n0\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\nConnection: close\r\n\r\n", SocketHandlerTest.withoutCommonHeaders(response));
+            assertTrue(Files.notExists(Path.of("user-uploads/nio-test.json")));
+        } finally {
+            new File("user-uploads/nio-test.json").delete();
+        }
+    }
+
+    @Test
+    public void testRefusesEndlessChunkedFramingLines() throws IOException {
+        String head = "POST /nio-test.json HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + "Transfer-Encoding: chunked\r\n\r\n";
+        // one byte over the limit, and never terminated: the server has read it all when it answers
+        for (String framing : new String[] {"1;" + "a".repeat(HttpConfiguration.MAX_REQUEST_HEAD_SIZE - 1),
+                "0\r\nX-Trailer: " + "a".repeat(HttpConfiguration.MAX_REQUEST_HEAD_SIZE - 10)}) {
+            try (Socket client = new Socket("localhost", nioHttpServer.getLocalPort())) {
+                client.setSoTimeout(5_000);
+                client.getOutputStream().write((head + framing).getBytes(StandardCharsets.US_ASCII));
+                String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+                assertEquals("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\nConnection: close\r\n\r\n", SocketHandlerTest.withoutCommonHeaders(response));
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+import org.example.http.QueryParameters;
+import org.junit.jupiter.api.*;
+import java.util.List;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryParametersTest {
+    @Test
+    public void testKeepsRepeatedNamesInOrder() {
+        QueryParameters queryParameters = new QueryParameters("tag=a&page=2&tag=b&tag=");
+        assertEquals("a", queryParameters.get("tag"));
+        assertEquals(List.of("a", "b", ""), queryParameters.getAll("tag"));
+        assertEquals("2", queryParameters.get("page"));
+        assertNull(queryParameters.get("missing"));
+        assertEquals(List.of(), queryParameters.getAll("missing"));
+        assertEquals(Set.of("tag", "page"), queryParameters.names());
+        assertEquals(4, queryParameters.size());
+    }
+
+    @Test
+    public void testDecodesNamesAndValues() {
+        QueryParameters queryParameters = new QueryParameters("full+name=Ren%C3%A9e+Dupont&a%26b=1%3D1&flag&&bad=%zz");
+        assertEquals("Renée Dupont", queryParameters.get("full name"));
+        assertEquals("1=1", queryParameters.get("a&b"));
+        assertEquals("", queryParameters.get("flag"));
+        // malformed escapes are kept as sent rather than failing the request
+        assertEquals("%zz", queryParameters.get("bad"));
+        assertEquals(4, queryParameters.size());
+    }
+
+    @Test
+    public void testHandlesMissingOrEmptyQuery() {
+        assertTrue(new QueryParameters(null).isEmpty());
+        assertTrue(new QueryParameters("").isEmpty());
+        assertNull(new QueryParameters(null).get("a"));
+    }
+}
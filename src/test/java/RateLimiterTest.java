@@ -0,0 +1,115 @@
+import org.example.http.limit.ConnectionLimiter;
+import org.example.http.limit.Limit;
+import org.example.http.limit.RateLimit;
+import org.example.http.limit.RateLimiter;
+import org.junit.jupiter.api.*;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimiterTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    private static InetAddress address(int i) throws UnknownHostException {
+        return InetAddress.getByAddress(new byte[] {10, (byte) (i >> 16), (byte) (i >> 8), (byte) i});
+    }
+
+    @Test
+    public void testLetsBurstThroughThenRefillsAtTheRate() throws UnknownHostException {
+        RateLimiter rateLimiter = new RateLimiter(1024, new RateLimit(2, 3), null, Map.of());
+        InetAddress client = address(1);
+        long now = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            assertNull(rateLimiter.acquire(client, null, now));
+        }
+        RateLimiter.Rejection rejection = rateLimiter.acquire(client, null, now);
+        assertEquals(Limit.CLIENT_REQUESTS, rejection.limit());
+        assertEquals(SECOND / 2, rejection.retryAfterNanos());
+        assertEquals(1, rejection.getRetryAfterSeconds());
+        // other clients have their own bucket
+        assertNull(rateLimiter.acquire(address(2), null, now));
+
+        assertNull(rateLimiter.acquire(client, null, now + SECOND / 2));
+        assertNotNull(rateLimiter.acquire(client, null, now + SECOND / 2));
+        // idle long enough to be full again, and not fuller
+        for (int i = 0; i < 3; i++) {
+            assertNull(rateLimiter.acquire(client, null, now + 10 * SECOND));
+        }
+        assertNotNull(rateLimiter.acquire(client, null, now + 10 * SECOND));
+    }
+
+    @Test
+    public void testChecksRouteThenClientThenServerLimits() throws UnknownHostException {
+        RateLimiter rateLimiter = new RateLimiter(1024, new RateLimit(1, 2), new RateLimit(1, 3), Map.of("POST /*", new RateLimit(1, 1)));
+        long now = System.nanoTime();
+        assertNull(rateLimiter.acquire(address(1), "POST /*", now));
+        assertEquals(Limit.ROUTE_REQUESTS, rateLimiter.acquire(address(1), "POST /*", now).limit());
+        assertNull(rateLimiter.acquire(address(1), "GET /*", now));
+        assertEquals(Limit.CLIENT_REQUESTS, rateLimiter.acquire(address(1), "GET /*", now).limit());
+        // the refused requests took nothing from the server's bucket
+        assertNull(rateLimiter.acquire(address(2), null, now));
+        assertEquals(Limit.REQUESTS, rateLimiter.acquire(address(3), null, now).limit());
+        assertEquals(Limit.REQUESTS, rateLimiter.acquire(null, "POST /*", now).limit());
+
+        rateLimiter.setLimits(null, null, Map.of());
+        assertNull(rateLimiter.acquire(address(1), "POST /*", now));
+    }
+
+    @Test
+    public void testTracksBoundedNumberOfClients() throws UnknownHostException {
+        RateLimiter rateLimiter = new RateLimiter(64, new RateLimit(1, 1), null, Map.of());
+        long now = System.nanoTime();
+        int refused = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (rateLimiter.acquire(address(i), null, now) != null) {
+                refused++;
+            }
+        }
+        assertTrue(rateLimiter.getTrackedClients() <= 64, String.valueOf(rateLimiter.getTrackedClients()));
+        // the clients without a bucket of their own shared one
+        assertTrue(refused > 0);
+
+        // once idle, their buckets make room for new clients (a stripe is swept at most every 100 ms)
+        for (int i = 1000; i < 1100; i++) {
+            assertNull(rateLimiter.acquire(address(i), null, now + 10 * SECOND + (i - 1000) * SECOND / 5));
+        }
+        assertTrue(rateLimiter.getTrackedClients() <= 64);
+    }
+
+    @Test
+    public void testParsesRateLimits() {
+        RateLimit rateLimit = RateLimit.parse("20/40");
+        assertEquals(20, rateLimit.getRequestsPerSecond());
+        assertEquals(40, rateLimit.getBurst());
+        assertEquals(1, RateLimit.parse(" 0.5 ").getBurst());
+        assertEquals(3, RateLimit.parse("2.5").getBurst());
+        assertThrows(IllegalArgumentException.class, () -> RateLimit.parse("fast"));
+        assertThrows(IllegalArgumentException.class, () -> RateLimit.parse("0"));
+        assertThrows(IllegalArgumentException.class, () -> RateLimit.parse("10/0"));
+        // a burst lasting longer than the nanosecond clock can measure
+        assertThrows(IllegalArgumentException.class, () -> RateLimit.parse("0.001/10000000"));
+        assertEquals(1_000_000, RateLimit.parse("0.001/1000000").getBurst());
+    }
+
+    @Test
+    public void testCapsConnectionsPerClientAndOverall() throws UnknownHostException {
+        ConnectionLimiter connectionLimiter = new ConnectionLimiter(2, 3);
+        assertNull(connectionLimiter.open(address(1)));
+        assertNull(connectionLimiter.open(address(1)));
+        assertEquals(Limit.CLIENT_CONNECTIONS, connectionLimiter.open(address(1)));
+        assertEquals(2, connectionLimiter.getOpenConnections(address(1)));
+        assertNull(connectionLimiter.open(address(2)));
+        assertEquals(Limit.CONNECTIONS, connectionLimiter.open(address(3)));
+        assertEquals(3, connectionLimiter.getOpenConnections());
+
+        connectionLimiter.close(address(1));
+        connectionLimiter.close(address(1));
+        assertEquals(0, connectionLimiter.getOpenConnections(address(1)));
+        assertNull(connectionLimiter.open(address(3)));
+        connectionLimiter.setLimits(0, 0);
+        for (int i = 0; i < 10; i++) {
+            assertNull(connectionLimiter.open(address(3)));
+        }
+    }
+}
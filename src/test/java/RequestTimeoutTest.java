@@ -0,0 +1,109 @@
+import org.example.BlockingHttpServer;
+import org.example.ExecutionMode;
+import org.example.ServerEngine;
+import org.example.ServerLifecycle;
+import org.example.http.errors.HttpRequestTimeoutException.Reason;
+import org.example.metrics.ServerMetrics;
+import org.example.nio.NioHttpServer;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static org.junit.jupiter.api.Assertions.*;
+
+// the test JVM runs with 1 s head and body timeouts, and the body rate checked after 1 s (pom.xml)
+public class RequestTimeoutTest {
+    private static final String UPLOAD_HEAD = "POST /request-timeout-test.json HTTP/1.1\r\nHost: localhost\r\n"
+            + "Content-Type: application/json\r\nContent-Length: 100000\r\n\r\n";
+
+    private static ServerLifecycle start(ServerEngine engine) throws IOException {
+        ServerLifecycle server = switch (engine) {
+            case BLOCKING -> new BlockingHttpServer(0, ExecutionMode.BOUNDED_POOL);
+            case NIO -> new NioHttpServer(0, 1);
+        };
+        server.start();
+        return server;
+    }
+
+    // sends one piece every intervalMillis until the server answers, at most for 10 s
+    private static void trickle(Socket client, byte[] piece, long intervalMillis) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (client.getInputStream().available() == 0 && System.currentTimeMillis() < deadline) {
+            try {
+                client.getOutputStream().write(piece);
+            } catch (IOException e) {
+                // closed by the server
+                return;
+            }
+            Thread.sleep(intervalMillis);
+        }
+    }
+
+    // a client still writing when the server closes may get a reset instead of the 408, the connection is closed
+    // either way
+    private static void assertTimedOut(Socket client) {
+        try {
+            String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+            assertTrue(response.startsWith("HTTP/1.1 408 Request Timeout\r\n"), response);
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("reset"), e.getMessage());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ServerEngine.class)
+    public void testAnswersTricklingHeadWith408(ServerEngine engine) throws IOException, InterruptedException {
+        ServerLifecycle server = start(engine);
+        long timeoutsBefore = ServerMetrics.get().getRequestTimeouts(Reason.HEAD);
+        try (Socket client = new Socket("localhost", server.getLocalPort())) {
+            client.setSoTimeout(10_000);
+            client.getOutputStream().write("GET / HTTP/1.1\r\nX-Trickle: ".getBytes(StandardCharsets.US_ASCII));
+            // every byte arrives well within the timeout, the head as a whole does not
+            long start = System.currentTimeMillis();
+            trickle(client, new byte[] {'a'}, 150);
+            assertTimedOut(client);
+            assertTrue(System.currentTimeMillis() - start < 5_000);
+            assertEquals(timeoutsBefore + 1, ServerMetrics.get().getRequestTimeouts(Reason.HEAD));
+        } finally {
+            server.stopGracefully(5_000);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ServerEngine.class)
+    public void testAnswersStalledBodyWith408(ServerEngine engine) throws IOException, InterruptedException {
+        ServerLifecycle server = start(engine);
+        long timeoutsBefore = ServerMetrics.get().getRequestTimeouts(Reason.BODY);
+        try (Socket client = new Socket("localhost", server.getLocalPort())) {
+            client.setSoTimeout(10_000);
+            client.getOutputStream().write((UPLOAD_HEAD + "{\"key\": ").getBytes(StandardCharsets.US_ASCII));
+            assertTimedOut(client);
+            assertEquals(timeoutsBefore + 1, ServerMetrics.get().getRequestTimeouts(Reason.BODY));
+            // the upload was not committed
+            assertFalse(Files.exists(Path.of("user-uploads/request-timeout-test.json")));
+        } finally {
+            server.stopGracefully(5_000);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ServerEngine.class)
+    public void testAnswersBodyBelowMinimumRateWith408(ServerEngine engine) throws IOException, InterruptedException {
+        ServerLifecycle server = start(engine);
+        long timeoutsBefore = ServerMetrics.get().getRequestTimeouts(Reason.BODY_RATE);
+        try (Socket client = new Socket("localhost", server.getLocalPort())) {
+            client.setSoTimeout(10_000);
+            client.getOutputStream().write(UPLOAD_HEAD.getBytes(StandardCharsets.US_ASCII));
+            // about 80 bytes a second: no read waits long enough for the body timeout, the rate is too low
+            trickle(client, "                ".getBytes(StandardCharsets.US_ASCII), 200);
+            assertTimedOut(client);
+            assertEquals(timeoutsBefore + 1, ServerMetrics.get().getRequestTimeouts(Reason.BODY_RATE));
+            assertFalse(Files.exists(Path.of("user-uploads/request-timeout-test.json")));
+        } finally {
+            server.stopGracefully(5_000);
+        }
+    }
+}
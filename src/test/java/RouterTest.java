@@ -0,0 +1,101 @@
+import org.example.http.HttpResponseStatus;
+import org.example.http.StreamingResponse;
+import org.example.http.routing.RouteHandler;
+import org.example.http.routing.Router;
+import org.junit.jupiter.api.*;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouterTest {
+    private static RouteHandler handler() {
+        return request -> new StreamingResponse("HTTP/1.1", HttpResponseStatus.OK, "text/plain", Map.of(), 0, body -> {});
+    }
+
+    @Test
+    public void testMatchesLiteralParameterAndWildcardSegments() {
+        RouteHandler users = handler();
+        RouteHandler user = handler();
+        RouteHandler files = handler();
+        Router router = new Router()
+                .add("GET", "/users", users)
+                .add("GET", "/users/{id}", user)
+                .add("GET", "/files/*", files);
+
+        assertSame(users, router.match("GET", "/users").handler());
+        Router.Match match = router.match("GET", "/users/42");
+        assertSame(user, match.handler());
+        assertEquals(Map.of("id", "42"), match.pathParameters());
+        assertEquals("GET /users/{id}", match.route());
+        match = router.match("GET", "/files/a/b.txt");
+        assertSame(files, match.handler());
+        assertEquals("a/b.txt", match.pathParameters().get("*"));
+        assertEquals("", router.match("GET", "/files").pathParameters().get("*"));
+        assertNull(router.match("GET", "/users/42/posts"));
+        assertNull(router.match("GET", "/"));
+    }
+
+    @Test
+    public void testDecodesEachSegmentOnItsOwn() {
+        RouteHandler file = handler();
+        RouteHandler menu = handler();
+        Router router = new Router()
+                .add("GET", "/files/{name}", file)
+                .add("GET", "/café/*", menu);
+
+        // an encoded '/' belongs to the parameter, it does not start another segment
+        Router.Match match = router.match("GET", "/files/a%2Fb.txt");
+        assertSame(file, match.handler());
+        assertEquals(Map.of("name", "a/b.txt"), match.pathParameters());
+        assertNull(router.match("GET", "/files/a/b.txt"));
+        match = router.match("GET", "/caf%C3%A9/menu%20du%20jour/%3F");
+        assertSame(menu, match.handler());
+        assertEquals("menu du jour/?", match.pathParameters().get("*"));
+    }
+
+    @Test
+    public void testPrefersLiteralsAndBacktracksOnDeadEnds() {
+        RouteHandler me = handler();
+        RouteHandler posts = handler();
+        RouteHandler fallback = handler();
+        Router router = new Router()
+                .add("GET", "/users/me", me)
+                .add("GET", "/users/{id}/posts/{post}", posts)
+                .add("GET", "/*", fallback);
+
+        assertSame(me, router.match("GET", "/users/me").handler());
+        Router.Match match = router.match("GET", "/users/me/posts/7");
+        assertSame(posts, match.handler());
+        assertEquals(Map.of("id", "me", "post", "7"), match.pathParameters());
+        match = router.match("GET", "/users/me/friends");
+        assertSame(fallback, match.handler());
+        assertEquals("users/me/friends", match.pathParameters().get("*"));
+    }
+
+    @Test
+    public void testMostSpecificPathDecidesTheMethod() {
+        RouteHandler create = handler();
+        Router router = Router.withDefaultRoutes().add("POST", "/api/items", create);
+
+        assertSame(create, router.match("POST", "/api/items").handler());
+        Router.Match match = router.match("GET", "/api/items");
+        assertNotNull(match);
+        assertNull(match.type());
+        assertEquals("POST", match.allowedMethods());
+        assertEquals(Router.RouteType.STATIC_FILES, router.match("GET", "/").type());
+        assertEquals(Router.RouteType.STATIC_FILES, router.match("GET", "/api/other.html").type());
+        assertEquals(Router.RouteType.UPLOADS, router.match("POST", "/notes.json").type());
+        assertNull(router.match("POST", "/notes.json").handler());
+        assertEquals("GET, POST", router.match("PUT", "/notes.json").allowedMethods());
+
+        router.remove("POST", "/api/items");
+        assertEquals(Router.RouteType.STATIC_FILES, router.match("GET", "/api/items").type());
+    }
+
+    @Test
+    public void testRejectsInvalidOrDuplicatePatterns() {
+        Router router = new Router().add("GET", "/a/{id}", handler());
+        assertThrows(IllegalArgumentException.class, () -> router.add("GET", "/a/{name}", handler()));
+        assertThrows(IllegalArgumentException.class, () -> router.add("GET", "/*/a", handler()));
+        assertThrows(IllegalArgumentException.class, () -> router.add("GET", "a", handler()));
+    }
+}
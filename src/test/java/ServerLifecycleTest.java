@@ -0,0 +1,99 @@
+import org.example.BlockingHttpServer;
+import org.example.ExecutionMode;
+import org.example.ServerEngine;
+import org.example.ServerLifecycle;
+import org.example.http.HttpConfiguration;
+import org.example.http.limit.ConnectionLimiter;
+import org.example.nio.NioHttpServer;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import java.io.*;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServerLifecycleTest {
+    private static ServerLifecycle start(ServerEngine engine) throws IOException {
+        ServerLifecycle server = switch (engine) {
+            case BLOCKING -> new BlockingHttpServer(0, ExecutionMode.BOUNDED_POOL);
+            case NIO -> new NioHttpServer(0, 1);
+        };
+        server.start();
+        return server;
+    }
+
+    @ParameterizedTest
+    @EnumSource(ServerEngine.class)
+    public void testClosesIdleConnectionsAndStopsAccepting(ServerEngine engine) throws IOException, InterruptedException {
+        ServerLifecycle server = start(engine);
+        int port = server.getLocalPort();
+        try (Socket client = new Socket("localhost", port)) {
+            client.setSoTimeout(5_000);
+            client.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+            assertTrue(SocketHandlerTest.readResponse(inputStream).startsWith("HTTP/1.1 200 OK\r\n"));
+
+            server.stop();
+            assertEquals(-1, inputStream.read());
+            assertTrue(server.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        assertThrows(ConnectException.class, () -> new Socket("localhost", port).close());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ServerEngine.class)
+    public void testCompletesRequestInFlightWithConnectionClose(ServerEngine engine) throws IOException, InterruptedException {
+        ServerLifecycle server = start(engine);
+        String body = "{\"key\": \"value\"}";
+        Path upload = Path.of("user-uploads/lifecycle-test-" + engine.name().toLowerCase() + ".json");
+        try (Socket client = new Socket("localhost", server.getLocalPort())) {
+            client.setSoTimeout(5_000);
+            OutputStream outputStream = client.getOutputStream();
+            outputStream.write(("POST /" + upload.getFileName() + " HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: " + body.length() + "\r\n\r\n" + body.substring(0, 8)).getBytes(StandardCharsets.US_ASCII));
+            outputStream.flush();
+            // the head is received and the body under way when the server stops
+            Thread.sleep(200);
+            server.stop();
+            outputStream.write(body.substring(8).getBytes(StandardCharsets.US_ASCII));
+
+            String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+            assertTrue(response.startsWith("HTTP/1.1 201 Created\r\n"), response);
+            assertTrue(response.contains("Connection: close\r\n"), response);
+            assertEquals(body, Files.readString(upload));
+            assertTrue(server.awaitTermination(5, TimeUnit.SECONDS));
+        } finally {
+            Files.deleteIfExists(upload);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ServerEngine.class)
+    public void testRefusesConnectionOverClientCapOnAccept(ServerEngine engine) throws IOException, InterruptedException {
+        ServerLifecycle server = start(engine);
+        ConnectionLimiter connectionLimiter = ConnectionLimiter.getInstance();
+        int openBefore = connectionLimiter.getOpenConnections();
+        connectionLimiter.setLimits(1, 0);
+        try (Socket client = new Socket("localhost", server.getLocalPort())) {
+            client.setSoTimeout(5_000);
+            client.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            assertTrue(SocketHandlerTest.readResponse(new BufferedInputStream(client.getInputStream())).startsWith("HTTP/1.1 200 OK\r\n"));
+            try (Socket refused = new Socket("localhost", server.getLocalPort())) {
+                refused.setSoTimeout(5_000);
+                String response = new String(refused.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+                assertTrue(response.startsWith("HTTP/1.1 429 Too Many Requests\r\n"), response);
+            }
+            assertEquals(openBefore + 1, connectionLimiter.getOpenConnections());
+        } finally {
+            server.stop();
+            assertTrue(server.awaitTermination(5, TimeUnit.SECONDS));
+            connectionLimiter.setLimits(HttpConfiguration.MAX_CONNECTIONS_PER_CLIENT, HttpConfiguration.MAX_CONNECTIONS);
+        }
+        // released once the connection is closed
+        assertEquals(openBefore, connectionLimiter.getOpenConnections());
+    }
+}
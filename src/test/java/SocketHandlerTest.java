@@ -0,0 +1,460 @@
+import org.example.SocketHandler;
+import org.example.http.HttpResponseStatus;
+import org.example.http.StreamingResponse;
+import org.example.http.limit.Limit;
+import org.example.http.limit.RateLimit;
+import org.example.http.limit.RateLimiter;
+import org.example.http.routing.Router;
+import org.example.metrics.ServerMetrics;
+import org.junit.jupiter.api.*;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SocketHandlerTest {
+    // accepted like in HttpServer, so that sockets have a channel and files are sent with transferTo
+    private static ServerSocketChannel serverSocket;
+    private static int port;
+
+    @BeforeAll
+    public static void setUp() throws IOException {
+        serverSocket = ServerSocketChannel.open().bind(new InetSocketAddress(0));
+        port = ((InetSocketAddress) serverSocket.getLocalAddress()).getPort();
+    }
+
+    @Test
+    public void testServesSeveralRequestsOnOneConnection() throws IOException {
+        try (Socket client = new Socket("localhost", port)) {
+            new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+            long reusedBefore = ServerMetrics.get().getRequestsOnReusedConnections();
+            OutputStream outputStream = client.getOutputStream();
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+
+            outputStream.write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            assertTrue(readResponse(inputStream).startsWith("HTTP/1.1 200 OK\r\n"));
+            outputStream.write("GET /missing.html HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            assertEquals("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n", withoutCommonHeaders(readResponse(inputStream)));
+
+            // the server closed its side after "Connection: close"
+            assertEquals(-1, inputStream.read());
+            assertEquals(reusedBefore + 1, ServerMetrics.get().getRequestsOnReusedConnections());
+        }
+    }
+
+    @Test
+    public void testAnswersPipelinedRequestsInOrder() throws IOException {
+        try (Socket client = new Socket("localhost", port)) {
+            new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+            client.getOutputStream().write((
+                    "GET /first-missing.html HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                            + "GET /index.html?v=2 HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                            + "GET /last-missing.html HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+            ).getBytes(StandardCharsets.US_ASCII));
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+
+            assertEquals("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n", withoutCommonHeaders(readResponse(inputStream)));
+            assertTrue(readResponse(inputStream).startsWith("HTTP/1.1 200 OK\r\n"));
+            assertEquals("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n", withoutCommonHeaders(readResponse(inputStream)));
+            assertEquals(-1, inputStream.read());
+        }
+    }
+
+    @Test
+    public void testClosesHttp10ConnectionWithoutKeepAlive() throws IOException {
+        try (Socket client = new Socket("localhost", port)) {
+            new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+            client.getOutputStream().write("GET /missing.html HTTP/1.0\r\nHost: localhost\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+            assertEquals("HTTP/1.0 404 Not Found\r\nContent-Length: 0\r\n\r\n", withoutCommonHeaders(response));
+        }
+    }
+
+    @Test
+    public void testServesBinaryFileByteForByte() throws IOException {
+        byte[] content = createBinaryResource("socket-handler-test.bin", 3_000_000);
+        try (Socket client = new Socket("localhost", port)) {
+            new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+            client.getOutputStream().write("GET /socket-handler-test.bin HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+            String head = readHead(inputStream);
+            assertTrue(head.contains("Content-type: application/octet-stream\r\n"));
+            assertArrayEquals(content, inputStream.readNBytes(readContentLength(head)));
+        }
+    }
+
+    @Test
+    public void testAnswersRevalidationOfUnchangedFileWithNotModified() throws IOException {
+        createBinaryResource("socket-handler-test-etag.bin", 2_000_000);
+        try (Socket client = new Socket("localhost", port)) {
+            new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+            OutputStream outputStream = client.getOutputStream();
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+            outputStream.write("GET /socket-handler-test-etag.bin HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            String head = readHead(inputStream);
+            inputStream.readNBytes(readContentLength(head));
+            String entityTag = readHeader(head, "ETag");
+            String lastModified = readHeader(head, "Last-Modified");
+
+            outputStream.write(("GET /socket-handler-test-etag.bin HTTP/1.1\r\nHost: localhost\r\nIf-None-Match: " + entityTag + "\r\n\r\n"
+                    + "GET /socket-handler-test-etag.bin HTTP/1.1\r\nHost: localhost\r\nIf-Modified-Since: " + lastModified + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            for (int i = 0; i < 2; i++) {
+                head = readHead(inputStream);
+                assertTrue(head.startsWith("HTTP/1.1 304 Not Modified\r\n"));
+                assertEquals(entityTag, readHeader(head, "ETag"));
+                assertFalse(head.contains("Content-Length"));
+            }
+        }
+    }
+
+    @Test
+    public void testServesSingleAndMultipleRangesOfFile() throws IOException {
+        byte[] content = createBinaryResource("socket-handler-test-range.bin", 2_000_000);
+        try (Socket client = new Socket("localhost", port)) {
+            new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+            client.getOutputStream().write(("GET /socket-handler-test-range.bin HTTP/1.1\r\nHost: localhost\r\nRange: bytes=-100\r\n\r\n"
+                    + "GET /socket-handler-test-range.bin HTTP/1.1\r\nHost: localhost\r\nRange: bytes=0-9,1000000-1000009\r\n\r\n"
+                    + "GET /socket-handler-test-range.bin HTTP/1.1\r\nHost: localhost\r\nRange: bytes=3000000-\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+
+            String head = readHead(inputStream);
+            assertTrue(head.startsWith("HTTP/1.1 206 Partial Content\r\n"));
+            assertEquals("bytes 1999900-1999999/2000000", readHeader(head, "Content-Range"));
+            assertArrayEquals(Arrays.copyOfRange(content, 1_999_900, 2_000_000), inputStream.readNBytes(readContentLength(head)));
+
+            head = readHead(inputStream);
+            assertTrue(head.startsWith("HTTP/1.1 206 Partial Content\r\n"));
+            String boundary = readHeader(head, "Content-type").substring("multipart/byteranges; boundary=".length());
+            byte[] multipart = inputStream.readNBytes(readContentLength(head));
+            String expected = "\r\n--" + boundary + "\r\nContent-Type: application/octet-stream\r\nContent-Range: bytes 0-9/2000000\r\n\r\n"
+                    + new String(content, 0, 10, StandardCharsets.ISO_8859_1)
+                    + "\r\n--" + boundary + "\r\nContent-Type: application/octet-stream\r\nContent-Range: bytes 1000000-1000009/2000000\r\n\r\n"
+                    + new String(content, 1_000_000, 10, StandardCharsets.ISO_8859_1)
+                    + "\r\n--" + boundary + "--\r\n";
+            assertEquals(expected, new String(multipart, StandardCharsets.ISO_8859_1));
+
+            head = readHead(inputStream);
+            assertTrue(head.startsWith("HTTP/1.1 416 Range Not Satisfiable\r\n"));
+            assertEquals("bytes */2000000", readHeader(head, "Content-Range"));
+        }
+    }
+
+    @Test
+    public void testDispatchesToMountedRoute() throws IOException {
+        Router.getInstance().add("POST", "/socket-handler-test/echo/{name}", request -> {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            request.readBody(body);
+            byte[] content = (request.getPathParameter("name") + ":" + body + ":" + request.getQueryParameter("greeting"))
+                    .getBytes(StandardCharsets.UTF_8);
+            return new StreamingResponse(request.getHttpRequestLine().getHttpVersion(), HttpResponseStatus.OK,
+                    "text/plain", Map.of(), content.length, sink -> sink.write(content));
+        });
+        try (Socket client = new Socket("localhost", port)) {
+            new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+            client.getOutputStream().write(("POST /socket-handler-test/echo/jane%20doe?greeting=hi+there HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n\r\nhello"
+                    + "GET /socket-handler-test/echo/jane HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+            assertTrue(readResponse(inputStream).endsWith("\r\n\r\njane doe:hello:hi there"));
+            assertEquals("HTTP/1.1 405 Method Not Allowed\r\nContent-Length: 0\r\nAllow: POST\r\nConnection: close\r\n\r\n",
+                    withoutCommonHeaders(readResponse(inputStream)));
+        } finally {
+            Router.getInstance().remove("POST", "/socket-handler-test/echo/{name}");
+        }
+    }
+
+    @Test
+    public void testKeepsEncodedSlashInPathParameterAndRefusesEncodedNul() throws IOException {
+        Router.getInstance().add("GET", "/socket-handler-test/names/{name}", request -> {
+            byte[] content = request.getPathParameter("name").getBytes(StandardCharsets.UTF_8);
+            return new StreamingResponse(request.getHttpRequestLine().getHttpVersion(), HttpResponseStatus.OK,
+                    "text/plain", Map.of(), content.length, sink -> sink.write(content));
+        });
+        try (Socket client = new Socket("localhost", port)) {
+            new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+            client.getOutputStream().write(("GET /socket-handler-test/names/ac%2Fdc HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /index%00.html HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+            assertTrue(readResponse(inputStream).endsWith("\r\n\r\nac/dc"));
+            assertEquals("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\nConnection: close\r\n\r\n",
+                    withoutCommonHeaders(readResponse(inputStream)));
+            assertEquals(-1, inputStream.read());
+        } finally {
+            Router.getInstance().remove("GET", "/socket-handler-test/names/{name}");
+        }
+    }
+
+    @Test
+    public void testClosesConnectionWhenStreamedBodyFails() throws IOException {
+        Router.getInstance().add("GET", "/socket-handler-test/failing", request -> new StreamingResponse(
+                request.getHttpRequestLine().getHttpVersion(), HttpResponseStatus.OK, "text/plain", Map.of(), -1, sink -> {
+                    sink.write("partial".getBytes(StandardCharsets.US_ASCII));
+                    sink.flush();
+                    throw new IllegalStateException("backend gone");
+                }));
+        try (Socket client = new Socket("localhost", port)) {
+            client.setSoTimeout(5_000);
+            new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+            client.getOutputStream().write(("GET /socket-handler-test/failing HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /index.html HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            // read to the end of the stream: the connection is closed, the pipelined request left unanswered
+            String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+            assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"), response);
+            assertTrue(response.endsWith("\r\n\r\n7\r\npartial\r\n"), response);
+        } finally {
+            Router.getInstance().remove("GET", "/socket-handler-test/failing");
+        }
+    }
+
+    @Test
+    public void testServesMetricsInPrometheusFormat() throws IOException {
+        try (Socket client = new Socket("localhost", port)) {
+            new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+            long bytesReceivedBefore = ServerMetrics.get().getBytesReceived();
+            long bytesSentBefore = ServerMetrics.get().getBytesSent();
+            String request = "GET /metrics-test-missing.html HTTP/1.1\r\nHost: localhost\r\n\r\n";
+            client.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+            String notFound = readResponse(inputStream);
+            assertTrue(notFound.startsWith("HTTP/1.1 404 Not Found\r\n"));
+            client.getOutputStream().write("GET /metrics HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            String response = readResponse(inputStream);
+            assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"));
+            assertTrue(response.contains("Content-type: text/plain; version=0.0.4; charset=utf-8\r\n"));
+            assertTrue(response.contains("\njwebserver_responses_total{method=\"GET\",status=\"404\"} "));
+            assertTrue(response.contains("\n# TYPE jwebserver_request_parse_seconds histogram\n"));
+            assertTrue(response.contains("\njwebserver_request_parse_seconds_bucket{le=\"0.000001\"} "));
+            assertTrue(response.contains("\njwebserver_request_parse_seconds_bucket{le=\"+Inf\"} "));
+            assertTrue(response.contains("\njwebserver_static_cache_entries "));
+            assertTrue(response.contains("\njwebserver_connections_rejected_total{reason=\"executor\"} "));
+            assertTrue(response.contains("\njwebserver_worker_queue_depth "));
+            // the connection is still open, the first request and its response are counted already
+            assertTrue(counter(response, "jwebserver_received_bytes_total") >= bytesReceivedBefore + request.length());
+            assertTrue(counter(response, "jwebserver_sent_bytes_total") >= bytesSentBefore + notFound.length());
+        }
+    }
+
+    private static long counter(String metrics, String name) {
+        int start = metrics.indexOf("\n" + name + " ") + name.length() + 2;
+        return Long.parseLong(metrics.substring(start, metrics.indexOf('\n', start)));
+    }
+
+    @Test
+    public void testRefusesConflictingContentLengths() throws IOException {
+        try (Socket client = new Socket("localhost", port)) {
+            new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+            // read with either length, the body would end in a different place
+            client.getOutputStream().write(("POST /conflicting-length-test.json HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: 2\r\nContent-Length: 12\r\n\r\n{}GET / HTTP/1.1\r\n").getBytes(StandardCharsets.US_ASCII));
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+            assertEquals("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\nConnection: close\r\n\r\n",
+                    withoutCommonHeaders(readResponse(inputStream)));
+            assertFalse(Files.exists(Path.of("user-uploads/conflicting-length-test.json")));
+        }
+    }
+
+    @Test
+    public void testRefusesAmbiguousOrUnsupportedTransferEncoding() throws IOException {
+        // the smuggled GET must not be answered: with the connection closed, nothing after the 400 is read
+        String[] requests = {"POST /smuggling-test.json HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: 4\r\nTransfer-Encoding: chunked\r\n\r\n0\r\n\r\nGET /index.html HTTP/1.1\r\nHost: localhost\r\n\r\n",
+                "POST /smuggling-test.json HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Transfer-Encoding: gzip\r\n\r\n"};
+        String[] responses = {"HTTP/1.1 400 Bad Request", "HTTP/1.1 501 Not Implemented"};
+        for (int i = 0; i < requests.length; i++) {
+            try (Socket client = new Socket("localhost", port)) {
+                new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+                client.getOutputStream().write(requests[i].getBytes(StandardCharsets.US_ASCII));
+                InputStream inputStream = new BufferedInputStream(client.getInputStream());
+                assertEquals(responses[i] + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n", withoutCommonHeaders(readResponse(inputStream)));
+                assertEquals(-1, inputStream.read());
+            }
+        }
+    }
+
+    @Test
+    public void testStreamsUploadToDiskByteForByte() throws IOException {
+        byte[] content = new byte[3_000_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        Path upload = Path.of("user-uploads/socket-handler-test.json");
+        try (Socket client = new Socket("localhost", port)) {
+            new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+            OutputStream outputStream = client.getOutputStream();
+            outputStream.write(("POST /socket-handler-test.json HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            outputStream.write(content);
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+            assertTrue(readHead(inputStream).startsWith("HTTP/1.1 201 Created\r\n"));
+            assertArrayEquals(content, Files.readAllBytes(upload));
+            try (Stream<Path> uploads = Files.list(upload.getParent())) {
+                assertTrue(uploads.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+            }
+        } finally {
+            Files.deleteIfExists(upload);
+        }
+    }
+
+    @Test
+    public void testRefusesUploadsOverTheRouteRateLimitBeforeReadingThem() throws IOException {
+        RateLimiter.getInstance().setLimits(null, null, Map.of("POST /*", new RateLimit(0.001, 1)));
+        Path upload = Path.of("user-uploads/socket-handler-limited.json");
+        long limitedBefore = ServerMetrics.get().getLimitRejections(Limit.ROUTE_REQUESTS);
+        try (Socket client = new Socket("localhost", port)) {
+            new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+            String request = "POST /socket-handler-limited.json HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: 2\r\n\r\n";
+            client.getOutputStream().write((request + "{}" + request).getBytes(StandardCharsets.US_ASCII));
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+            assertTrue(readResponse(inputStream).startsWith("HTTP/1.1 201 Created\r\n"));
+            // the body was not read, the connection cannot be reused
+            String response = withoutCommonHeaders(readResponse(inputStream));
+            assertEquals("HTTP/1.1 429 Too Many Requests\r\nContent-Length: 0\r\nRetry-After: 1000\r\nConnection: close\r\n\r\n", response);
+            assertEquals(-1, inputStream.read());
+            assertEquals(limitedBefore + 1, ServerMetrics.get().getLimitRejections(Limit.ROUTE_REQUESTS));
+        } finally {
+            RateLimiter.getInstance().setLimits(null, null, Map.of());
+            Files.deleteIfExists(upload);
+        }
+    }
+
+    @Test
+    public void testCompressesTextForClientsAcceptingGzip() throws IOException {
+        byte[] content = createResource("socket-handler-test.html",
+                "<p>compressible</p>\n".repeat(200).getBytes(StandardCharsets.US_ASCII));
+        try (Socket client = new Socket("localhost", port)) {
+            new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+            client.getOutputStream().write(("GET /socket-handler-test.html HTTP/1.1\r\nHost: localhost\r\nAccept-Encoding: deflate;q=0.5, gzip\r\n\r\n"
+                    + "GET /socket-handler-test.html HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+            String head = readHead(inputStream);
+            assertTrue(head.contains("Content-Encoding: gzip\r\n"));
+            assertTrue(head.contains("Vary: Accept-Encoding\r\n"));
+            byte[] compressed = inputStream.readNBytes(readContentLength(head));
+            assertTrue(compressed.length < content.length);
+            assertArrayEquals(content, new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes());
+
+            head = readHead(inputStream);
+            assertFalse(head.contains("Content-Encoding"));
+            assertTrue(head.contains("Vary: Accept-Encoding\r\n"));
+            assertArrayEquals(content, inputStream.readNBytes(readContentLength(head)));
+        }
+    }
+
+    @Test
+    public void testCompressesBigFileWhileStreamingItInChunks() throws IOException {
+        byte[] content = createResource("socket-handler-test-big.html",
+                "<p>compressible</p>\n".repeat(100_000).getBytes(StandardCharsets.US_ASCII));
+        try (Socket client = new Socket("localhost", port)) {
+            new Thread(new SocketHandler(serverSocket.accept().socket())).start();
+            client.getOutputStream().write(("GET /socket-handler-test-big.html HTTP/1.1\r\nHost: localhost\r\nAccept-Encoding: gzip\r\n\r\n"
+                    + "GET /socket-handler-test-big.html HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            InputStream inputStream = new BufferedInputStream(client.getInputStream());
+            String head = readHead(inputStream);
+            assertTrue(head.contains("Transfer-Encoding: chunked\r\n"));
+            assertTrue(head.contains("Content-Encoding: gzip\r\n"));
+            assertFalse(head.contains("Accept-Ranges"));
+            byte[] compressed = readChunkedBody(inputStream);
+            assertArrayEquals(content, new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes());
+
+            // the connection is still in sync after the last chunk
+            head = readHead(inputStream);
+            assertArrayEquals(content, inputStream.readNBytes(readContentLength(head)));
+        }
+    }
+
+    static byte[] readChunkedBody(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int chunkSize;
+        while ((chunkSize = Integer.parseInt(readLine(inputStream), 16)) > 0) {
+            body.write(inputStream.readNBytes(chunkSize));
+            assertEquals("", readLine(inputStream));
+        }
+        assertEquals("", readLine(inputStream));
+        return body.toByteArray();
+    }
+
+    private static String readLine(InputStream inputStream) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int value;
+        while ((value = inputStream.read()) != '\r') {
+            line.append((char) value);
+        }
+        inputStream.read();
+        return line.toString();
+    }
+
+    static byte[] createBinaryResource(String name, int size) throws IOException {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        return createResource(name, content);
+    }
+
+    // written next to the compiled resources, so the server finds it on the class path as a file
+    static byte[] createResource(String name, byte[] content) throws IOException {
+        File resource = new File(Thread.currentThread().getContextClassLoader().getResource("www").getFile(), name);
+        try (OutputStream outputStream = new FileOutputStream(resource)) {
+            outputStream.write(content);
+        }
+        resource.deleteOnExit();
+        return content;
+    }
+
+    static String readHeader(String head, String name) {
+        int start = head.indexOf("\r\n" + name + ": ") + name.length() + 4;
+        return head.substring(start, head.indexOf("\r\n", start));
+    }
+
+    static String readHead(InputStream inputStream) throws IOException {
+        StringBuilder head = new StringBuilder();
+        while (!head.toString().endsWith("\r\n\r\n")) {
+            head.append((char) inputStream.read());
+        }
+        return head.toString();
+    }
+
+    static int readContentLength(String head) {
+        for (String header : head.split("\r\n")) {
+            if (header.toLowerCase().startsWith("content-length:")) {
+                return Integer.parseInt(header.substring("content-length:".length()).trim());
+            }
+        }
+        return 0;
+    }
+
+    static String readResponse(InputStream inputStream) throws IOException {
+        String head = readHead(inputStream);
+        return head + new String(inputStream.readNBytes(readContentLength(head)), StandardCharsets.UTF_8);
+    }
+
+    // Date follows the clock and Server is the same on every response, exact comparisons leave them out
+    static String withoutCommonHeaders(String response) {
+        return response.replaceFirst("Date: [^\r]*\r\n", "").replaceFirst("Server: [^\r]*\r\n", "");
+    }
+
+    @AfterAll
+    public static void clean() throws IOException {
+        serverSocket.close();
+    }
+}
@@ -0,0 +1,134 @@
+import org.example.http.ContentEncoding;
+import org.example.http.HttpOutputBuffer;
+import org.example.http.HttpResponseStatus;
+import org.example.http.cache.CachedResource;
+import org.example.http.cache.CachedResponse;
+import org.example.http.cache.StaticResponseCache;
+import org.example.http.util.HttpResponseBuilder;
+import org.junit.jupiter.api.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StaticResponseCacheTest {
+    private static CachedResponse cachedResponse(String body) {
+        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        return new CachedResponse(
+                HttpResponseBuilder.generateHttpGetResponse("HTTP/1.1", HttpResponseStatus.OK, bodyBytes.length, "text/html", true),
+                bodyBytes
+        );
+    }
+
+    private static CachedResource.Variant variant(CachedResponse response, String entityTag) {
+        return new CachedResource.Variant(response, new CachedResponse(
+                HttpResponseBuilder.generateHttpNotModifiedResponse("HTTP/1.1", Map.of("ETag", entityTag), true),
+                new byte[0]
+        ), entityTag, Map.of());
+    }
+
+    private static CachedResource cachedResource(String body) {
+        return new CachedResource(Map.of(ContentEncoding.IDENTITY, variant(cachedResponse(body), "\"1\"")), "text/html", null, null);
+    }
+
+    private static String render(CachedResponse cachedResponse, String httpVersion, boolean keepAlive) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        HttpOutputBuffer outputBuffer = new HttpOutputBuffer(outputStream);
+        cachedResponse.writeTo(outputBuffer, httpVersion, keepAlive);
+        outputBuffer.flush();
+        return SocketHandlerTest.withoutCommonHeaders(outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCountsHitsAndMisses() {
+        StaticResponseCache staticResponseCache = new StaticResponseCache(1024);
+        assertNull(staticResponseCache.get("index.html"));
+        CachedResource index = cachedResource("index");
+        staticResponseCache.put("index.html", index);
+        assertSame(index, staticResponseCache.get("index.html"));
+        assertEquals(1, staticResponseCache.getHits());
+        assertEquals(1, staticResponseCache.getMisses());
+        assertEquals(index.size(), staticResponseCache.getSizeInBytes());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedEntriesOverBudget() {
+        CachedResource first = cachedResource("first");
+        StaticResponseCache staticResponseCache = new StaticResponseCache(first.size() * 2L);
+        staticResponseCache.put("first.html", first);
+        staticResponseCache.put("second.html", cachedResource("secnd"));
+        // used after the second one was added, the second one is now the least recently used
+        staticResponseCache.get("first.html");
+        staticResponseCache.put("third.html", cachedResource("third"));
+
+        assertNotNull(staticResponseCache.get("first.html"));
+        assertNull(staticResponseCache.get("second.html"));
+        assertNotNull(staticResponseCache.get("third.html"));
+        assertEquals(1, staticResponseCache.getEvictions());
+        assertEquals(first.size() * 2L, staticResponseCache.getSizeInBytes());
+    }
+
+    @Test
+    public void testEvictsDownToAReducedBudget() {
+        CachedResource first = cachedResource("first");
+        StaticResponseCache staticResponseCache = new StaticResponseCache(first.size() * 2L);
+        staticResponseCache.put("first.html", first);
+        staticResponseCache.put("second.html", cachedResource("secnd"));
+        staticResponseCache.get("first.html");
+
+        staticResponseCache.setMaxBytes(first.size());
+        assertNotNull(staticResponseCache.get("first.html"));
+        assertNull(staticResponseCache.get("second.html"));
+        assertEquals(first.size(), staticResponseCache.getSizeInBytes());
+    }
+
+    @Test
+    public void testDoesNotCacheResponsesOverBudget() {
+        StaticResponseCache staticResponseCache = new StaticResponseCache(10);
+        staticResponseCache.put("index.html", cachedResource("index"));
+        assertEquals(0, staticResponseCache.getEntryCount());
+    }
+
+    @Test
+    public void testAdaptsCachedResponseToVersionAndConnection() throws IOException {
+        CachedResponse index = cachedResponse("index");
+        String head = "Content-type: text/html\r\nContent-Length: 5\r\n";
+        assertEquals("HTTP/1.1 200 OK\r\n" + head + "\r\nindex", render(index, "HTTP/1.1", true));
+        assertEquals("HTTP/1.1 200 OK\r\n" + head + "Connection: close\r\n\r\nindex", render(index, "HTTP/1.1", false));
+        assertEquals("HTTP/1.0 200 OK\r\n" + head + "Connection: keep-alive\r\n\r\nindex", render(index, "HTTP/1.0", true));
+        assertEquals("HTTP/1.0 200 OK\r\n" + head + "\r\nindex", render(index, "HTTP/1.0", false));
+    }
+
+    @Test
+    public void testSelectsVariantForAcceptEncoding() {
+        CachedResponse identity = cachedResponse("index");
+        CachedResponse gzip = cachedResponse("gzip");
+        CachedResource index = new CachedResource(Map.of(
+                ContentEncoding.IDENTITY, variant(identity, "\"1\""),
+                ContentEncoding.GZIP, variant(gzip, "\"1-gzip\"")
+        ), "text/html", null, null);
+        assertSame(identity, index.select(null).response());
+        assertSame(gzip, index.select("gzip, deflate, br").response());
+        assertSame(identity, index.select("deflate").response());
+        assertSame(identity, index.select("gzip;q=0").response());
+    }
+
+    @Test
+    public void testAnswersRevalidationOfCurrentVariantWithNotModified() throws IOException {
+        CachedResource index = new CachedResource(Map.of(
+                ContentEncoding.IDENTITY, variant(cachedResponse("index"), "\"1\""),
+                ContentEncoding.GZIP, variant(cachedResponse("gzip"), "\"1-gzip\"")
+        ), "text/html", null, null);
+        CachedResource.Variant gzip = index.select("gzip");
+        assertTrue(index.isNotModified(gzip, "\"0\", W/\"1-gzip\"", null));
+        assertEquals("HTTP/1.1 304 Not Modified\r\nETag: \"1-gzip\"\r\n\r\n", render(gzip.notModified(), "HTTP/1.1", true));
+        CachedResource.Variant identity = index.select(null);
+        assertTrue(index.isNotModified(identity, "*", null));
+        assertEquals("HTTP/1.0 304 Not Modified\r\nETag: \"1\"\r\n\r\n", render(identity.notModified(), "HTTP/1.0", false));
+        // the gzip entity tag does not validate the identity variant
+        assertFalse(index.isNotModified(identity, "\"1-gzip\"", null));
+        assertFalse(index.isNotModified(identity, null, null));
+        // without a modification time If-Modified-Since cannot be evaluated
+        assertFalse(index.isNotModified(identity, null, "Thu, 01 Jan 2099 00:00:00 GMT"));
+    }
+}
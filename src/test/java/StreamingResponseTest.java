@@ -0,0 +1,97 @@
+import org.example.http.HttpOutputBuffer;
+import org.example.http.HttpResponseStatus;
+import org.example.http.StreamingResponse;
+import org.junit.jupiter.api.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingResponseTest {
+    private ByteArrayOutputStream outputStream;
+    private HttpOutputBuffer outputBuffer;
+
+    @BeforeEach
+    public void setUp() {
+        this.outputStream = new ByteArrayOutputStream();
+        this.outputBuffer = new HttpOutputBuffer(this.outputStream);
+    }
+
+    private String written() throws IOException {
+        this.outputBuffer.flush();
+        return SocketHandlerTest.withoutCommonHeaders(this.outputStream.toString(StandardCharsets.US_ASCII));
+    }
+
+    private static StreamingResponse response(String httpVersion, long contentLength, StreamingResponse.Body body) {
+        return new StreamingResponse(httpVersion, HttpResponseStatus.OK, "text/plain", Map.of("X-Test", "1"), contentLength, body);
+    }
+
+    @Test
+    public void testFlushesHeadBeforeBodyIsProduced() throws IOException {
+        response("HTTP/1.1", -1, body -> {
+            // the head is already on its way when the handler starts producing the body
+            assertEquals("HTTP/1.1 200 OK\r\nContent-type: text/plain\r\nTransfer-Encoding: chunked\r\nX-Test: 1\r\n\r\n",
+                    SocketHandlerTest.withoutCommonHeaders(this.outputStream.toString(StandardCharsets.US_ASCII)));
+        }).writeTo(this.outputBuffer, true);
+    }
+
+    @Test
+    public void testFramesUnknownLengthWithChunks() throws IOException {
+        boolean keepAlive = response("HTTP/1.1", -1, body -> {
+            body.write("hello ".getBytes(StandardCharsets.US_ASCII));
+            body.flush();
+            body.write("world".getBytes(StandardCharsets.US_ASCII));
+        }).writeTo(this.outputBuffer, true);
+        assertTrue(keepAlive);
+        assertTrue(written().endsWith("\r\n\r\n6\r\nhello \r\n5\r\nworld\r\n0\r\n\r\n"));
+    }
+
+    @Test
+    public void testSendsWritesBiggerThanAChunkAsOneChunk() throws IOException {
+        byte[] content = "x".repeat(20_000).getBytes(StandardCharsets.US_ASCII);
+        response("HTTP/1.1", -1, body -> {
+            body.write('a');
+            body.write(content);
+        }).writeTo(this.outputBuffer, true);
+        assertTrue(written().endsWith("\r\n\r\n1\r\na\r\n4e20\r\n" + "x".repeat(20_000) + "\r\n0\r\n\r\n"));
+    }
+
+    @Test
+    public void testClosesHttp10ConnectionToEndUnknownLength() throws IOException {
+        boolean keepAlive = response("HTTP/1.0", -1, body -> body.write("hello".getBytes(StandardCharsets.US_ASCII)))
+                .writeTo(this.outputBuffer, true);
+        assertFalse(keepAlive);
+        assertEquals("HTTP/1.0 200 OK\r\nContent-type: text/plain\r\nX-Test: 1\r\n\r\nhello", written());
+    }
+
+    @Test
+    public void testEnforcesAnnouncedContentLength() throws IOException {
+        assertTrue(response("HTTP/1.1", 5, body -> body.write("hello".getBytes(StandardCharsets.US_ASCII)))
+                .writeTo(this.outputBuffer, true));
+        assertEquals("HTTP/1.1 200 OK\r\nContent-type: text/plain\r\nContent-Length: 5\r\nX-Test: 1\r\n\r\nhello", written());
+        assertThrows(IOException.class, () -> response("HTTP/1.1", 5, body -> body.write(new byte[6]))
+                .writeTo(this.outputBuffer, true));
+        assertThrows(IOException.class, () -> response("HTTP/1.1", 5, body -> body.write(new byte[4]))
+                .writeTo(this.outputBuffer, true));
+    }
+
+    @Test
+    public void testLeavesFailedBodyUnterminated() throws IOException {
+        IOException exception = assertThrows(IOException.class, () -> response("HTTP/1.1", -1, body -> {
+            body.write("hello".getBytes(StandardCharsets.US_ASCII));
+            body.flush();
+            throw new IllegalStateException("backend gone");
+        }).writeTo(this.outputBuffer, true));
+        assertTrue(exception.getMessage().contains("backend gone"));
+        // no last chunk, the client cannot take the body for a complete one
+        assertTrue(written().endsWith("\r\n\r\n5\r\nhello\r\n"));
+
+        // the body's own failure is reported, not the short length found when closing
+        exception = assertThrows(IOException.class, () -> response("HTTP/1.1", 10, body -> {
+            body.write(new byte[3]);
+            throw new IOException("disk error");
+        }).writeTo(this.outputBuffer, true));
+        assertEquals("disk error", exception.getMessage());
+        assertEquals(0, exception.getSuppressed().length);
+    }
+}